@@ -0,0 +1,66 @@
+package pl.msmaciek.audio;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar and Vector API loops of the loudness normalizer, on a 20ms frame and on a full browser capture chunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PcmKernelsBenchmark {
+    @Param({"960", "8192"})
+    public int samples;
+
+    private final PcmKernels scalar = new ScalarPcmKernels();
+    private final PcmKernels vector = new VectorPcmKernels();
+    private byte[] pcm;
+    private byte[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        pcm = new byte[samples * 2];
+        out = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            int s = (int) (Math.sin(i * 0.05) * 6000 + random.nextGaussian() * 800);
+            pcm[i * 2] = (byte) s;
+            pcm[i * 2 + 1] = (byte) (s >> 8);
+        }
+    }
+
+    @Benchmark
+    public double scalarSumSquares() {
+        return scalar.sumSquares(pcm, 0, samples);
+    }
+
+    @Benchmark
+    public double vectorSumSquares() {
+        return vector.sumSquares(pcm, 0, samples);
+    }
+
+    @Benchmark
+    public int scalarPeak() {
+        return scalar.peak(pcm, 0, samples);
+    }
+
+    @Benchmark
+    public int vectorPeak() {
+        return vector.peak(pcm, 0, samples);
+    }
+
+    @Benchmark
+    public byte[] scalarApplyGain() {
+        scalar.applyGain(pcm, 0, out, 0, samples, 2.5f);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] vectorApplyGain() {
+        vector.applyGain(pcm, 0, out, 0, samples, 2.5f);
+        return out;
+    }
+}
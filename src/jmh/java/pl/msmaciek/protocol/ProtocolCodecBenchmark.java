@@ -0,0 +1,86 @@
+package pl.msmaciek.protocol;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming protocol codec with the Gson tree approach it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtocolCodecBenchmark {
+    private static final Gson gson = new Gson();
+
+    private final String ping = "{\"type\":\"ping\",\"timestamp\":1760870400000}";
+    private final String resume = "{\"type\":\"resume\",\"token\":\"MTJ8NGQ1YTJmYjYtMWQ0Ni00YzQ1LWE3OTQtYjY5MmY0ZDE4ZjU5fDE3NjA4NzA1MjAwMDB8LTQyfFN0ZXZl.c2lnbmF0dXJl\"}";
+    private final long timestamp = 1760870400000L;
+
+    @Benchmark
+    public String decodePingTree() {
+        JsonObject json = JsonParser.parseString(ping).getAsJsonObject();
+        return json.get("type").getAsString() + json.get("timestamp").getAsLong();
+    }
+
+    @Benchmark
+    public ClientMessage decodePingStreaming() {
+        return ProtocolCodec.decode(ping);
+    }
+
+    @Benchmark
+    public String decodeResumeTree() {
+        JsonObject json = JsonParser.parseString(resume).getAsJsonObject();
+        return json.get("type").getAsString() + json.get("token").getAsString();
+    }
+
+    @Benchmark
+    public ClientMessage decodeResumeStreaming() {
+        return ProtocolCodec.decode(resume);
+    }
+
+    @Benchmark
+    public String encodePongTree() {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("type", "pong");
+        msg.addProperty("timestamp", timestamp);
+        return gson.toJson(msg);
+    }
+
+    @Benchmark
+    public String encodePongStreaming() {
+        return ProtocolCodec.pong(timestamp);
+    }
+
+    @Benchmark
+    public String encodeJoinSuccessTree() {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("type", "join_success");
+        msg.addProperty("id", 12);
+        msg.addProperty("name", "Steve");
+        msg.addProperty("resumed", false);
+        msg.addProperty("resumeToken", resume);
+        return gson.toJson(msg);
+    }
+
+    @Benchmark
+    public String encodeJoinSuccessStreaming() {
+        return ProtocolCodec.joinSuccess(12, "Steve", false, resume);
+    }
+
+    @Benchmark
+    public String encodeKickedTree() {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("type", "kicked");
+        msg.addProperty("reason", "Player left the game server.");
+        return gson.toJson(msg);
+    }
+
+    @Benchmark
+    public String encodeKickedPreEncoded() {
+        return ProtocolCodec.KICKED_PLAYER_LEFT;
+    }
+}
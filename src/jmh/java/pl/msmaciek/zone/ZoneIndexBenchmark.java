@@ -0,0 +1,65 @@
+package pl.msmaciek.zone;
+
+import org.openjdk.jmh.annotations.*;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.structs.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zone lookup through the grid index compared with checking every zone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ZoneIndexBenchmark {
+    @Param({"10", "200"})
+    public int zoneCount;
+
+    private final Position[] positions = new Position[1024];
+    private List<AcousticZone> zones;
+    private ZoneIndex index;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        zones = new ArrayList<>();
+        for (int i = 0; i < zoneCount; i++) {
+            VoiceChatConfig.ZoneConfig config = new VoiceChatConfig.ZoneConfig();
+            double x = random.nextDouble() * 2000 - 1000, z = random.nextDouble() * 2000 - 1000;
+            double size = 10 + random.nextDouble() * 60;
+            config.setName("zone" + i);
+            config.setMinX(x);
+            config.setMinY(0);
+            config.setMinZ(z);
+            config.setMaxX(x + size);
+            config.setMaxY(128);
+            config.setMaxZ(z + size);
+            config.setPriority(random.nextInt(3));
+            zones.add(AcousticZone.from(config));
+        }
+        index = new ZoneIndex(zones);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new Position(random.nextDouble() * 2000 - 1000, 64, random.nextDouble() * 2000 - 1000);
+        }
+    }
+
+    @Benchmark
+    public AcousticZone indexLookup() {
+        return index.lookup(positions[next++ & (positions.length - 1)]).zone();
+    }
+
+    @Benchmark
+    public AcousticZone linearScan() {
+        Position pos = positions[next++ & (positions.length - 1)];
+        AcousticZone best = AcousticZone.NONE;
+        for (AcousticZone zone : zones) {
+            if (zone.contains(pos) && zone.beats(best)) best = zone;
+        }
+        return best;
+    }
+}
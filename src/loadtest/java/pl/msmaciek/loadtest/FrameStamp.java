@@ -0,0 +1,44 @@
+package pl.msmaciek.loadtest;
+
+/**
+ * Writes a send timestamp into the first samples of a PCM frame so receivers can measure relay latency.
+ * <p>
+ * Each 16-bit word of the timestamp is repeated over {@link #REPEAT} samples. The server low-passes
+ * lower audio tiers with a unity-gain FIR before decimating; in the middle of a run longer than the
+ * filter the output equals the input, so reading each run at its centre recovers the stamp in every tier.
+ * <p>
+ * Loudness normalization ({@code Loudness.Enabled}) scales every sample and destroys the stamp, so
+ * {@link LoadTest} refuses to measure against a server that reports {@code normalized: true}.
+ */
+final class FrameStamp {
+    // Longer than the longest AudioTier filter (25 taps), and divisible by every decimation (1, 2, 3)
+    static final int REPEAT = 30;
+    static final int WORDS = 4;
+    static final int SAMPLES = WORDS * REPEAT;
+
+    private FrameStamp() {}
+
+    static void write(byte[] pcm, long value) {
+        for (int w = 0; w < WORDS; w++) {
+            int word = (int) (value >>> (16 * w)) & 0xFFFF;
+            for (int r = 0; r < REPEAT; r++) {
+                int p = (w * REPEAT + r) * 2;
+                pcm[p] = (byte) word;
+                pcm[p + 1] = (byte) (word >> 8);
+            }
+        }
+    }
+
+    /**
+     * @param decimation How many source samples were decimated into one received sample
+     */
+    static long read(byte[] pcm, int offset, int decimation) {
+        long value = 0;
+        for (int w = 0; w < WORDS; w++) {
+            int p = offset + ((w * REPEAT + REPEAT / 2) / decimation) * 2;
+            long word = (pcm[p] & 0xFF) | ((pcm[p + 1] & 0xFF) << 8);
+            value |= word << (16 * w);
+        }
+        return value;
+    }
+}
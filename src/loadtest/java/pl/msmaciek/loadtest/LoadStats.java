@@ -0,0 +1,33 @@
+package pl.msmaciek.loadtest;
+
+import pl.msmaciek.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by all clients of a load test run.
+ * Latencies and rates are only recorded while {@link #measuring} is set, after ramp-up and warm-up.
+ */
+class LoadStats {
+    final LatencyHistogram relayLatency = new LatencyHistogram();
+    final LatencyHistogram snapshotInterval = new LatencyHistogram();
+
+    final AtomicInteger connected = new AtomicInteger();
+    final AtomicInteger joined = new AtomicInteger();
+
+    final LongAdder connectFailures = new LongAdder();
+    final LongAdder joinFailures = new LongAdder();
+    final LongAdder kicked = new LongAdder();
+    final LongAdder closed = new LongAdder();
+
+    final LongAdder framesSent = new LongAdder();
+    final LongAdder sendFailures = new LongAdder();
+    final LongAdder framesReceived = new LongAdder();
+    final LongAdder framesReducedQuality = new LongAdder();
+    final LongAdder snapshots = new LongAdder();
+
+    volatile boolean measuring = false;
+    // Set when the server's config says it normalizes loudness, which rewrites the frame stamps
+    volatile boolean normalized = false;
+}
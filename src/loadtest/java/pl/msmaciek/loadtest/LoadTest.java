@@ -0,0 +1,317 @@
+package pl.msmaciek.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.io.ClientConnector;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import pl.msmaciek.impairment.ImpairmentScenario;
+import pl.msmaciek.impairment.Impairments;
+import pl.msmaciek.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens many /voice connections against a standalone server and reports relay latency,
+ * snapshot delivery and server-side drops as JSON.
+ * <p>
+ * Start the server with {@code --auto-verify --metrics}, then:
+ * <pre>
+ * ./gradlew loadtest --args="--clients 2000 --duration 120"
+ * </pre>
+ */
+public class LoadTest {
+    private static final String USAGE = """
+            Options:
+              --url <ws url>            Voice endpoint (default ws://localhost:8080/voice)
+              --unix-socket <path>      Connect through the server's unix socket; --url then only sets the Host and path
+              --clients <n>             Number of connections (default 500)
+              --connect-rate <n>        New connections per second during ramp-up (default 200)
+              --warmup <s>              Seconds between ramp-up and measurement (default 10)
+              --duration <s>            Measurement duration in seconds (default 60)
+              --talk-ms <ms>            Mean talk spurt length (default 1000)
+              --silence-ms <ms>         Mean pause length (default 1600)
+              --frame-samples <n>       Samples per audio frame at 48 kHz (default 8192, like the web client)
+              --metrics-url <url|none>  Server metrics endpoint (default derived from --url)
+              --report <file>           Report file (default loadtest-report.json)
+              --seed <n>                Random seed (default 1)
+              --impair <scenario.json>  Simulate bad networks on the client side (don't combine with the server's --impair)""";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private URI url = URI.create("ws://localhost:8080/voice");
+    private int clients = 500;
+    private double connectRate = 200;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 60;
+    private double talkMs = 1000;
+    private double silenceMs = 1600;
+    private int frameSamples = 8192;
+    private String metricsUrl = null;
+    private Path report = Path.of("loadtest-report.json");
+    private long seed = 1;
+    private String impairment = null;
+    private Path unixSocket = null;
+
+    private final LoadStats stats = new LoadStats();
+    private final HttpClient http = HttpClient.newHttpClient();
+    // Shared by the WebSocket client and the metrics requests when connecting through a unix socket
+    private org.eclipse.jetty.client.HttpClient unixHttp;
+
+    public static void main(String[] args) throws Exception {
+        LoadTest test = new LoadTest();
+        try {
+            test.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        try {
+            test.run();
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--url" -> url = URI.create(value(args, ++i, arg));
+                case "--unix-socket" -> unixSocket = Path.of(value(args, ++i, arg));
+                case "--clients" -> clients = Integer.parseInt(value(args, ++i, arg));
+                case "--connect-rate" -> connectRate = Double.parseDouble(value(args, ++i, arg));
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value(args, ++i, arg));
+                case "--duration" -> durationSeconds = Integer.parseInt(value(args, ++i, arg));
+                case "--talk-ms" -> talkMs = Double.parseDouble(value(args, ++i, arg));
+                case "--silence-ms" -> silenceMs = Double.parseDouble(value(args, ++i, arg));
+                case "--frame-samples" -> frameSamples = Integer.parseInt(value(args, ++i, arg));
+                case "--metrics-url" -> metricsUrl = value(args, ++i, arg);
+                case "--report" -> report = Path.of(value(args, ++i, arg));
+                case "--seed" -> seed = Long.parseLong(value(args, ++i, arg));
+                case "--impair" -> impairment = value(args, ++i, arg);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (metricsUrl == null) {
+            String scheme = "wss".equals(url.getScheme()) ? "https" : "http";
+            metricsUrl = scheme + "://" + url.getAuthority() + "/metrics";
+        } else if ("none".equals(metricsUrl)) {
+            metricsUrl = null;
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[index];
+    }
+
+    private void run() throws Exception {
+        if (impairment != null) {
+            Impairments.getInstance().start(ImpairmentScenario.load(Path.of(impairment)));
+        }
+
+        long frameIntervalMicros = frameSamples * 1_000_000L / 48_000;
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+
+        WebSocketClient client;
+        if (unixSocket != null) {
+            unixHttp = new org.eclipse.jetty.client.HttpClient(new HttpClientTransportOverHTTP(ClientConnector.forUnixDomain(unixSocket)));
+            client = new WebSocketClient(unixHttp);
+        } else {
+            client = new WebSocketClient();
+        }
+        client.setMaxBinaryMessageSize(1024 * 1024);
+        client.setMaxTextMessageSize(4 * 1024 * 1024);
+        client.setIdleTimeout(Duration.ofMinutes(5));
+        client.start();
+
+        try {
+            // Ramp up
+            System.out.println("Connecting " + clients + " clients to " + url + (unixSocket != null ? " through " + unixSocket : ""));
+            long pauseNanos = (long) (1_000_000_000L / connectRate);
+            Random random = new Random(seed);
+            List<SwarmClient> swarm = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                SwarmClient swarmClient = new SwarmClient(i, stats, scheduler, seed + i, frameSamples, talkMs, silenceMs);
+                swarm.add(swarmClient);
+                client.connect(swarmClient, url).whenComplete((session, error) -> {
+                    if (error != null) stats.connectFailures.increment();
+                });
+                // Clients send on their own phase, like real microphones
+                long phase = (long) (random.nextDouble() * frameIntervalMicros);
+                scheduler.scheduleAtFixedRate(swarmClient::tick, phase, frameIntervalMicros, TimeUnit.MICROSECONDS);
+                TimeUnit.NANOSECONDS.sleep(pauseNanos);
+            }
+
+            System.out.println("Ramp-up done: " + stats.connected.get() + " connected, " + stats.joined.get() + " joined. Warming up...");
+            if (stats.normalized) {
+                throw new IllegalStateException("The server normalizes loudness (Loudness.Enabled), which rewrites "
+                        + "the latency stamps in every relayed frame. Disable it for load tests.");
+            }
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+
+            // Measure
+            Map<String, Long> serverBefore = fetchServerMetrics();
+            int joinedAtStart = stats.joined.get();
+            long start = System.nanoTime();
+            stats.measuring = true;
+            System.out.println("Measuring for " + durationSeconds + "s with " + joinedAtStart + " joined clients");
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            stats.measuring = false;
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            Map<String, Long> serverAfter = fetchServerMetrics();
+
+            JsonObject result = buildReport(elapsedSeconds, joinedAtStart, serverBefore, serverAfter);
+            try (Writer writer = Files.newBufferedWriter(report)) {
+                GSON.toJson(result, writer);
+            }
+            printSummary(result);
+            System.out.println("Report written to " + report.toAbsolutePath());
+        } finally {
+            scheduler.shutdownNow();
+            client.stop();
+            Impairments.getInstance().stop();
+        }
+    }
+
+    private JsonObject buildReport(double elapsedSeconds, int joinedAtStart, Map<String, Long> serverBefore, Map<String, Long> serverAfter) {
+        JsonObject options = new JsonObject();
+        options.addProperty("url", url.toString());
+        options.addProperty("unixSocket", unixSocket != null ? unixSocket.toString() : null);
+        options.addProperty("clients", clients);
+        options.addProperty("durationSeconds", durationSeconds);
+        options.addProperty("talkMs", talkMs);
+        options.addProperty("silenceMs", silenceMs);
+        options.addProperty("frameSamples", frameSamples);
+        options.addProperty("impairment", impairment);
+
+        JsonObject connections = new JsonObject();
+        connections.addProperty("joinedAtStart", joinedAtStart);
+        connections.addProperty("joinedAtEnd", stats.joined.get());
+        connections.addProperty("connectFailures", stats.connectFailures.sum());
+        connections.addProperty("joinFailures", stats.joinFailures.sum());
+        connections.addProperty("kicked", stats.kicked.sum());
+        connections.addProperty("closed", stats.closed.sum());
+
+        long sent = stats.framesSent.sum();
+        long received = stats.framesReceived.sum();
+        JsonObject audio = new JsonObject();
+        audio.addProperty("framesSent", sent);
+        audio.addProperty("framesReceived", received);
+        audio.addProperty("framesReducedQuality", stats.framesReducedQuality.sum());
+        audio.addProperty("sendFailures", stats.sendFailures.sum());
+        audio.addProperty("fanout", sent > 0 ? (double) received / sent : 0);
+        audio.add("relayLatencyMicros", percentiles(stats.relayLatency));
+
+        JsonObject snapshots = new JsonObject();
+        snapshots.addProperty("received", stats.snapshots.sum());
+        snapshots.addProperty("perClientPerSecond", joinedAtStart > 0 ? stats.snapshots.sum() / elapsedSeconds / joinedAtStart : 0);
+        snapshots.add("intervalMicros", percentiles(stats.snapshotInterval));
+
+        JsonObject result = new JsonObject();
+        result.add("options", options);
+        result.addProperty("elapsedSeconds", elapsedSeconds);
+        result.add("connections", connections);
+        result.add("audio", audio);
+        result.add("snapshots", snapshots);
+
+        if (serverAfter != null) {
+            // Counters as the change during measurement, gauges as their value at the end
+            JsonObject server = new JsonObject();
+            for (Map.Entry<String, Long> entry : serverAfter.entrySet()) {
+                long before = serverBefore != null ? serverBefore.getOrDefault(entry.getKey(), 0L) : 0L;
+                JsonObject value = new JsonObject();
+                value.addProperty("delta", entry.getValue() - before);
+                value.addProperty("end", entry.getValue());
+                server.add(entry.getKey(), value);
+            }
+            result.add("server", server);
+        }
+        return result;
+    }
+
+    private static JsonObject percentiles(LatencyHistogram histogram) {
+        JsonObject json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("p50", histogram.percentile(50));
+        json.addProperty("p95", histogram.percentile(95));
+        json.addProperty("p99", histogram.percentile(99));
+        json.addProperty("p999", histogram.percentile(99.9));
+        json.addProperty("max", histogram.getMax());
+        return json;
+    }
+
+    private void printSummary(JsonObject result) {
+        JsonObject audio = result.getAsJsonObject("audio");
+        JsonObject latency = audio.getAsJsonObject("relayLatencyMicros");
+        JsonObject snapshots = result.getAsJsonObject("snapshots");
+
+        System.out.printf("Joined: %d, frames sent: %d, received: %d (fanout %.1f)%n",
+            result.getAsJsonObject("connections").get("joinedAtEnd").getAsInt(),
+            audio.get("framesSent").getAsLong(), audio.get("framesReceived").getAsLong(), audio.get("fanout").getAsDouble());
+        System.out.printf("Relay latency: p50 %.1fms, p95 %.1fms, p99 %.1fms, max %.1fms%n",
+            latency.get("p50").getAsLong() / 1000.0, latency.get("p95").getAsLong() / 1000.0,
+            latency.get("p99").getAsLong() / 1000.0, latency.get("max").getAsLong() / 1000.0);
+        System.out.printf("Snapshots: %.2f per client per second%n", snapshots.get("perClientPerSecond").getAsDouble());
+
+        if (result.has("server")) {
+            JsonObject dropped = result.getAsJsonObject("server").getAsJsonObject("audio.frames.dropped.backlog");
+            if (dropped != null) System.out.println("Server dropped frames: " + dropped.get("delta").getAsLong());
+        }
+    }
+
+    /**
+     * @return The server metrics, or null if the endpoint is disabled or unreachable
+     */
+    private Map<String, Long> fetchServerMetrics() {
+        if (metricsUrl == null) return null;
+        try {
+            int status;
+            String body;
+            if (unixHttp != null) {
+                ContentResponse response = unixHttp.newRequest(metricsUrl).timeout(5, TimeUnit.SECONDS).send();
+                status = response.getStatus();
+                body = response.getContentAsString();
+            } else {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl)).timeout(Duration.ofSeconds(5)).build();
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                status = response.statusCode();
+                body = response.body();
+            }
+            if (status != 200) {
+                System.err.println("Server metrics unavailable (HTTP " + status + "), start the server with --metrics");
+                return null;
+            }
+            return new TreeMap<>(GSON.<Map<String, Long>>fromJson(body, new TypeToken<Map<String, Long>>() {}.getType()));
+        } catch (IOException | InterruptedException | ExecutionException | TimeoutException | RuntimeException e) {
+            System.err.println("Failed to fetch server metrics: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pl.msmaciek.loadtest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import pl.msmaciek.impairment.ImpairedLink;
+import pl.msmaciek.impairment.ImpairmentScenario;
+import pl.msmaciek.impairment.Impairments;
+import pl.msmaciek.session.AudioRelay;
+import pl.msmaciek.session.AudioTier;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One synthetic voice chat user: joins through the auto-verify hook of the standalone server,
+ * answers server pings and alternates between talk spurts and silence.
+ * With an impairment scenario running, traffic in both directions passes through this client's links.
+ */
+class SwarmClient extends WebSocketAdapter {
+    private static final String SNAPSHOT_PREFIX = "{\"type\":\"players_snapshot\"";
+    private static final String JOIN = "{\"type\":\"join\"}";
+    private static final int MAX_JOIN_ATTEMPTS = 20;
+    private static final long JOIN_RETRY_MS = 500;
+
+    private final LoadStats stats;
+    private final ScheduledExecutorService scheduler;
+    private final Random random;
+    private final byte[] template;
+    private final double talkMs;
+    private final double silenceMs;
+    // Null unless an impairment scenario is running
+    private final ImpairedLink uplink;
+    private final ImpairedLink downlink;
+
+    private volatile boolean joined = false;
+    private int joinAttempts = 0;
+    private boolean talking = false;
+    private long stateUntilNanos = 0;
+    private long lastSnapshotNanos = 0;
+
+    SwarmClient(int id, LoadStats stats, ScheduledExecutorService scheduler, long seed, int frameSamples, double talkMs, double silenceMs) {
+        this.stats = stats;
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+        this.talkMs = talkMs;
+        this.silenceMs = silenceMs;
+        this.uplink = Impairments.getInstance().link(id, ImpairmentScenario.Direction.UP);
+        this.downlink = Impairments.getInstance().link(id, ImpairmentScenario.Direction.DOWN);
+
+        // Quiet noise, so frames aren't trivially compressible if compression is ever added
+        template = new byte[Math.max(frameSamples, FrameStamp.SAMPLES) * 2];
+        for (int i = FrameStamp.SAMPLES * 2; i < template.length; i += 2) {
+            int sample = (int) (random.nextGaussian() * 600);
+            template[i] = (byte) sample;
+            template[i + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    @Override
+    public void onWebSocketConnect(Session session) {
+        super.onWebSocketConnect(session);
+        stats.connected.incrementAndGet();
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        if (downlink != null) {
+            downlink.submit(message.length(), () -> handleText(message), null);
+            return;
+        }
+        handleText(message);
+    }
+
+    private void handleText(String message) {
+        if (message.startsWith(SNAPSHOT_PREFIX)) {
+            onSnapshot();
+            return;
+        }
+
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        switch (json.get("type").getAsString()) {
+            case "config" -> {
+                if (json.has("normalized") && json.get("normalized").getAsBoolean()) stats.normalized = true;
+            }
+            case "verification_code" -> send(JOIN);
+            case "join_success" -> {
+                joined = true;
+                stats.joined.incrementAndGet();
+            }
+            case "join_error" -> retryJoin();
+            case "server_ping" -> send("{\"type\":\"server_pong\",\"seq\":" + json.get("seq").getAsLong() + "}");
+            case "kicked" -> stats.kicked.increment();
+            default -> {}
+        }
+    }
+
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+        if (downlink != null) {
+            byte[] copy = Arrays.copyOfRange(payload, offset, offset + len);
+            downlink.submit(len, () -> handleBinary(copy, 0, len), null);
+            return;
+        }
+        handleBinary(payload, offset, len);
+    }
+
+    private void handleBinary(byte[] payload, int offset, int len) {
+        if (len < AudioRelay.HEADER_BYTES + FrameStamp.SAMPLES * 2) return;
+        long now = System.nanoTime();
+
+        int sampleRate = ByteBuffer.wrap(payload, offset + 4, 4).getInt();
+        int decimation = Math.max(1, AudioTier.FULL.getSampleRate() / sampleRate);
+        long sentNanos = FrameStamp.read(payload, offset + AudioRelay.HEADER_BYTES, decimation);
+
+        if (!stats.measuring) return;
+        stats.framesReceived.increment();
+        if (decimation > 1) stats.framesReducedQuality.increment();
+        stats.relayLatency.record(TimeUnit.NANOSECONDS.toMicros(now - sentNanos));
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+        super.onWebSocketClose(statusCode, reason);
+        stats.connected.decrementAndGet();
+        stats.closed.increment();
+        if (joined) {
+            joined = false;
+            stats.joined.decrementAndGet();
+        }
+    }
+
+    /**
+     * Called every frame interval; sends a frame while in a talk spurt.
+     * Spurt and pause lengths are exponentially distributed around the configured means.
+     */
+    void tick() {
+        if (!joined || !isConnected()) return;
+
+        long now = System.nanoTime();
+        if (now >= stateUntilNanos) {
+            talking = !talking;
+            double meanMs = talking ? talkMs : silenceMs;
+            stateUntilNanos = now + (long) (-Math.log(1 - random.nextDouble()) * meanMs * 1_000_000);
+        }
+        if (!talking) return;
+
+        byte[] frame = template.clone();
+        FrameStamp.write(frame, System.nanoTime());
+        if (uplink != null) {
+            uplink.submit(frame.length, () -> sendFrame(frame), null);
+        } else {
+            sendFrame(frame);
+        }
+    }
+
+    private void sendFrame(byte[] frame) {
+        if (!isConnected()) return;
+        getRemote().sendBytes(ByteBuffer.wrap(frame), new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                if (stats.measuring) stats.framesSent.increment();
+            }
+
+            @Override
+            public void writeFailed(Throwable x) {
+                stats.sendFailures.increment();
+            }
+        });
+    }
+
+    private void onSnapshot() {
+        long now = System.nanoTime();
+        if (stats.measuring) {
+            stats.snapshots.increment();
+            if (lastSnapshotNanos != 0) {
+                stats.snapshotInterval.record(TimeUnit.NANOSECONDS.toMicros(now - lastSnapshotNanos));
+            }
+        }
+        lastSnapshotNanos = now;
+    }
+
+    private void retryJoin() {
+        if (++joinAttempts > MAX_JOIN_ATTEMPTS) {
+            stats.joinFailures.increment();
+            return;
+        }
+        scheduler.schedule(() -> send(JOIN), JOIN_RETRY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(String message) {
+        if (uplink != null) {
+            uplink.submit(message.length(), () -> sendNow(message), null);
+        } else {
+            sendNow(message);
+        }
+    }
+
+    private void sendNow(String message) {
+        if (isConnected()) {
+            getRemote().sendString(message, WriteCallback.NOOP);
+        }
+    }
+}
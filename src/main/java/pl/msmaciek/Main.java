@@ -10,16 +10,35 @@ import com.hypixel.hytale.server.core.util.Config;
 import lombok.Getter;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import pl.msmaciek.api.ServeoApi;
+import pl.msmaciek.auth.VerificationManager;
+import pl.msmaciek.capture.TrafficCapture;
+import pl.msmaciek.commands.VoiceChatCaptureCommand;
+import pl.msmaciek.commands.VoiceChatClipCommand;
+import pl.msmaciek.commands.VoiceChatLatencyCommand;
 import pl.msmaciek.commands.VoiceChatReloadCommand;
+import pl.msmaciek.commands.VoiceChatReplayCommand;
+import pl.msmaciek.commands.VoiceChatStageCommand;
+import pl.msmaciek.commands.VoiceChatStatsCommand;
 import pl.msmaciek.commands.VoiceChatVerifyCommand;
+import pl.msmaciek.config.ConfigHolder;
 import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.config.VoiceChatConfigCodec;
+import pl.msmaciek.moderation.BlockList;
+import pl.msmaciek.moderation.ClipRecorder;
 import pl.msmaciek.nameplate.NameplateManager;
 import pl.msmaciek.player.PlayerTracker;
 import pl.msmaciek.server.WebServer;
+import pl.msmaciek.session.FanOutPool;
+import pl.msmaciek.session.LinkMonitor;
+import pl.msmaciek.session.SessionReaper;
 import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.stage.StageManager;
 import pl.msmaciek.ui.NearbyPlayersUI;
+import pl.msmaciek.util.VoiceChatExecutors;
+import pl.msmaciek.world.HytaleWorld;
 
 import java.awt.*;
+import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,20 +55,28 @@ public class Main extends JavaPlugin {
     public Main(@NonNullDecl JavaPluginInit init) {
         super(init);
         instance = this;
-        CONFIG = this.withConfig("HyVoiceChat", VoiceChatConfig.CODEC);
+        CONFIG = this.withConfig("HyVoiceChat", VoiceChatConfigCodec.CODEC);
+        ConfigHolder.set(CONFIG::get);
     }
 
     @Override
     protected void setup() {
         super.setup();
         CONFIG.save();
+        VoiceChatExecutors.getInstance().configure(CONFIG.get().getThreads());
 
         this.getEventRegistry().registerGlobal(AddPlayerToWorldEvent.class, this::onPlayerJoin);
 
         this.getCommandRegistry().registerCommand(new VoiceChatReloadCommand());
         this.getCommandRegistry().registerCommand(new VoiceChatVerifyCommand());
-
-        webServer = new WebServer(this.getLogger(), CONFIG.get(), CONFIG.get().getTunnel().isUseTunnel());
+        this.getCommandRegistry().registerCommand(new VoiceChatCaptureCommand());
+        this.getCommandRegistry().registerCommand(new VoiceChatReplayCommand());
+        this.getCommandRegistry().registerCommand(new VoiceChatClipCommand());
+        this.getCommandRegistry().registerCommand(new VoiceChatStatsCommand());
+        this.getCommandRegistry().registerCommand(new VoiceChatLatencyCommand());
+        this.getCommandRegistry().registerCommand(new VoiceChatStageCommand());
+
+        webServer = new WebServer((level, message) -> this.getLogger().at(level).log(message), CONFIG.get(), CONFIG.get().getTunnel().isUseTunnel());
         webServer.startAsync();
         // Initialize tunnel if enabled
         if (CONFIG.get().getTunnel().isUseTunnel()) {
@@ -62,8 +89,27 @@ public class Main extends JavaPlugin {
             }
         }
 
-        SessionManager.getInstance().startScheduler(CONFIG.get().getGeneral().getUpdateIntervalMs());
-        NameplateManager.getInstance().start();
+        VerificationManager.getInstance().setExpiryListener(SessionManager.getInstance()::closeExpiredHandshake);
+        VerificationManager.getInstance().start(
+            CONFIG.get().getGeneral().getVerificationCodeTtlSeconds() * 1000L,
+            CONFIG.get().getGeneral().getMaxPendingCodesPerIp()
+        );
+
+        BlockList.getInstance().load(Path.of(CONFIG.get().getGeneral().getBlockListFile()));
+        StageManager.getInstance().load(Path.of(CONFIG.get().getStage().getFile()));
+        FanOutPool.getInstance().start(CONFIG.get().getStage().getFanOutThreads(), CONFIG.get().getStage().getFanOutThreshold());
+
+        HytaleWorld world = new HytaleWorld();
+        SessionManager.getInstance().startScheduler(world, CONFIG.get().getGeneral().getUpdateIntervalMs());
+        NameplateManager.getInstance().start(world);
+        LinkMonitor.getInstance().start(CONFIG.get().getGeneral().getServerPingIntervalMs());
+        SessionReaper.getInstance().start();
+
+        if (CONFIG.get().getCapture().isEnabled())
+            VoiceChatCaptureCommand.start(CONFIG.get().getCapture());
+
+        if (CONFIG.get().getRecording().isEnabled())
+            ClipRecorder.getInstance().start(CONFIG.get().getRecording());
 
         this.getLogger().at(Level.INFO).log("HyVoiceChat mod initialized!");
     }
@@ -108,7 +154,7 @@ public class Main extends JavaPlugin {
         if (CONFIG.get().getGeneral().isEnableUI())
             NearbyPlayersUI.apply(player, playerRef);
 
-        NameplateManager.getInstance().removeOldNameplates(playerRef);
+        HytaleWorld.resetNameplate(playerRef);
         this.getLogger().at(Level.INFO).log("Player joined: " + player.getDisplayName());
     }
 
@@ -117,9 +163,16 @@ public class Main extends JavaPlugin {
     protected void shutdown() {
         super.shutdown();
         SessionManager.getInstance().stopScheduler();
+        VerificationManager.getInstance().stop();
         NameplateManager.getInstance().stop();
+        LinkMonitor.getInstance().stop();
+        SessionReaper.getInstance().stop();
+        FanOutPool.getInstance().stop();
+        TrafficCapture.getInstance().stop();
+        ClipRecorder.getInstance().stop();
         if (webServer != null) {
             webServer.stop();
         }
+        VoiceChatExecutors.getInstance().stop();
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package pl.msmaciek.audio;
+
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Brings every speaker to the same loudness before their audio is relayed, so quiet and loud
+ * microphones sound alike and listeners don't need a compressor per speaker.
+ * <p>
+ * Each speaker's level is a smoothed RMS of their speech: it rises quickly when they get louder
+ * and falls slowly, and frames below the gate (silence, breathing) leave it alone. The gain moving
+ * the level to the target is capped by the config and lowered for frames whose peak would clip.
+ */
+public class LoudnessNormalizer {
+    private static final LoudnessNormalizer INSTANCE = new LoudnessNormalizer();
+    private static final int SAMPLE_RATE = 48000;
+    private static final double ATTACK_SECONDS = 0.3;
+    private static final double RELEASE_SECONDS = 1.5;
+
+    private final PcmKernels kernels = PcmKernels.create();
+    private final LongAdder framesNormalized;
+    private final LongAdder framesGated;
+
+    private LoudnessNormalizer() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        framesNormalized = metrics.counter("loudness.frames");
+        framesGated = metrics.counter("loudness.frames.gated");
+        System.out.println("[VoiceChat] PCM kernels: " + kernels.describe());
+    }
+
+    public static LoudnessNormalizer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Per-speaker loudness. Only touched by the thread relaying that speaker's frames.
+     */
+    public static final class SpeakerState {
+        private double level = -1; // smoothed RMS in full scale, negative until the first speech frame
+    }
+
+    /**
+     * Normalize one frame of 16-bit little-endian PCM.
+     * @return A new array with the normalized samples
+     */
+    public byte[] process(SpeakerState state, byte[] pcm, int offset, int len, VoiceChatConfig.LoudnessConfig config) {
+        int samples = len / 2;
+        byte[] out = new byte[samples * 2];
+        if (samples == 0) return out;
+
+        double rms = Math.sqrt(kernels.sumSquares(pcm, offset, samples) / samples) / 32768.0;
+        if (rms >= dbToLinear(config.getGateDbfs())) {
+            if (state.level < 0) {
+                state.level = rms;
+            } else {
+                double seconds = (double) samples / SAMPLE_RATE;
+                double tau = rms > state.level ? ATTACK_SECONDS : RELEASE_SECONDS;
+                state.level += (rms - state.level) * (1 - Math.exp(-seconds / tau));
+            }
+        } else {
+            framesGated.increment();
+        }
+
+        double gain = 1.0;
+        if (state.level > 0) {
+            gain = dbToLinear(config.getTargetDbfs()) / state.level;
+            gain = Math.max(dbToLinear(-config.getMaxCutDb()), Math.min(dbToLinear(config.getMaxBoostDb()), gain));
+        }
+        if (gain > 1.0) {
+            int peak = kernels.peak(pcm, offset, samples);
+            if (peak > 0) gain = Math.max(1.0, Math.min(gain, Short.MAX_VALUE / (double) peak));
+        }
+
+        kernels.applyGain(pcm, offset, out, 0, samples, (float) gain);
+        framesNormalized.increment();
+        return out;
+    }
+
+    private static double dbToLinear(double db) {
+        return Math.pow(10, db / 20);
+    }
+}
@@ -0,0 +1,41 @@
+package pl.msmaciek.audio;
+
+/**
+ * Hot loops over 16-bit little-endian mono PCM.
+ * <p>
+ * {@link #create()} picks the Vector API implementation when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise.
+ */
+public interface PcmKernels {
+
+    /**
+     * Sum of the squared samples.
+     */
+    double sumSquares(byte[] pcm, int offset, int samples);
+
+    /**
+     * Largest absolute sample value.
+     */
+    int peak(byte[] pcm, int offset, int samples);
+
+    /**
+     * Multiply the samples by a gain, saturating at the int16 range, and write them to {@code dst}.
+     */
+    void applyGain(byte[] src, int srcOffset, byte[] dst, int dstOffset, int samples, float gain);
+
+    /**
+     * Short description for the startup log.
+     */
+    String describe();
+
+    static PcmKernels create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorPcmKernels();
+            } catch (LinkageError | UnsupportedOperationException e) {
+                System.err.println("[VoiceChat] Vector API unavailable, using scalar PCM kernels: " + e);
+            }
+        }
+        return new ScalarPcmKernels();
+    }
+}
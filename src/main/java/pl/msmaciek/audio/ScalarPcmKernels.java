@@ -0,0 +1,46 @@
+package pl.msmaciek.audio;
+
+/**
+ * Plain loops, used when the Vector API module is not available.
+ */
+public class ScalarPcmKernels implements PcmKernels {
+
+    @Override
+    public double sumSquares(byte[] pcm, int offset, int samples) {
+        long sum = 0;
+        for (int i = 0; i < samples; i++) {
+            int s = sample(pcm, offset + i * 2);
+            sum += (long) s * s;
+        }
+        return sum;
+    }
+
+    @Override
+    public int peak(byte[] pcm, int offset, int samples) {
+        int peak = 0;
+        for (int i = 0; i < samples; i++) {
+            peak = Math.max(peak, Math.abs(sample(pcm, offset + i * 2)));
+        }
+        return peak;
+    }
+
+    @Override
+    public void applyGain(byte[] src, int srcOffset, byte[] dst, int dstOffset, int samples, float gain) {
+        for (int i = 0; i < samples; i++) {
+            int s = (int) (sample(src, srcOffset + i * 2) * gain);
+            s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+            int p = dstOffset + i * 2;
+            dst[p] = (byte) s;
+            dst[p + 1] = (byte) (s >> 8);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "scalar";
+    }
+
+    static int sample(byte[] pcm, int p) {
+        return (short) ((pcm[p] & 0xFF) | (pcm[p + 1] << 8));
+    }
+}
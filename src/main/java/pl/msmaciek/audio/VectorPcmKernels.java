@@ -0,0 +1,97 @@
+package pl.msmaciek.audio;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * PCM loops on the incubating Vector API. Samples are widened to floats at the preferred vector width,
+ * so each step reads half as many bytes of shorts as the float vector holds; tails are done scalar.
+ * <p>
+ * Only loaded through {@link PcmKernels#create()}, after checking the module is present.
+ */
+class VectorPcmKernels implements PcmKernels {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static {
+        if (FLOATS.length() < 4) {
+            throw new UnsupportedOperationException("no SIMD support (" + FLOATS + ")");
+        }
+        SHORTS = VectorSpecies.of(short.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 2));
+    }
+
+    @Override
+    public double sumSquares(byte[] pcm, int offset, int samples) {
+        MemorySegment segment = MemorySegment.ofArray(pcm);
+        // Float lanes lose a little precision on long frames, far below what matters for a loudness estimate
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int bound = SHORTS.loopBound(samples);
+        int i = 0;
+        for (; i < bound; i += SHORTS.length()) {
+            FloatVector f = load(segment, offset + i * 2L);
+            acc = f.fma(f, acc);
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < samples; i++) {
+            int s = ScalarPcmKernels.sample(pcm, offset + i * 2);
+            sum += (double) s * s;
+        }
+        return sum;
+    }
+
+    @Override
+    public int peak(byte[] pcm, int offset, int samples) {
+        MemorySegment segment = MemorySegment.ofArray(pcm);
+        FloatVector max = FloatVector.zero(FLOATS);
+        int bound = SHORTS.loopBound(samples);
+        int i = 0;
+        for (; i < bound; i += SHORTS.length()) {
+            max = max.max(load(segment, offset + i * 2L).abs());
+        }
+
+        int peak = (int) max.reduceLanes(VectorOperators.MAX);
+        for (; i < samples; i++) {
+            peak = Math.max(peak, Math.abs(ScalarPcmKernels.sample(pcm, offset + i * 2)));
+        }
+        return peak;
+    }
+
+    @Override
+    public void applyGain(byte[] src, int srcOffset, byte[] dst, int dstOffset, int samples, float gain) {
+        MemorySegment in = MemorySegment.ofArray(src);
+        MemorySegment out = MemorySegment.ofArray(dst);
+        int bound = SHORTS.loopBound(samples);
+        int i = 0;
+        for (; i < bound; i += SHORTS.length()) {
+            FloatVector f = load(in, srcOffset + i * 2L).mul(gain).max(Short.MIN_VALUE).min(Short.MAX_VALUE);
+            ((ShortVector) f.convertShape(VectorOperators.F2S, SHORTS, 0))
+                    .intoMemorySegment(out, dstOffset + i * 2L, ORDER);
+        }
+
+        for (; i < samples; i++) {
+            int s = (int) (ScalarPcmKernels.sample(src, srcOffset + i * 2) * gain);
+            s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+            int p = dstOffset + i * 2;
+            dst[p] = (byte) s;
+            dst[p + 1] = (byte) (s >> 8);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "vector (" + FLOATS.length() + " lanes)";
+    }
+
+    private static FloatVector load(MemorySegment segment, long byteOffset) {
+        return (FloatVector) ShortVector.fromMemorySegment(SHORTS, segment, byteOffset, ORDER)
+                .convertShape(VectorOperators.S2F, FLOATS, 0);
+    }
+}
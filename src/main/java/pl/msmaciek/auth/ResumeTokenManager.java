@@ -0,0 +1,144 @@
+package pl.msmaciek.auth;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and validates signed, short-lived tokens that let a reconnecting client
+ * reclaim its voice session without typing a new verification code.
+ * <p>
+ * Tokens are single-use: each successful resume consumes the token and a fresh one is issued.
+ */
+public class ResumeTokenManager {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    // Declared after RANDOM, which the constructor uses
+    private static final ResumeTokenManager INSTANCE = new ResumeTokenManager();
+
+    private final byte[] secret = new byte[32];
+
+    // odapId -> the only token currently valid for that session
+    private final Map<Integer, Issued> activeTokens = new ConcurrentHashMap<>();
+
+    private ResumeTokenManager() {
+        RANDOM.nextBytes(secret);
+    }
+
+    public static ResumeTokenManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Issue a token for a joined session, replacing any previous token of that session.
+     */
+    public String issue(int odapId, UUID playerUuid, String playerName, long ttlMs) {
+        long now = System.currentTimeMillis();
+        long nonce = RANDOM.nextLong();
+        long expiresAt = now + ttlMs;
+
+        // Joins are rare compared to the token lifetime, so sweeping here keeps the map small
+        activeTokens.values().removeIf(issued -> issued.expiresAt < now);
+        activeTokens.put(odapId, new Issued(nonce, expiresAt));
+
+        String payload = odapId + "|" + playerUuid + "|" + expiresAt + "|" + nonce + "|" + playerName;
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * Validate and consume a token.
+     * @return The claims of the token, or null if it is malformed, forged, expired or already used
+     */
+    public Claims consume(String token) {
+        Claims claims = verify(token);
+        return claims != null && consume(claims) ? claims : null;
+    }
+
+    /**
+     * Validate a token without using it up, so a resume that fails its other checks keeps it.
+     * @return The claims of the token, or null if it is malformed, forged, expired or no longer valid
+     */
+    public Claims verify(String token) {
+        if (token == null) return null;
+
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+
+        String encodedPayload = token.substring(0, dot);
+        try {
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) return null;
+
+            String[] parts = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split("\\|", 5);
+            if (parts.length != 5) return null;
+
+            int odapId = Integer.parseInt(parts[0]);
+            UUID playerUuid = UUID.fromString(parts[1]);
+            long expiresAt = Long.parseLong(parts[2]);
+            long nonce = Long.parseLong(parts[3]);
+
+            if (System.currentTimeMillis() > expiresAt) return null;
+
+            Issued issued = activeTokens.get(odapId);
+            if (issued == null || issued.nonce != nonce) return null;
+
+            return new Claims(odapId, playerUuid, parts[4], nonce);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Use up a verified token.
+     * @return Whether the token was still valid; only one caller gets true
+     */
+    public boolean consume(Claims claims) {
+        // Only the latest token of a session is accepted, and only once
+        Issued issued = activeTokens.get(claims.odapId);
+        return issued != null && issued.nonce == claims.nonce && issued.expiresAt >= System.currentTimeMillis()
+                && activeTokens.remove(claims.odapId, issued);
+    }
+
+    /**
+     * Revoke the token of a session that ended for good (kicked, player left).
+     */
+    public void revoke(int odapId) {
+        activeTokens.remove(odapId);
+    }
+
+    private byte[] sign(String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+
+    private record Issued(long nonce, long expiresAt) {}
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Claims {
+        private final int odapId;
+        private final UUID playerUuid;
+        private final String playerName;
+        @Getter(AccessLevel.NONE)
+        private final long nonce;
+    }
+}
@@ -1,22 +1,44 @@
 package pl.msmaciek.auth;
 
+import pl.msmaciek.util.HashedTimingWheel;
+import pl.msmaciek.util.VoiceChatExecutors;
+
 import java.security.SecureRandom;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Issues verification codes to WebSocket connections and records which player verified them in game.
+ * <p>
+ * Each code is a single {@link PendingCode} record; all reads are lock-free.
+ * Codes expire after a TTL via a hashed timing wheel, and the number of outstanding codes per source IP is capped.
+ */
 public class VerificationManager {
     private static final VerificationManager INSTANCE = new VerificationManager();
     private static final String CODE_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
     private static final int CODE_LENGTH = 6;
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final long WHEEL_TICK_MS = 1000;
+    private static final int WHEEL_BUCKETS = 512;
+
+    private final Map<String, PendingCode> codes = new ConcurrentHashMap<>();
+    private final Map<String, PendingCode> sessionCodes = new ConcurrentHashMap<>();
+    // Outstanding codes per limited source IP; entries are created and removed atomically with their count
+    private final Map<String, Integer> codesPerIp = new ConcurrentHashMap<>();
 
-    private final Map<String, String> sessionToCode = new ConcurrentHashMap<>();
-    private final Map<String, String> codeToSession = new ConcurrentHashMap<>();
-    private final Map<String, UUID> verifiedCodes = new ConcurrentHashMap<>();
-    private final Map<String, String> verifiedUsernames = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<PendingCode> expiryWheel = new HashedTimingWheel<>(WHEEL_BUCKETS, WHEEL_TICK_MS, this::expire);
+    private ScheduledFuture<?> wheelTick;
 
-    private final Object lock = new Object();
+    private volatile long codeTtlMs = TimeUnit.MINUTES.toMillis(10);
+    private volatile int maxCodesPerIp = 5;
+    private volatile Consumer<String> expiryListener = sessionId -> {};
+    private volatile Consumer<String> issueListener = code -> {};
 
     private VerificationManager() {}
 
@@ -24,76 +46,164 @@ public class VerificationManager {
         return INSTANCE;
     }
 
-    public String getOrCreateCode(String sessionId) {
-        synchronized (lock) {
-            String existingCode = sessionToCode.get(sessionId);
-            if (existingCode != null) {
-                return existingCode;
-            }
-
-            String code = generateCode();
-            while (codeToSession.containsKey(code)) {
-                code = generateCode();
-            }
+    /**
+     * Start the expiry timer.
+     * @param codeTtlMs How long a code stays valid before it has to be joined with
+     * @param maxCodesPerIp Maximum outstanding codes per source IP, 0 for no limit
+     */
+    public synchronized void start(long codeTtlMs, int maxCodesPerIp) {
+        configure(codeTtlMs, maxCodesPerIp);
+        if (wheelTick != null) return;
+        wheelTick = VoiceChatExecutors.getInstance().scheduler().scheduleAtFixedRate(expiryWheel::advance, WHEEL_TICK_MS, WHEEL_TICK_MS, TimeUnit.MILLISECONDS);
+    }
 
-            sessionToCode.put(sessionId, code);
-            codeToSession.put(code, sessionId);
-            return code;
+    public synchronized void stop() {
+        if (wheelTick != null) {
+            wheelTick.cancel(false);
+            wheelTick = null;
         }
     }
 
-    public boolean verify(String code, UUID playerUuid, String playerName) {
-        synchronized (lock) {
-            code = code.toUpperCase();
+    /**
+     * Update TTL and per-IP cap; applies to codes issued from now on.
+     */
+    public void configure(long codeTtlMs, int maxCodesPerIp) {
+        this.codeTtlMs = codeTtlMs;
+        this.maxCodesPerIp = maxCodesPerIp;
+    }
 
-            String session = codeToSession.get(code);
-            if (session == null) {
-                return false;
-            }
+    /**
+     * Set the callback invoked with the connection session id whenever a code expires unused.
+     */
+    public void setExpiryListener(Consumer<String> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    /**
+     * Set the callback invoked with every newly issued code.
+     * Lets the standalone server verify codes automatically for load tests.
+     */
+    public void setIssueListener(Consumer<String> issueListener) {
+        this.issueListener = issueListener;
+    }
 
-            verifiedCodes.put(code, playerUuid);
-            verifiedUsernames.put(code, playerName);
-            return true;
+    /**
+     * Get the code of a connection, creating one if needed.
+     * @param sessionId The connection session id
+     * @param sourceIp Client IP used for the per-IP cap, or null if unknown (not limited)
+     * @return The code, or null if the source IP already has too many outstanding codes
+     */
+    public String getOrCreateCode(String sessionId, String sourceIp) {
+        PendingCode existing = sessionCodes.get(sessionId);
+        if (existing != null) {
+            return existing.code;
         }
+
+        int max = maxCodesPerIp;
+        boolean limited = sourceIp != null && max > 0;
+        if (limited && !reserveIp(sourceIp, max)) {
+            return null;
+        }
+
+        PendingCode record;
+        do {
+            record = new PendingCode(generateCode(), sessionId, limited ? sourceIp : null);
+        } while (codes.putIfAbsent(record.code, record) != null);
+
+        existing = sessionCodes.putIfAbsent(sessionId, record);
+        if (existing != null) {
+            // Lost a race with another call for the same connection
+            remove(record);
+            return existing.code;
+        }
+
+        expiryWheel.schedule(record, codeTtlMs);
+        issueListener.accept(record.code);
+        return record.code;
+    }
+
+    /**
+     * Mark a code as verified by an in-game player.
+     * @return false if the code doesn't exist or was already verified
+     */
+    public boolean verify(String code, UUID playerUuid, String playerName) {
+        PendingCode record = codes.get(code.toUpperCase());
+        return record != null && record.verification.compareAndSet(null, new Verification(playerUuid, playerName));
     }
 
     public UUID getVerifiedPlayer(String code) {
-        return verifiedCodes.get(code.toUpperCase());
+        Verification verification = getVerification(code);
+        return verification != null ? verification.playerUuid : null;
     }
 
     public String getVerifiedUsername(String code) {
-        return verifiedUsernames.get(code.toUpperCase());
+        Verification verification = getVerification(code);
+        return verification != null ? verification.playerName : null;
     }
 
     public String getCodeForSession(String sessionId) {
-        return sessionToCode.get(sessionId);
+        PendingCode record = sessionCodes.get(sessionId);
+        return record != null ? record.code : null;
+    }
+
+    /**
+     * Get the id of the connection waiting for the given code.
+     */
+    public String getSessionForCode(String code) {
+        PendingCode record = codes.get(code.toUpperCase());
+        return record != null ? record.sessionId : null;
     }
 
     public boolean isVerified(String code) {
-        return verifiedCodes.containsKey(code.toUpperCase());
+        return getVerification(code) != null;
     }
 
     public void consumeCode(String code) {
-        synchronized (lock) {
-            code = code.toUpperCase();
-            String session = codeToSession.remove(code);
-            if (session != null) {
-                sessionToCode.remove(session);
-            }
-            verifiedCodes.remove(code);
-            verifiedUsernames.remove(code);
-        }
+        PendingCode record = codes.get(code.toUpperCase());
+        if (record != null) remove(record);
     }
 
     public void invalidateForSession(String sessionId) {
-        synchronized (lock) {
-            String code = sessionToCode.remove(sessionId);
-            if (code != null) {
-                codeToSession.remove(code);
-                verifiedCodes.remove(code);
-                verifiedUsernames.remove(code);
-            }
+        PendingCode record = sessionCodes.get(sessionId);
+        if (record != null) remove(record);
+    }
+
+    private Verification getVerification(String code) {
+        PendingCode record = codes.get(code.toUpperCase());
+        return record != null ? record.verification.get() : null;
+    }
+
+    private void expire(PendingCode record) {
+        if (remove(record)) {
+            expiryListener.accept(record.sessionId);
+        }
+    }
+
+    /**
+     * Remove a record from both indexes and release its IP slot, exactly once.
+     */
+    private boolean remove(PendingCode record) {
+        if (!record.removed.compareAndSet(false, true)) return false;
+
+        codes.remove(record.code, record);
+        sessionCodes.remove(record.sessionId, record);
+        if (record.sourceIp != null) {
+            codesPerIp.computeIfPresent(record.sourceIp, (ip, count) -> count > 1 ? count - 1 : null);
         }
+        return true;
+    }
+
+    /**
+     * Count one more code for the IP, unless it already has the maximum. Check and increment are one atomic step.
+     */
+    private boolean reserveIp(String sourceIp, int max) {
+        boolean[] reserved = new boolean[1];
+        codesPerIp.compute(sourceIp, (ip, count) -> {
+            int current = count != null ? count : 0;
+            reserved[0] = current < max;
+            return reserved[0] ? current + 1 : count;
+        });
+        return reserved[0];
     }
 
     private String generateCode() {
@@ -103,4 +213,20 @@ public class VerificationManager {
         }
         return sb.toString();
     }
+
+    private record Verification(UUID playerUuid, String playerName) {}
+
+    private static class PendingCode {
+        private final String code;
+        private final String sessionId;
+        private final String sourceIp; // null when the source IP is not limited
+        private final AtomicReference<Verification> verification = new AtomicReference<>();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private PendingCode(String code, String sessionId, String sourceIp) {
+            this.code = code;
+            this.sessionId = sessionId;
+            this.sourceIp = sourceIp;
+        }
+    }
 }
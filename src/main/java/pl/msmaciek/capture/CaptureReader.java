@@ -0,0 +1,99 @@
+package pl.msmaciek.capture;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the segments of a capture directory back in write order.
+ */
+public class CaptureReader {
+    private final Path directory;
+
+    public CaptureReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Decode every record of the capture and pass it to the consumer.
+     * @return Number of records read
+     */
+    public long forEach(Consumer<CaptureRecord> consumer) throws IOException {
+        long count = 0;
+        for (Path segment : listSegments()) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= 4) {
+                    int length = buffer.getInt();
+                    if (length <= 0) break; // end of segment
+
+                    int end = buffer.position() + length;
+                    consumer.accept(readRecord(buffer));
+                    buffer.position(end);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Capture directory not found: " + directory);
+        }
+
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(CaptureWriter.SEGMENT_PREFIX) && name.endsWith(CaptureWriter.SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private CaptureRecord readRecord(MappedByteBuffer buffer) {
+        CaptureRecordType type = CaptureRecordType.fromId(buffer.get());
+        long time = buffer.getLong();
+
+        return switch (type) {
+            case SESSION_OPEN, SESSION_CLOSE -> CaptureRecord.session(type, time, buffer.getInt());
+            case SESSION_JOIN -> {
+                int odapId = buffer.getInt();
+                UUID playerUuid = readUuid(buffer);
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                yield CaptureRecord.join(time, odapId, playerUuid, new String(name, StandardCharsets.UTF_8));
+            }
+            case AUDIO -> {
+                int odapId = buffer.getInt();
+                byte[] audio = new byte[buffer.getInt()];
+                buffer.get(audio);
+                yield CaptureRecord.audio(time, odapId, audio);
+            }
+            case POSITION -> {
+                UUID playerUuid = readUuid(buffer);
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                double z = buffer.getDouble();
+                float yaw = buffer.getFloat();
+                UUID worldUuid = buffer.get() != 0 ? readUuid(buffer) : null;
+                yield CaptureRecord.position(time, playerUuid, x, y, z, yaw, worldUuid);
+            }
+            case TICK -> CaptureRecord.tick(time);
+        };
+    }
+
+    private static UUID readUuid(MappedByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
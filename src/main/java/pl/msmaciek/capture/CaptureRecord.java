@@ -0,0 +1,46 @@
+package pl.msmaciek.capture;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * A single decoded capture record. Only the fields relevant to the record type are set.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CaptureRecord {
+    private final CaptureRecordType type;
+    private final long timeNanos; // nanoseconds since the capture started
+
+    private final int odapId;
+    private final UUID playerUuid;
+    private final String name;
+    private final byte[] audio;
+
+    private final double x, y, z;
+    private final float yaw;
+    private final UUID worldUuid;
+
+    static CaptureRecord session(CaptureRecordType type, long timeNanos, int odapId) {
+        return new CaptureRecord(type, timeNanos, odapId, null, null, null, 0, 0, 0, 0f, null);
+    }
+
+    static CaptureRecord join(long timeNanos, int odapId, UUID playerUuid, String name) {
+        return new CaptureRecord(CaptureRecordType.SESSION_JOIN, timeNanos, odapId, playerUuid, name, null, 0, 0, 0, 0f, null);
+    }
+
+    static CaptureRecord audio(long timeNanos, int odapId, byte[] audio) {
+        return new CaptureRecord(CaptureRecordType.AUDIO, timeNanos, odapId, null, null, audio, 0, 0, 0, 0f, null);
+    }
+
+    static CaptureRecord position(long timeNanos, UUID playerUuid, double x, double y, double z, float yaw, UUID worldUuid) {
+        return new CaptureRecord(CaptureRecordType.POSITION, timeNanos, 0, playerUuid, null, null, x, y, z, yaw, worldUuid);
+    }
+
+    static CaptureRecord tick(long timeNanos) {
+        return new CaptureRecord(CaptureRecordType.TICK, timeNanos, 0, null, null, null, 0, 0, 0, 0f, null);
+    }
+}
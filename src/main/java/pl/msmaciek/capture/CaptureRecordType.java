@@ -0,0 +1,38 @@
+package pl.msmaciek.capture;
+
+/**
+ * Kinds of records stored in a traffic capture.
+ */
+public enum CaptureRecordType {
+    SESSION_OPEN(1),
+    SESSION_JOIN(2),
+    SESSION_CLOSE(3),
+    AUDIO(4),
+    POSITION(5),
+    TICK(6);
+
+    private static final CaptureRecordType[] BY_ID = new CaptureRecordType[7];
+
+    static {
+        for (CaptureRecordType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final byte id;
+
+    CaptureRecordType(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte id() {
+        return id;
+    }
+
+    public static CaptureRecordType fromId(byte id) {
+        if (id <= 0 || id >= BY_ID.length || BY_ID[id] == null) {
+            throw new IllegalArgumentException("Unknown capture record type: " + id);
+        }
+        return BY_ID[id];
+    }
+}
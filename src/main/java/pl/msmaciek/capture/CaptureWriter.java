@@ -0,0 +1,144 @@
+package pl.msmaciek.capture;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Appends capture records to memory-mapped segment files, rotating to a new segment when the current one is full.
+ * <p>
+ * Record layout: [int length][byte type][long timeNanos][payload], where length covers everything after itself.
+ * A zero length marks the end of a segment (mapped files are zero-filled).
+ * <p>
+ * Not thread-safe: only the capture's writer thread touches it. Record times are taken by the caller
+ * when the traffic happened, not when the record reaches the file.
+ */
+class CaptureWriter implements AutoCloseable {
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".cap";
+
+    private static final int HEADER_SIZE = 1 + 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long startNanos = System.nanoTime();
+
+    private int segmentIndex = -1;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long bytesWritten;
+    private long recordsWritten;
+
+    CaptureWriter(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        rotate();
+    }
+
+    void writeSession(long timeNanos, CaptureRecordType type, int odapId) throws IOException {
+        begin(timeNanos, type, 4);
+        buffer.putInt(odapId);
+    }
+
+    void writeJoin(long timeNanos, int odapId, UUID playerUuid, String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        begin(timeNanos, CaptureRecordType.SESSION_JOIN, 4 + 16 + 2 + nameBytes.length);
+        buffer.putInt(odapId);
+        putUuid(playerUuid);
+        buffer.putShort((short) nameBytes.length);
+        buffer.put(nameBytes);
+    }
+
+    void writeAudio(long timeNanos, int odapId, byte[] payload, int offset, int len) throws IOException {
+        begin(timeNanos, CaptureRecordType.AUDIO, 4 + 4 + len);
+        buffer.putInt(odapId);
+        buffer.putInt(len);
+        buffer.put(payload, offset, len);
+    }
+
+    void writePosition(long timeNanos, UUID playerUuid, double x, double y, double z, float yaw, UUID worldUuid) throws IOException {
+        begin(timeNanos, CaptureRecordType.POSITION, 16 + 8 * 3 + 4 + 1 + (worldUuid != null ? 16 : 0));
+        putUuid(playerUuid);
+        buffer.putDouble(x);
+        buffer.putDouble(y);
+        buffer.putDouble(z);
+        buffer.putFloat(yaw);
+        buffer.put((byte) (worldUuid != null ? 1 : 0));
+        if (worldUuid != null) putUuid(worldUuid);
+    }
+
+    void writeTick(long timeNanos) throws IOException {
+        begin(timeNanos, CaptureRecordType.TICK, 0);
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    int getSegmentCount() {
+        return segmentIndex + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Reserve space for a record and write its header, rotating the segment if it doesn't fit.
+     */
+    private void begin(long timeNanos, CaptureRecordType type, int payloadSize) throws IOException {
+        if (buffer == null) throw new IOException("Capture writer is closed");
+
+        int length = HEADER_SIZE + payloadSize;
+        // Always keep 4 bytes free for the zero end-of-segment marker
+        if (4 + length + 4 > segmentSize) {
+            throw new IOException("Record of " + length + " bytes does not fit in a " + segmentSize + " byte segment");
+        }
+        if (buffer.remaining() < 4 + length + 4) {
+            rotate();
+        }
+
+        buffer.putInt(length);
+        buffer.put(type.id());
+        buffer.putLong(timeNanos - startNanos);
+        bytesWritten += 4 + length;
+        recordsWritten++;
+    }
+
+    private void rotate() throws IOException {
+        if (buffer != null) buffer.force();
+        if (channel != null) channel.close();
+
+        segmentIndex++;
+        Path segment = directory.resolve(segmentName(segmentIndex));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void putUuid(UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    static String segmentName(int index) {
+        return SEGMENT_PREFIX + String.format("%05d", index) + SEGMENT_SUFFIX;
+    }
+}
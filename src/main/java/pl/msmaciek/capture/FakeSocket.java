@@ -0,0 +1,115 @@
+package pl.msmaciek.capture;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for a Jetty WebSocket session that counts outbound traffic instead of sending it.
+ * Built with dynamic proxies so it stays independent of the exact Jetty API surface.
+ */
+public class FakeSocket {
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 0);
+
+    private final AtomicLong textMessages = new AtomicLong();
+    private final AtomicLong binaryMessages = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile boolean open = true;
+
+    private final RemoteEndpoint remote = proxy(RemoteEndpoint.class, this::handleRemote);
+    private final Session session = proxy(Session.class, this::handleSession);
+
+    public Session session() {
+        return session;
+    }
+
+    public void close() {
+        open = false;
+    }
+
+    public long getTextMessages() {
+        return textMessages.get();
+    }
+
+    public long getBinaryMessages() {
+        return binaryMessages.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    private Object handleSession(Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "isOpen" -> open;
+            case "getRemote" -> remote;
+            case "getRemoteAddress", "getLocalAddress" -> ADDRESS;
+            case "close", "disconnect" -> {
+                open = false;
+                yield null;
+            }
+            default -> null;
+        };
+    }
+
+    private Object handleRemote(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "sendString", "sendPartialString" -> {
+                textMessages.incrementAndGet();
+                bytesSent.addAndGet(((String) args[0]).length());
+            }
+            case "sendBytes", "sendPartialBytes" -> {
+                binaryMessages.incrementAndGet();
+                bytesSent.addAndGet(((ByteBuffer) args[0]).remaining());
+            }
+            case "getRemoteAddress" -> {
+                return ADDRESS;
+            }
+        }
+        // Async sends complete immediately
+        if (args != null && args[args.length - 1] instanceof WriteCallback callback) {
+            callback.writeSuccess();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "equals" -> self == args[0];
+                    default -> type.getSimpleName() + "@fake";
+                };
+            }
+            return defaultFor(method.getReturnType(), handler.handle(method, args));
+        });
+    }
+
+    /**
+     * Proxies must not return null for primitive return types.
+     */
+    private static Object defaultFor(Class<?> returnType, Object value) {
+        if (value != null || !returnType.isPrimitive() || returnType == void.class) return value;
+        if (returnType == boolean.class) return false;
+        if (returnType == long.class) return 0L;
+        if (returnType == int.class) return 0;
+        if (returnType == double.class) return 0d;
+        if (returnType == float.class) return 0f;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == byte.class) return (byte) 0;
+        return '\0';
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args);
+    }
+}
@@ -0,0 +1,185 @@
+package pl.msmaciek.capture;
+
+import lombok.Getter;
+import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.session.AudioRelay;
+import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.session.UserSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds a traffic capture back through the audio relay and snapshot pipeline using fake sockets.
+ * <p>
+ * Player and world UUIDs are remapped so replayed sessions never hear, or are heard by, live players.
+ * Replayed sessions go through the live {@link SessionManager}, so a replay only starts while nobody is
+ * connected to voice chat, and new connections are turned away until it ends (see {@link #isRunning()}).
+ */
+public class ReplayDriver {
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private final Path directory;
+    private final double speed;
+
+    private final Map<Integer, Replayed> replayedSessions = new HashMap<>();
+    private final Map<UUID, UUID> uuidMapping = new HashMap<>();
+    private final Set<UUID> replayedPlayers = new HashSet<>();
+    private final Result result = new Result();
+
+    private long startNanos;
+
+    /**
+     * @param directory Capture directory written by {@link TrafficCapture}
+     * @param speed Playback speed multiplier (1.0 = real time), or 0 to replay as fast as possible
+     */
+    public ReplayDriver(Path directory, double speed) {
+        this.directory = directory;
+        this.speed = speed;
+    }
+
+    /**
+     * Whether a replay is feeding the live session pipeline right now.
+     */
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    /**
+     * @throws IllegalStateException if another replay is running or real clients are connected
+     */
+    public Result run() throws IOException {
+        if (!RUNNING.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another replay is running");
+        }
+        SessionManager sessions = SessionManager.getInstance();
+        if (!sessions.getAll().isEmpty() || !sessions.getStaged().isEmpty()) {
+            RUNNING.set(false);
+            throw new IllegalStateException("Players are connected to voice chat; replay only runs on an idle server");
+        }
+
+        startNanos = System.nanoTime();
+        try {
+            result.records = new CaptureReader(directory).forEach(this::apply);
+        } finally {
+            for (Replayed replayed : replayedSessions.values()) {
+                closeSession(replayed);
+            }
+            replayedSessions.clear();
+            for (UUID uuid : replayedPlayers) {
+                PlayerTracker.getInstance().playerLeft(uuid);
+            }
+            replayedPlayers.clear();
+            RUNNING.set(false);
+        }
+        result.wallTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    private void apply(CaptureRecord record) {
+        pace(record.getTimeNanos());
+
+        switch (record.getType()) {
+            case SESSION_OPEN -> {
+                FakeSocket socket = new FakeSocket();
+                SessionManager sessions = SessionManager.getInstance();
+                UserSession session = new UserSession(sessions.nextId(), socket.session(), "replay-" + UUID.randomUUID());
+                sessions.add(session);
+                replayedSessions.put(record.getOdapId(), new Replayed(session, socket));
+                result.sessions++;
+            }
+            case SESSION_JOIN -> {
+                Replayed replayed = replayedSessions.get(record.getOdapId());
+                if (replayed == null) return;
+                replayed.session.setName(record.getName());
+                SessionManager.getInstance().linkToPlayer(replayed.session, remap(record.getPlayerUuid()));
+            }
+            case SESSION_CLOSE -> {
+                Replayed replayed = replayedSessions.remove(record.getOdapId());
+                if (replayed != null) closeSession(replayed);
+            }
+            case AUDIO -> {
+                Replayed replayed = replayedSessions.get(record.getOdapId());
+                if (replayed == null) return;
+                byte[] audio = record.getAudio();
+                AudioRelay.getInstance().relay(replayed.session, audio, 0, audio.length);
+                result.audioFrames++;
+            }
+            case POSITION -> {
+                UUID playerUuid = remap(record.getPlayerUuid());
+                UUID worldUuid = record.getWorldUuid() != null ? remap(record.getWorldUuid()) : null;
+                replayedPlayers.add(playerUuid);
+                PlayerTracker.getInstance().updatePosition(playerUuid, record.getX(), record.getY(), record.getZ(), record.getYaw(), worldUuid);
+                result.positions++;
+            }
+            case TICK -> {
+                SessionManager.getInstance().broadcastPlayerSnapshot();
+                result.ticks++;
+            }
+        }
+    }
+
+    /**
+     * Sleep until the record's capture time is reached at the configured speed.
+     */
+    private void pace(long recordNanos) {
+        if (speed <= 0) return;
+
+        long dueNanos = startNanos + (long) (recordNanos / speed);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos <= 0) return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", e);
+        }
+    }
+
+    private UUID remap(UUID captured) {
+        return uuidMapping.computeIfAbsent(captured,
+                uuid -> UUID.nameUUIDFromBytes(("replay:" + uuid).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void closeSession(Replayed replayed) {
+        replayed.socket.close();
+        SessionManager.getInstance().remove(replayed.session.getOdapId());
+        result.textMessagesSent += replayed.socket.getTextMessages();
+        result.binaryMessagesSent += replayed.socket.getBinaryMessages();
+        result.bytesSent += replayed.socket.getBytesSent();
+    }
+
+    private record Replayed(UserSession session, FakeSocket socket) {}
+
+    /**
+     * Totals gathered while replaying a capture.
+     */
+    @Getter
+    public static class Result {
+        private long records;
+        private long sessions;
+        private long audioFrames;
+        private long positions;
+        private long ticks;
+        private long textMessagesSent;
+        private long binaryMessagesSent;
+        private long bytesSent;
+        private long wallTimeMs;
+
+        @Override
+        public String toString() {
+            return records + " records (" + sessions + " sessions, " + audioFrames + " audio frames, "
+                    + positions + " positions, " + ticks + " ticks) replayed in " + wallTimeMs + "ms; delivered "
+                    + textMessagesSent + " text / " + binaryMessagesSent + " binary messages, " + bytesSent + " bytes";
+        }
+    }
+}
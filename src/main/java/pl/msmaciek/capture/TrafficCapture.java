@@ -0,0 +1,188 @@
+package pl.msmaciek.capture;
+
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records voice traffic (audio frames, position ticks and session lifecycle) for later replay.
+ * All recording methods are no-ops while capture is inactive.
+ * <p>
+ * Recording only queues the record; a dedicated thread writes it, so segment rotation and flushes
+ * never block the relay or the update tick. Audio, position and tick records beyond the queue capacity are
+ * dropped and counted. Session lifecycle records are never dropped, as replaying frames of a session that
+ * never joined or never closed would diverge from the recording; they are rare enough to queue unbounded.
+ */
+public class TrafficCapture {
+    private static final TrafficCapture INSTANCE = new TrafficCapture();
+    private static final DateTimeFormatter DIR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int QUEUE_CAPACITY = 16384;
+
+    private final AtomicReference<Recorder> recorder = new AtomicReference<>();
+    private final LongAdder dropped = VoiceChatMetrics.getInstance().counter("capture.records.dropped");
+    private volatile Path directory;
+
+    private TrafficCapture() {}
+
+    public static TrafficCapture getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start a new capture in a timestamped subdirectory of the given base directory.
+     * @return The directory the capture is written to
+     */
+    public synchronized Path start(Path baseDirectory, int segmentSizeBytes) throws IOException {
+        if (recorder.get() != null) return directory;
+
+        Path dir = baseDirectory.resolve("capture-" + LocalDateTime.now().format(DIR_FORMAT));
+        Recorder started = new Recorder(new CaptureWriter(dir, segmentSizeBytes));
+        directory = dir;
+        recorder.set(started);
+        started.thread.start();
+        System.out.println("[VoiceChat] Traffic capture started: " + dir.toAbsolutePath());
+        return dir;
+    }
+
+    /**
+     * Stop the running capture, writing out what is queued and flushing the current segment.
+     */
+    public synchronized void stop() {
+        Recorder r = recorder.getAndSet(null);
+        if (r == null) return;
+
+        r.stopping = true;
+        try {
+            r.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isActive() {
+        return recorder.get() != null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void sessionOpened(int odapId) {
+        long now = System.nanoTime();
+        submitLifecycle(w -> w.writeSession(now, CaptureRecordType.SESSION_OPEN, odapId));
+    }
+
+    public void sessionJoined(int odapId, UUID playerUuid, String name) {
+        long now = System.nanoTime();
+        submitLifecycle(w -> w.writeJoin(now, odapId, playerUuid, name));
+    }
+
+    public void sessionClosed(int odapId) {
+        long now = System.nanoTime();
+        submitLifecycle(w -> w.writeSession(now, CaptureRecordType.SESSION_CLOSE, odapId));
+    }
+
+    public void audioFrame(int odapId, byte[] payload, int offset, int len) {
+        if (recorder.get() == null) return;
+        long now = System.nanoTime();
+        // The caller's buffer is reused once it returns
+        byte[] copy = Arrays.copyOfRange(payload, offset, offset + len);
+        submit(w -> w.writeAudio(now, odapId, copy, 0, len));
+    }
+
+    public void position(UUID playerUuid, double x, double y, double z, float yaw, UUID worldUuid) {
+        if (recorder.get() == null) return;
+        long now = System.nanoTime();
+        submit(w -> w.writePosition(now, playerUuid, x, y, z, yaw, worldUuid));
+    }
+
+    /**
+     * Mark the end of a position update tick (replay broadcasts a snapshot here).
+     */
+    public void tick() {
+        if (recorder.get() == null) return;
+        long now = System.nanoTime();
+        submit(w -> w.writeTick(now));
+    }
+
+    private void submit(Record record) {
+        Recorder r = recorder.get();
+        if (r == null) return;
+        if (r.droppable.incrementAndGet() > QUEUE_CAPACITY) {
+            r.droppable.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        r.queue.add(new Queued(record, true));
+    }
+
+    private void submitLifecycle(Record record) {
+        Recorder r = recorder.get();
+        if (r != null) r.queue.add(new Queued(record, false));
+    }
+
+    @FunctionalInterface
+    private interface Record {
+        void writeTo(CaptureWriter writer) throws IOException;
+    }
+
+    private record Queued(Record record, boolean droppable) {}
+
+    /**
+     * A running capture: its writer and the thread that owns it.
+     */
+    private final class Recorder implements Runnable {
+        private final CaptureWriter writer;
+        // One queue keeps lifecycle records in order with the frames around them; only droppable ones are capped
+        private final BlockingQueue<Queued> queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger droppable = new AtomicInteger();
+        private final Thread thread;
+        private volatile boolean stopping;
+
+        private Recorder(CaptureWriter writer) {
+            this.writer = writer;
+            this.thread = new Thread(this, "VoiceChat-Capture");
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopping || !queue.isEmpty()) {
+                    Queued queued = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (queued == null) continue;
+                    if (queued.droppable) droppable.decrementAndGet();
+                    queued.record.writeTo(writer);
+                }
+            } catch (IOException e) {
+                System.err.println("Traffic capture error, stopping capture: " + e.getMessage());
+                recorder.compareAndSet(this, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                writer.close();
+                System.out.println("[VoiceChat] Traffic capture stopped: " + writer.getRecordsWritten() + " records, "
+                        + writer.getBytesWritten() + " bytes in " + writer.getSegmentCount() + " segment(s)");
+            } catch (IOException e) {
+                System.err.println("Error closing traffic capture: " + e.getMessage());
+            }
+        }
+    }
+}
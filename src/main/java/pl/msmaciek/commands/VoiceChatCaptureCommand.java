@@ -0,0 +1,77 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import pl.msmaciek.Main;
+import pl.msmaciek.capture.TrafficCapture;
+import pl.msmaciek.config.VoiceChatConfig;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Console-only command to start or stop capturing voice traffic.
+ * Usage: /voicechat-capture <start|stop>
+ */
+public class VoiceChatCaptureCommand extends AbstractAsyncCommand {
+
+    private static final Message CONSOLE_ONLY = Message.raw("[VoiceChat] This command can only be used from the console.").color(Color.RED);
+
+    private final RequiredArg<String> actionArg;
+
+    public VoiceChatCaptureCommand() {
+        super("voicechat-capture", "Starts or stops capturing voice traffic for replay (console only)");
+        this.addAliases("vccapture", "vc-capture");
+        this.actionArg = this.withRequiredArg("action", "start or stop", ArgTypes.STRING);
+    }
+
+    @NonNullDecl
+    @Override
+    protected CompletableFuture<Void> executeAsync(CommandContext commandContext) {
+        CommandSender sender = commandContext.sender();
+
+        if (sender instanceof Player player) {
+            player.sendMessage(CONSOLE_ONLY);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String action = commandContext.get(this.actionArg);
+        TrafficCapture capture = TrafficCapture.getInstance();
+
+        if ("stop".equalsIgnoreCase(action)) {
+            if (!capture.isActive()) {
+                System.out.println("[VoiceChat] Traffic capture is not running");
+            }
+            capture.stop();
+        } else if ("start".equalsIgnoreCase(action)) {
+            if (capture.isActive()) {
+                System.out.println("[VoiceChat] Traffic capture already running: " + capture.getDirectory().toAbsolutePath());
+                return CompletableFuture.completedFuture(null);
+            }
+            start(Main.CONFIG.get().getCapture());
+        } else {
+            System.out.println("[VoiceChat] Usage: /voicechat-capture <start|stop>");
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Start a capture using the configured directory and segment size.
+     */
+    public static void start(VoiceChatConfig.CaptureConfig config) {
+        try {
+            TrafficCapture.getInstance().start(Path.of(config.getDirectory()), config.getSegmentSizeMb() * 1024 * 1024);
+        } catch (IOException e) {
+            System.err.println("[VoiceChat] Failed to start traffic capture: " + e.getMessage());
+        }
+    }
+}
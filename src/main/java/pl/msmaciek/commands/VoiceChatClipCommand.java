@@ -0,0 +1,84 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import pl.msmaciek.moderation.ClipRecorder;
+import pl.msmaciek.player.PlayerTracker;
+
+import java.awt.*;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admin command exporting the recent audio around a player as a WAV clip.
+ * Usage: /voicechat-clip <player> <seconds>
+ */
+public class VoiceChatClipCommand extends AbstractAsyncCommand {
+
+    private static final String DISABLED = "[VoiceChat] Clip recording is disabled (Recording.Enabled in config).";
+    private static final String NOT_ONLINE = "[VoiceChat] That player is not online.";
+    private static final String INVALID_SECONDS = "[VoiceChat] Seconds must be a number.";
+
+    private final RequiredArg<String> playerArg;
+    private final RequiredArg<String> secondsArg;
+
+    public VoiceChatClipCommand() {
+        super("voicechat-clip", "Exports recent voice audio around a player for moderation");
+        this.addAliases("vcclip", "vc-clip");
+        this.playerArg = this.withRequiredArg("player", "The reported player", ArgTypes.STRING);
+        this.secondsArg = this.withRequiredArg("seconds", "How many seconds to export", ArgTypes.STRING);
+    }
+
+    @NonNullDecl
+    @Override
+    protected CompletableFuture<Void> executeAsync(CommandContext commandContext) {
+        CommandSender sender = commandContext.sender();
+        ClipRecorder recorder = ClipRecorder.getInstance();
+
+        if (!recorder.isEnabled()) {
+            reply(sender, DISABLED, Color.RED);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String playerName = commandContext.get(this.playerArg);
+        UUID playerUuid = PlayerTracker.getInstance().getUuidByUsername(playerName);
+        if (playerUuid == null) {
+            reply(sender, NOT_ONLINE, Color.RED);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int seconds;
+        try {
+            seconds = Integer.parseInt(commandContext.get(this.secondsArg));
+        } catch (NumberFormatException e) {
+            reply(sender, INVALID_SECONDS, Color.RED);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // The WAV is mixed and written on the recorder's export thread
+        recorder.exportClip(playerUuid, playerName, seconds).whenComplete((file, error) -> {
+            if (error != null) {
+                reply(sender, "[VoiceChat] Clip export failed: " + error.getMessage(), Color.RED);
+            } else {
+                reply(sender, "[VoiceChat] Clip saved to " + file.toAbsolutePath(), Color.GREEN);
+            }
+        });
+
+        reply(sender, "[VoiceChat] Exporting clip of " + playerName + "...", Color.YELLOW);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void reply(CommandSender sender, String text, Color color) {
+        if (sender instanceof Player player) {
+            player.sendMessage(Message.raw(text).color(color));
+        } else {
+            System.out.println(text);
+        }
+    }
+}
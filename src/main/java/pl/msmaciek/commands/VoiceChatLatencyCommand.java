@@ -0,0 +1,76 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import pl.msmaciek.metrics.LatencyHistogram;
+import pl.msmaciek.session.LinkMonitor;
+import pl.msmaciek.session.LinkQuality;
+import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.session.UserSession;
+
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Console-only command printing round-trip time and jitter of every voice chat connection.
+ */
+public class VoiceChatLatencyCommand extends AbstractAsyncCommand {
+
+    private static final Message CONSOLE_ONLY = Message.raw("[VoiceChat] This command can only be used from the console.").color(Color.RED);
+
+    public VoiceChatLatencyCommand() {
+        super("voicechat-latency", "Prints per-connection RTT and jitter (console only)");
+        this.addAliases("vclatency", "vc-latency");
+    }
+
+    @NonNullDecl
+    @Override
+    protected CompletableFuture<Void> executeAsync(CommandContext commandContext) {
+        CommandSender sender = commandContext.sender();
+
+        if (sender instanceof Player player) {
+            player.sendMessage(CONSOLE_ONLY);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        LatencyHistogram rtt = LinkMonitor.getInstance().aggregateRtt();
+        LatencyHistogram jitter = LinkMonitor.getInstance().aggregateJitter();
+        System.out.println("[VoiceChat] Latency (ms, " + rtt.getCount() + " samples): RTT " + percentiles(rtt)
+                + ", jitter " + percentiles(jitter));
+
+        for (UserSession session : SessionManager.getInstance().getAll()) {
+            if (session.getName() == null) continue;
+
+            LinkQuality link = session.getLink();
+            if (!link.hasMeasurement()) {
+                System.out.println("  " + session.getName() + ": no samples yet");
+                continue;
+            }
+            System.out.println("  " + session.getName()
+                    + ": srtt " + ms(link.getSmoothedRttMicros())
+                    + " +/- " + ms(link.getRttVarianceMicros())
+                    + ", RTT " + percentiles(link.getRttHistogram())
+                    + ", jitter " + percentiles(link.getJitterHistogram())
+                    + ", lost " + link.getLostPings()
+                    + ", audio " + session.getDownlink().getTier()
+                    + " (" + session.getDownlink().getInFlight() + " queued)");
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return "p50 " + ms(histogram.percentile(50))
+                + " p95 " + ms(histogram.percentile(95))
+                + " p99 " + ms(histogram.percentile(99))
+                + " max " + ms(histogram.getMax());
+    }
+
+    private static String ms(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
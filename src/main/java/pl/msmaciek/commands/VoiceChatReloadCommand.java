@@ -7,10 +7,14 @@ import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncC
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import pl.msmaciek.Main;
+import pl.msmaciek.auth.VerificationManager;
 import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.session.TickGovernor;
 import pl.msmaciek.session.UserSession;
 
 import java.awt.*;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -39,13 +43,21 @@ public class VoiceChatReloadCommand extends AbstractAsyncCommand {
         }
 
         Main.CONFIG.load();
+        VerificationManager.getInstance().configure(
+            Main.CONFIG.get().getGeneral().getVerificationCodeTtlSeconds() * 1000L,
+            Main.CONFIG.get().getGeneral().getMaxPendingCodesPerIp()
+        );
+        TickGovernor.getInstance().setBudgetPercent(Main.CONFIG.get().getGeneral().getTickBudgetPercent());
         System.out.println("[VoiceChat] Configuration reloaded successfully!");
 
         int count = 0;
-        for (UserSession session : SessionManager.getInstance().getAll()) {
-            if (session.getSession().isOpen()) {
-                session.sendConfig(Main.CONFIG.get());
-                count++;
+        SessionManager sessions = SessionManager.getInstance();
+        for (Collection<UserSession> group : List.of(sessions.getAll(), sessions.getStaged())) {
+            for (UserSession session : group) {
+                if (session.getSession().isOpen()) {
+                    session.sendConfig(Main.CONFIG.get());
+                    count++;
+                }
             }
         }
         System.out.println("[VoiceChat] Updated config sent to " + count + " connected user(s)");
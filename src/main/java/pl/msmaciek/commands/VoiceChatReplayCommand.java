@@ -0,0 +1,67 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import pl.msmaciek.capture.ReplayDriver;
+
+import java.awt.*;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Console-only command to replay a traffic capture through the relay and snapshot pipeline.
+ * Usage: /voicechat-replay <capture directory> <speed|max>
+ */
+public class VoiceChatReplayCommand extends AbstractAsyncCommand {
+
+    private static final Message CONSOLE_ONLY = Message.raw("[VoiceChat] This command can only be used from the console.").color(Color.RED);
+
+    private final RequiredArg<String> directoryArg;
+    private final RequiredArg<String> speedArg;
+
+    public VoiceChatReplayCommand() {
+        super("voicechat-replay", "Replays a captured voice traffic recording with fake clients (console only)");
+        this.addAliases("vcreplay", "vc-replay");
+        this.directoryArg = this.withRequiredArg("directory", "The capture directory", ArgTypes.STRING);
+        this.speedArg = this.withRequiredArg("speed", "Playback speed (1 = real time) or max", ArgTypes.STRING);
+    }
+
+    @NonNullDecl
+    @Override
+    protected CompletableFuture<Void> executeAsync(CommandContext commandContext) {
+        CommandSender sender = commandContext.sender();
+
+        if (sender instanceof Player player) {
+            player.sendMessage(CONSOLE_ONLY);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Path directory = Path.of(commandContext.get(this.directoryArg));
+        String speedText = commandContext.get(this.speedArg);
+
+        double speed;
+        try {
+            speed = "max".equalsIgnoreCase(speedText) ? 0 : Double.parseDouble(speedText.replace("x", ""));
+        } catch (NumberFormatException e) {
+            System.out.println("[VoiceChat] Invalid speed: " + speedText);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Replays can take as long as the original capture, keep them off the command thread
+        return CompletableFuture.runAsync(() -> {
+            System.out.println("[VoiceChat] Replaying capture " + directory.toAbsolutePath() + " at " + (speed <= 0 ? "max" : speed + "x") + " speed");
+            try {
+                ReplayDriver.Result result = new ReplayDriver(directory, speed).run();
+                System.out.println("[VoiceChat] Replay finished: " + result);
+            } catch (Exception e) {
+                System.err.println("[VoiceChat] Replay failed: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.stage.StageManager;
+import pl.msmaciek.stage.StageRegion;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import javax.annotation.Nonnull;
+import java.awt.*;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Admin command to set up stages, whose broadcasters are heard by everyone on the stage regardless of distance.
+ * Areas and podiums are cubes centered on the player running the command.
+ * Usage:
+ * <pre>
+ * /voicechat-stage create &lt;stage&gt; &lt;radius&gt;    audience area
+ * /voicechat-stage podium &lt;stage&gt; &lt;radius&gt;    anyone standing here broadcasts, 0 to remove
+ * /voicechat-stage host &lt;stage&gt; &lt;player&gt;      player broadcasts from anywhere on the stage
+ * /voicechat-stage unhost &lt;stage&gt; &lt;player&gt;
+ * /voicechat-stage remove &lt;stage&gt; confirm
+ * </pre>
+ */
+public class VoiceChatStageCommand extends AbstractPlayerCommand {
+
+    private static final Message USAGE = Message.raw("[VoiceChat] Usage: /voicechat-stage <create|podium|host|unhost|remove> <stage> <radius|player|confirm>").color(Color.YELLOW);
+    private static final Message NO_STAGE = Message.raw("[VoiceChat] There is no stage with that name.").color(Color.RED);
+    private static final Message NOT_ONLINE = Message.raw("[VoiceChat] That player is not online.").color(Color.RED);
+    private static final Message INVALID_RADIUS = Message.raw("[VoiceChat] Radius must be a number.").color(Color.RED);
+    private static final Message NO_POSITION = Message.raw("[VoiceChat] Your position is not known yet, try again in a moment.").color(Color.RED);
+    private static final Message OUTSIDE_STAGE = Message.raw("[VoiceChat] The podium must be inside the stage area.").color(Color.RED);
+
+    private final RequiredArg<String> actionArg;
+    private final RequiredArg<String> stageArg;
+    private final RequiredArg<String> valueArg;
+
+    public VoiceChatStageCommand() {
+        super("voicechat-stage", "Sets up voice chat stages for events");
+        this.addAliases("vcstage", "vc-stage");
+        this.actionArg = this.withRequiredArg("action", "create, podium, host, unhost or remove", ArgTypes.STRING);
+        this.stageArg = this.withRequiredArg("stage", "Name of the stage", ArgTypes.STRING);
+        this.valueArg = this.withRequiredArg("value", "Radius, player name, or confirm", ArgTypes.STRING);
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext commandContext, @Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        if (!(commandContext.sender() instanceof Player player)) return;
+
+        String action = commandContext.get(this.actionArg).toLowerCase();
+        String name = commandContext.get(this.stageArg);
+        String value = commandContext.get(this.valueArg);
+        StageManager stages = StageManager.getInstance();
+        StageRegion stage = stages.getStage(name);
+
+        switch (action) {
+            case "create" -> {
+                Position pos = PlayerTracker.getInstance().getPosition(playerRef.getUuid());
+                Double radius = parseRadius(player, value);
+                if (pos == null) {
+                    player.sendMessage(NO_POSITION);
+                } else if (radius != null) {
+                    Set<UUID> hosts = stage != null ? stage.getHosts() : Set.of();
+                    stages.put(new StageRegion(name, pos.getWorldUuid(), Box.around(pos, radius), null, hosts));
+                    player.sendMessage(Message.raw("[VoiceChat] Stage " + name + " created.").color(Color.GREEN));
+                }
+            }
+            case "podium" -> {
+                Position pos = PlayerTracker.getInstance().getPosition(playerRef.getUuid());
+                Double radius = parseRadius(player, value);
+                if (stage == null) {
+                    player.sendMessage(NO_STAGE);
+                } else if (pos == null) {
+                    player.sendMessage(NO_POSITION);
+                } else if (radius != null && radius > 0 && !stage.contains(pos)) {
+                    player.sendMessage(OUTSIDE_STAGE);
+                } else if (radius != null) {
+                    stages.put(stage.withPodium(radius > 0 ? Box.around(pos, radius) : null));
+                    player.sendMessage(Message.raw("[VoiceChat] Podium of " + name + (radius > 0 ? " set." : " removed.")).color(Color.GREEN));
+                }
+            }
+            case "host", "unhost" -> {
+                UUID host = PlayerTracker.getInstance().getUuidByUsername(value);
+                if (stage == null) {
+                    player.sendMessage(NO_STAGE);
+                } else if (host == null) {
+                    player.sendMessage(NOT_ONLINE);
+                } else {
+                    boolean add = action.equals("host");
+                    stages.put(stage.withHost(host, add));
+                    player.sendMessage(Message.raw("[VoiceChat] " + value + (add ? " now hosts " : " no longer hosts ") + name + ".").color(Color.GREEN));
+                }
+            }
+            case "remove" -> {
+                if (!value.equalsIgnoreCase("confirm")) {
+                    player.sendMessage(USAGE);
+                } else if (!stages.remove(name)) {
+                    player.sendMessage(NO_STAGE);
+                } else {
+                    player.sendMessage(Message.raw("[VoiceChat] Stage " + name + " removed.").color(Color.GREEN));
+                }
+            }
+            default -> player.sendMessage(USAGE);
+        }
+    }
+
+    private static Double parseRadius(Player player, String value) {
+        try {
+            double radius = Double.parseDouble(value);
+            if (radius >= 0) return radius;
+        } catch (NumberFormatException ignored) {
+        }
+        player.sendMessage(INVALID_RADIUS);
+        return null;
+    }
+}
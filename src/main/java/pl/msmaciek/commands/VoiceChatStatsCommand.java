@@ -0,0 +1,44 @@
+package pl.msmaciek.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.awt.*;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Console-only command printing the voice chat metrics.
+ */
+public class VoiceChatStatsCommand extends AbstractAsyncCommand {
+
+    private static final Message CONSOLE_ONLY = Message.raw("[VoiceChat] This command can only be used from the console.").color(Color.RED);
+
+    public VoiceChatStatsCommand() {
+        super("voicechat-stats", "Prints voice chat metrics (console only)");
+        this.addAliases("vcstats", "vc-stats");
+    }
+
+    @NonNullDecl
+    @Override
+    protected CompletableFuture<Void> executeAsync(CommandContext commandContext) {
+        CommandSender sender = commandContext.sender();
+
+        if (sender instanceof Player player) {
+            player.sendMessage(CONSOLE_ONLY);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        System.out.println("[VoiceChat] Metrics:");
+        for (Map.Entry<String, Long> entry : VoiceChatMetrics.getInstance().snapshot().entrySet()) {
+            System.out.println("  " + entry.getKey() + " = " + entry.getValue());
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -14,6 +14,7 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import pl.msmaciek.Main;
 import pl.msmaciek.auth.VerificationManager;
+import pl.msmaciek.session.SessionManager;
 
 import javax.annotation.Nonnull;
 import java.awt.*;
@@ -56,9 +57,7 @@ public class VoiceChatVerifyCommand extends AbstractPlayerCommand {
         }
 
         // Try to verify
-        boolean success = vm.verify(code, playerRef.getUuid(), player.getDisplayName());
-
-        if (success) {
+        if (SessionManager.getInstance().verifyCode(code, playerRef.getUuid(), player.getDisplayName())) {
             player.sendMessage(SUCCESS);
         } else {
             player.sendMessage(INVALID_CODE);
@@ -0,0 +1,26 @@
+package pl.msmaciek.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Access to the current config for code that also runs outside the Hytale server.
+ * The plugin points this at its reloadable config; the standalone server sets its own instance.
+ */
+public final class ConfigHolder {
+    private static volatile Supplier<VoiceChatConfig> source;
+
+    static {
+        VoiceChatConfig defaults = new VoiceChatConfig();
+        source = () -> defaults;
+    }
+
+    private ConfigHolder() {}
+
+    public static VoiceChatConfig get() {
+        return source.get();
+    }
+
+    public static void set(Supplier<VoiceChatConfig> supplier) {
+        source = supplier;
+    }
+}
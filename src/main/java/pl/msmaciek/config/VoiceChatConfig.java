@@ -1,81 +1,45 @@
 package pl.msmaciek.config;
 
-import com.hypixel.hytale.codec.Codec;
-import com.hypixel.hytale.codec.KeyedCodec;
-import com.hypixel.hytale.codec.builder.BuilderCodec;
 import lombok.Getter;
+import lombok.Setter;
 
 @Getter
+@Setter
 public class VoiceChatConfig {
 
     // Nested config classes
     @Getter
+    @Setter
     public static class ServerConfig {
-        public static final BuilderCodec<ServerConfig> CODEC = BuilderCodec.builder(ServerConfig.class, ServerConfig::new)
-                .append(new KeyedCodec<>("WebSocketPort", Codec.INTEGER),
-                        (config, value, extraInfo) -> config.webSocketPort = value,
-                        (config, extraInfo) -> config.webSocketPort).add()
-                .append(new KeyedCodec<>("UseSSL", Codec.BOOLEAN),
-                        (config, value, extraInfo) -> config.useSSL = value,
-                        (config, extraInfo) -> config.useSSL).add()
-                .append(new KeyedCodec<>("SSLKeystorePath", Codec.STRING),
-                        (config, value, extraInfo) -> config.sslKeystorePath = value,
-                        (config, extraInfo) -> config.sslKeystorePath).add()
-                .append(new KeyedCodec<>("SSLKeystorePassword", Codec.STRING),
-                        (config, value, extraInfo) -> config.sslKeystorePassword = value,
-                        (config, extraInfo) -> config.sslKeystorePassword).add()
-                .build();
-
         private int webSocketPort = 8443;
         private boolean useSSL = true;
         private String sslKeystorePath = "example.keystore";
         private String sslKeystorePassword = "changeit";
+        private ConnectorType connector = ConnectorType.TCP;
+        private String unixSocketPath = "voicechat.sock";
+        private int acceptors = -1;                 // -1 lets Jetty pick from the CPU count
+        private int selectors = -1;
+        private int acceptQueueSize = 0;            // 0 uses the OS default backlog
+        private long idleTimeoutMs = 30000;
+        private int outputBufferSize = 32768;
+        private boolean tcpNoDelay = true;
+        private int socketReceiveBufferSize = -1;   // -1 uses the OS default
+        private int socketSendBufferSize = -1;
 
         public ServerConfig() {}
     }
 
     @Getter
+    @Setter
     public static class MessagesConfig {
-        public static final BuilderCodec<MessagesConfig> CODEC = BuilderCodec.builder(MessagesConfig.class, MessagesConfig::new)
-                .append(new KeyedCodec<>("JoinMessage", Codec.STRING),
-                        (config, value, extraInfo) -> config.joinMessage = value,
-                        (config, extraInfo) -> config.joinMessage).add()
-                .build();
-
         private String joinMessage = "This server has Voice Chat! Connect at: {tunnelurl}";
 
         public MessagesConfig() {}
     }
 
     @Getter
+    @Setter
     public static class AudioConfig {
-        public static final BuilderCodec<AudioConfig> CODEC = BuilderCodec.builder(AudioConfig.class, AudioConfig::new)
-                .append(new KeyedCodec<>("MaxDistance", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.maxDistance = value,
-                        (config, extraInfo) -> config.maxDistance).add()
-                .append(new KeyedCodec<>("DistanceFormula", Codec.STRING),
-                        (config, value, extraInfo) -> config.distanceFormula = DistanceFormula.fromString(value),
-                        (config, extraInfo) -> config.distanceFormula.name()).add()
-                .append(new KeyedCodec<>("VoiceDimension", Codec.STRING),
-                        (config, value, extraInfo) -> config.voiceDimension = VoiceDimension.fromString(value),
-                        (config, extraInfo) -> config.voiceDimension.name()).add()
-                .append(new KeyedCodec<>("RolloffFactor", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.rolloffFactor = value,
-                        (config, extraInfo) -> config.rolloffFactor).add()
-                .append(new KeyedCodec<>("RefDistance", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.refDistance = value,
-                        (config, extraInfo) -> config.refDistance).add()
-                .append(new KeyedCodec<>("ServerCutoffMultiplier", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.serverCutoffMultiplier = value,
-                        (config, extraInfo) -> config.serverCutoffMultiplier).add()
-                .append(new KeyedCodec<>("Blend2dDistance", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.blend2dDistance = value,
-                        (config, extraInfo) -> config.blend2dDistance).add()
-                .append(new KeyedCodec<>("Full3dDistance", Codec.DOUBLE),
-                        (config, value, extraInfo) -> config.full3dDistance = value,
-                        (config, extraInfo) -> config.full3dDistance).add()
-                .build();
-
         private double maxDistance = 75.0;
         private DistanceFormula distanceFormula = DistanceFormula.EXPONENTIAL;
         private VoiceDimension voiceDimension = VoiceDimension.THREE_D;
@@ -84,71 +48,135 @@ public class VoiceChatConfig {
         private double serverCutoffMultiplier = 1.1;
         private double blend2dDistance = 20.0;
         private double full3dDistance = 50.0;
+        private double interestExitMultiplier = 1.2;
+        private boolean adaptiveBitrate = true;
+        private int congestionLatencyMs = 150;
+        private int congestionBacklogFrames = 3;
+        private int maxBacklogFrames = 12;
+        private int tierRecoverySeconds = 10;
 
         public AudioConfig() {}
     }
 
     @Getter
+    @Setter
     public static class GeneralConfig {
-        public static final BuilderCodec<GeneralConfig> CODEC = BuilderCodec.builder(GeneralConfig.class, GeneralConfig::new)
-                .append(new KeyedCodec<>("UpdateIntervalMs", Codec.LONG),
-                        (config, value, extraInfo) -> config.updateIntervalMs = value,
-                        (config, extraInfo) -> config.updateIntervalMs).add()
-                .append(new KeyedCodec<>("OverrideNameplates", Codec.BOOLEAN),
-                        (config, value, extraInfo) -> config.overrideNameplates = value,
-                        (config, extraInfo) -> config.overrideNameplates).add()
-                .append(new KeyedCodec<>("RequirePermissionToConnect", Codec.BOOLEAN),
-                        (config, value, extraInfo) -> config.requirePermissionToConnect = value,
-                        (config, extraInfo) -> config.requirePermissionToConnect).add()
-                .append(new KeyedCodec<>("EnableUI", Codec.BOOLEAN),
-                        (config, value, extraInfo) -> config.enableUI = value,
-                        (config, extraInfo) -> config.enableUI).add()
-                .build();
-
-        private long updateIntervalMs = 50;
+        private long updateIntervalMs = 100;
         private boolean overrideNameplates = true;
         private boolean requirePermissionToConnect = false;
         private boolean enableUI = true;
+        private int resumeTokenTtlSeconds = 120;
+        private int verificationCodeTtlSeconds = 600;
+        private int maxPendingCodesPerIp = 5;
+        private boolean trustForwardedFor = false;  // Only behind a reverse proxy that appends to X-Forwarded-For
+        private long serverPingIntervalMs = 2000;
+        private int tickBudgetPercent = 80;
+        private String blockListFile = "voicechat-blocks.json";
+        private int maxConnections = 1000;          // 0 = unlimited
+        private int maxConnectionsPerIp = 10;       // 0 = unlimited
+        private int handshakeTimeoutSeconds = 300;  // Time to verify and join, 0 = no limit
+        private int heartbeatTimeoutSeconds = 20;   // Silence before a socket is considered dead, 0 = never
 
         public GeneralConfig() {}
     }
 
     @Getter
+    @Setter
     public static class TunnelConfig {
-        public static final BuilderCodec<TunnelConfig> CODEC = BuilderCodec.builder(TunnelConfig.class, TunnelConfig::new)
-                .append(new KeyedCodec<>("UseTunnel", Codec.BOOLEAN),
-                        (config, value, extraInfo) -> config.useTunnel = value,
-                        (config, extraInfo) -> config.useTunnel).add()
-                .build();
-
         private boolean useTunnel = true;
 
         public TunnelConfig() {}
     }
 
-    public static final BuilderCodec<VoiceChatConfig> CODEC = BuilderCodec.builder(VoiceChatConfig.class, VoiceChatConfig::new)
-            .append(new KeyedCodec<>("Server", ServerConfig.CODEC),
-                    (config, value, extraInfo) -> config.server = value,
-                    (config, extraInfo) -> config.server).add()
-            .append(new KeyedCodec<>("Messages", MessagesConfig.CODEC),
-                    (config, value, extraInfo) -> config.messages = value,
-                    (config, extraInfo) -> config.messages).add()
-            .append(new KeyedCodec<>("Audio", AudioConfig.CODEC),
-                    (config, value, extraInfo) -> config.audio = value,
-                    (config, extraInfo) -> config.audio).add()
-            .append(new KeyedCodec<>("General", GeneralConfig.CODEC),
-                    (config, value, extraInfo) -> config.general = value,
-                    (config, extraInfo) -> config.general).add()
-            .append(new KeyedCodec<>("Tunnel", TunnelConfig.CODEC),
-                    (config, value, extraInfo) -> config.tunnel = value,
-                    (config, extraInfo) -> config.tunnel).add()
-            .build();
+    @Getter
+    @Setter
+    public static class CaptureConfig {
+        private boolean enabled = false;
+        private String directory = "voicechat-captures";
+        private int segmentSizeMb = 64;
+
+        public CaptureConfig() {}
+    }
+
+    @Getter
+    @Setter
+    public static class RecordingConfig {
+        private boolean enabled = false;
+        private int bufferSeconds = 30;
+        private int maxMemoryMb = 128;
+        private String exportDirectory = "voicechat-clips";
+
+        public RecordingConfig() {}
+    }
+
+    @Getter
+    @Setter
+    public static class StageConfig {
+        private String file = "voicechat-stages.json";
+        private int fanOutThreads = 4;
+        private int fanOutThreshold = 64;
+
+        public StageConfig() {}
+    }
+
+    @Getter
+    @Setter
+    public static class ThreadsConfig {
+        private int schedulerThreads = 2;
+        private ExecutorType ioExecutor = ExecutorType.VIRTUAL;
+        private int ioThreads = 16;             // PLATFORM only
+        private int ioQueueCapacity = 10000;    // PLATFORM only
+        private int sendQueueCapacity = 256;    // Text messages waiting per session before new ones are dropped
+        private int jettyMinThreads = 8;
+        private int jettyMaxThreads = 200;
+        private int jettyQueueCapacity = 2000;  // 0 for unbounded
+
+        public ThreadsConfig() {}
+    }
+
+    @Getter
+    @Setter
+    public static class LoudnessConfig {
+        private boolean enabled = false;
+        private double targetDbfs = -20.0;
+        private double maxBoostDb = 12.0;
+        private double maxCutDb = 12.0;
+        private double gateDbfs = -50.0;    // Frames quieter than this don't change a speaker's level
+
+        public LoudnessConfig() {}
+    }
+
+    /**
+     * A 3D zone with its own acoustics. Zero or empty values keep the global audio setting.
+     */
+    @Getter
+    @Setter
+    public static class ZoneConfig {
+        private String name = "";
+        private String world = "";          // World UUID, empty for every world
+        private double minX, minY, minZ;
+        private double maxX, maxY, maxZ;
+        private int priority = 0;           // Where zones overlap the highest priority wins
+        private double maxDistance = 0;
+        private String distanceFormula = "";
+        private double rolloffFactor = 0;
+        private double refDistance = 0;
+        private double serverCutoffMultiplier = 0;
+
+        public ZoneConfig() {}
+    }
 
     private ServerConfig server = new ServerConfig();
     private MessagesConfig messages = new MessagesConfig();
     private AudioConfig audio = new AudioConfig();
     private GeneralConfig general = new GeneralConfig();
     private TunnelConfig tunnel = new TunnelConfig();
+    private CaptureConfig capture = new CaptureConfig();
+    private RecordingConfig recording = new RecordingConfig();
+    private StageConfig stage = new StageConfig();
+    private LoudnessConfig loudness = new LoudnessConfig();
+    private ThreadsConfig threads = new ThreadsConfig();
+    private ZoneConfig[] zones = new ZoneConfig[0];
 
     public VoiceChatConfig() {}
 
@@ -167,6 +195,32 @@ public class VoiceChatConfig {
         }
     }
 
+    public enum ConnectorType {
+        TCP,
+        UNIX;
+
+        public static ConnectorType fromString(String value) {
+            try {
+                return ConnectorType.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return TCP;
+            }
+        }
+    }
+
+    public enum ExecutorType {
+        PLATFORM,
+        VIRTUAL;
+
+        public static ExecutorType fromString(String value) {
+            try {
+                return ExecutorType.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return VIRTUAL;
+            }
+        }
+    }
+
     public enum VoiceDimension {
         TWO_D,
         THREE_D;
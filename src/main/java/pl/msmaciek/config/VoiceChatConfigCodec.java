@@ -0,0 +1,340 @@
+package pl.msmaciek.config;
+
+import com.hypixel.hytale.codec.Codec;
+import com.hypixel.hytale.codec.KeyedCodec;
+import com.hypixel.hytale.codec.builder.BuilderCodec;
+import com.hypixel.hytale.codec.codecs.array.ArrayCodec;
+import pl.msmaciek.config.VoiceChatConfig.ServerConfig;
+import pl.msmaciek.config.VoiceChatConfig.MessagesConfig;
+import pl.msmaciek.config.VoiceChatConfig.AudioConfig;
+import pl.msmaciek.config.VoiceChatConfig.GeneralConfig;
+import pl.msmaciek.config.VoiceChatConfig.TunnelConfig;
+import pl.msmaciek.config.VoiceChatConfig.CaptureConfig;
+import pl.msmaciek.config.VoiceChatConfig.RecordingConfig;
+import pl.msmaciek.config.VoiceChatConfig.StageConfig;
+import pl.msmaciek.config.VoiceChatConfig.LoudnessConfig;
+import pl.msmaciek.config.VoiceChatConfig.ThreadsConfig;
+import pl.msmaciek.config.VoiceChatConfig.ZoneConfig;
+
+/**
+ * Hytale codecs for {@link VoiceChatConfig}.
+ * Kept apart from the config classes so they can be used without the server jar, e.g. by the standalone server.
+ */
+public final class VoiceChatConfigCodec {
+    public static final BuilderCodec<ServerConfig> SERVER = BuilderCodec.builder(ServerConfig.class, ServerConfig::new)
+            .append(new KeyedCodec<>("WebSocketPort", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setWebSocketPort(value),
+                    (config, extraInfo) -> config.getWebSocketPort()).add()
+            .append(new KeyedCodec<>("UseSSL", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setUseSSL(value),
+                    (config, extraInfo) -> config.isUseSSL()).add()
+            .append(new KeyedCodec<>("SSLKeystorePath", Codec.STRING),
+                    (config, value, extraInfo) -> config.setSslKeystorePath(value),
+                    (config, extraInfo) -> config.getSslKeystorePath()).add()
+            .append(new KeyedCodec<>("SSLKeystorePassword", Codec.STRING),
+                    (config, value, extraInfo) -> config.setSslKeystorePassword(value),
+                    (config, extraInfo) -> config.getSslKeystorePassword()).add()
+            .append(new KeyedCodec<>("Connector", Codec.STRING),
+                    (config, value, extraInfo) -> config.setConnector(VoiceChatConfig.ConnectorType.fromString(value)),
+                    (config, extraInfo) -> config.getConnector().name()).add()
+            .append(new KeyedCodec<>("UnixSocketPath", Codec.STRING),
+                    (config, value, extraInfo) -> config.setUnixSocketPath(value),
+                    (config, extraInfo) -> config.getUnixSocketPath()).add()
+            .append(new KeyedCodec<>("Acceptors", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setAcceptors(value),
+                    (config, extraInfo) -> config.getAcceptors()).add()
+            .append(new KeyedCodec<>("Selectors", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSelectors(value),
+                    (config, extraInfo) -> config.getSelectors()).add()
+            .append(new KeyedCodec<>("AcceptQueueSize", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setAcceptQueueSize(value),
+                    (config, extraInfo) -> config.getAcceptQueueSize()).add()
+            .append(new KeyedCodec<>("IdleTimeoutMs", Codec.LONG),
+                    (config, value, extraInfo) -> config.setIdleTimeoutMs(value),
+                    (config, extraInfo) -> config.getIdleTimeoutMs()).add()
+            .append(new KeyedCodec<>("OutputBufferSize", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setOutputBufferSize(value),
+                    (config, extraInfo) -> config.getOutputBufferSize()).add()
+            .append(new KeyedCodec<>("TcpNoDelay", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setTcpNoDelay(value),
+                    (config, extraInfo) -> config.isTcpNoDelay()).add()
+            .append(new KeyedCodec<>("SocketReceiveBufferSize", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSocketReceiveBufferSize(value),
+                    (config, extraInfo) -> config.getSocketReceiveBufferSize()).add()
+            .append(new KeyedCodec<>("SocketSendBufferSize", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSocketSendBufferSize(value),
+                    (config, extraInfo) -> config.getSocketSendBufferSize()).add()
+            .build();
+
+    public static final BuilderCodec<MessagesConfig> MESSAGES = BuilderCodec.builder(MessagesConfig.class, MessagesConfig::new)
+            .append(new KeyedCodec<>("JoinMessage", Codec.STRING),
+                    (config, value, extraInfo) -> config.setJoinMessage(value),
+                    (config, extraInfo) -> config.getJoinMessage()).add()
+            .build();
+
+    public static final BuilderCodec<AudioConfig> AUDIO = BuilderCodec.builder(AudioConfig.class, AudioConfig::new)
+            .append(new KeyedCodec<>("MaxDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxDistance(value),
+                    (config, extraInfo) -> config.getMaxDistance()).add()
+            .append(new KeyedCodec<>("DistanceFormula", Codec.STRING),
+                    (config, value, extraInfo) -> config.setDistanceFormula(VoiceChatConfig.DistanceFormula.fromString(value)),
+                    (config, extraInfo) -> config.getDistanceFormula().name()).add()
+            .append(new KeyedCodec<>("VoiceDimension", Codec.STRING),
+                    (config, value, extraInfo) -> config.setVoiceDimension(VoiceChatConfig.VoiceDimension.fromString(value)),
+                    (config, extraInfo) -> config.getVoiceDimension().name()).add()
+            .append(new KeyedCodec<>("RolloffFactor", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setRolloffFactor(value),
+                    (config, extraInfo) -> config.getRolloffFactor()).add()
+            .append(new KeyedCodec<>("RefDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setRefDistance(value),
+                    (config, extraInfo) -> config.getRefDistance()).add()
+            .append(new KeyedCodec<>("ServerCutoffMultiplier", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setServerCutoffMultiplier(value),
+                    (config, extraInfo) -> config.getServerCutoffMultiplier()).add()
+            .append(new KeyedCodec<>("Blend2dDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setBlend2dDistance(value),
+                    (config, extraInfo) -> config.getBlend2dDistance()).add()
+            .append(new KeyedCodec<>("Full3dDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setFull3dDistance(value),
+                    (config, extraInfo) -> config.getFull3dDistance()).add()
+            .append(new KeyedCodec<>("InterestExitMultiplier", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setInterestExitMultiplier(value),
+                    (config, extraInfo) -> config.getInterestExitMultiplier()).add()
+            .append(new KeyedCodec<>("AdaptiveBitrate", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setAdaptiveBitrate(value),
+                    (config, extraInfo) -> config.isAdaptiveBitrate()).add()
+            .append(new KeyedCodec<>("CongestionLatencyMs", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setCongestionLatencyMs(value),
+                    (config, extraInfo) -> config.getCongestionLatencyMs()).add()
+            .append(new KeyedCodec<>("CongestionBacklogFrames", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setCongestionBacklogFrames(value),
+                    (config, extraInfo) -> config.getCongestionBacklogFrames()).add()
+            .append(new KeyedCodec<>("MaxBacklogFrames", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setMaxBacklogFrames(value),
+                    (config, extraInfo) -> config.getMaxBacklogFrames()).add()
+            .append(new KeyedCodec<>("TierRecoverySeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setTierRecoverySeconds(value),
+                    (config, extraInfo) -> config.getTierRecoverySeconds()).add()
+            .build();
+
+    public static final BuilderCodec<GeneralConfig> GENERAL = BuilderCodec.builder(GeneralConfig.class, GeneralConfig::new)
+            .append(new KeyedCodec<>("UpdateIntervalMs", Codec.LONG),
+                    (config, value, extraInfo) -> config.setUpdateIntervalMs(value),
+                    (config, extraInfo) -> config.getUpdateIntervalMs()).add()
+            .append(new KeyedCodec<>("OverrideNameplates", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setOverrideNameplates(value),
+                    (config, extraInfo) -> config.isOverrideNameplates()).add()
+            .append(new KeyedCodec<>("RequirePermissionToConnect", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setRequirePermissionToConnect(value),
+                    (config, extraInfo) -> config.isRequirePermissionToConnect()).add()
+            .append(new KeyedCodec<>("EnableUI", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setEnableUI(value),
+                    (config, extraInfo) -> config.isEnableUI()).add()
+            .append(new KeyedCodec<>("ResumeTokenTtlSeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setResumeTokenTtlSeconds(value),
+                    (config, extraInfo) -> config.getResumeTokenTtlSeconds()).add()
+            .append(new KeyedCodec<>("VerificationCodeTtlSeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setVerificationCodeTtlSeconds(value),
+                    (config, extraInfo) -> config.getVerificationCodeTtlSeconds()).add()
+            .append(new KeyedCodec<>("MaxPendingCodesPerIp", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setMaxPendingCodesPerIp(value),
+                    (config, extraInfo) -> config.getMaxPendingCodesPerIp()).add()
+            .append(new KeyedCodec<>("TrustForwardedFor", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setTrustForwardedFor(value),
+                    (config, extraInfo) -> config.isTrustForwardedFor()).add()
+            .append(new KeyedCodec<>("ServerPingIntervalMs", Codec.LONG),
+                    (config, value, extraInfo) -> config.setServerPingIntervalMs(value),
+                    (config, extraInfo) -> config.getServerPingIntervalMs()).add()
+            .append(new KeyedCodec<>("TickBudgetPercent", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setTickBudgetPercent(value),
+                    (config, extraInfo) -> config.getTickBudgetPercent()).add()
+            .append(new KeyedCodec<>("BlockListFile", Codec.STRING),
+                    (config, value, extraInfo) -> config.setBlockListFile(value),
+                    (config, extraInfo) -> config.getBlockListFile()).add()
+            .append(new KeyedCodec<>("MaxConnections", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setMaxConnections(value),
+                    (config, extraInfo) -> config.getMaxConnections()).add()
+            .append(new KeyedCodec<>("MaxConnectionsPerIp", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setMaxConnectionsPerIp(value),
+                    (config, extraInfo) -> config.getMaxConnectionsPerIp()).add()
+            .append(new KeyedCodec<>("HandshakeTimeoutSeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setHandshakeTimeoutSeconds(value),
+                    (config, extraInfo) -> config.getHandshakeTimeoutSeconds()).add()
+            .append(new KeyedCodec<>("HeartbeatTimeoutSeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setHeartbeatTimeoutSeconds(value),
+                    (config, extraInfo) -> config.getHeartbeatTimeoutSeconds()).add()
+            .build();
+
+    public static final BuilderCodec<TunnelConfig> TUNNEL = BuilderCodec.builder(TunnelConfig.class, TunnelConfig::new)
+            .append(new KeyedCodec<>("UseTunnel", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setUseTunnel(value),
+                    (config, extraInfo) -> config.isUseTunnel()).add()
+            .build();
+
+    public static final BuilderCodec<CaptureConfig> CAPTURE = BuilderCodec.builder(CaptureConfig.class, CaptureConfig::new)
+            .append(new KeyedCodec<>("Enabled", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setEnabled(value),
+                    (config, extraInfo) -> config.isEnabled()).add()
+            .append(new KeyedCodec<>("Directory", Codec.STRING),
+                    (config, value, extraInfo) -> config.setDirectory(value),
+                    (config, extraInfo) -> config.getDirectory()).add()
+            .append(new KeyedCodec<>("SegmentSizeMb", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSegmentSizeMb(value),
+                    (config, extraInfo) -> config.getSegmentSizeMb()).add()
+            .build();
+
+    public static final BuilderCodec<RecordingConfig> RECORDING = BuilderCodec.builder(RecordingConfig.class, RecordingConfig::new)
+            .append(new KeyedCodec<>("Enabled", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setEnabled(value),
+                    (config, extraInfo) -> config.isEnabled()).add()
+            .append(new KeyedCodec<>("BufferSeconds", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setBufferSeconds(value),
+                    (config, extraInfo) -> config.getBufferSeconds()).add()
+            .append(new KeyedCodec<>("MaxMemoryMb", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setMaxMemoryMb(value),
+                    (config, extraInfo) -> config.getMaxMemoryMb()).add()
+            .append(new KeyedCodec<>("ExportDirectory", Codec.STRING),
+                    (config, value, extraInfo) -> config.setExportDirectory(value),
+                    (config, extraInfo) -> config.getExportDirectory()).add()
+            .build();
+
+    public static final BuilderCodec<StageConfig> STAGE = BuilderCodec.builder(StageConfig.class, StageConfig::new)
+            .append(new KeyedCodec<>("File", Codec.STRING),
+                    (config, value, extraInfo) -> config.setFile(value),
+                    (config, extraInfo) -> config.getFile()).add()
+            .append(new KeyedCodec<>("FanOutThreads", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setFanOutThreads(value),
+                    (config, extraInfo) -> config.getFanOutThreads()).add()
+            .append(new KeyedCodec<>("FanOutThreshold", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setFanOutThreshold(value),
+                    (config, extraInfo) -> config.getFanOutThreshold()).add()
+            .build();
+
+    public static final BuilderCodec<ThreadsConfig> THREADS = BuilderCodec.builder(ThreadsConfig.class, ThreadsConfig::new)
+            .append(new KeyedCodec<>("SchedulerThreads", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSchedulerThreads(value),
+                    (config, extraInfo) -> config.getSchedulerThreads()).add()
+            .append(new KeyedCodec<>("IoExecutor", Codec.STRING),
+                    (config, value, extraInfo) -> config.setIoExecutor(VoiceChatConfig.ExecutorType.fromString(value)),
+                    (config, extraInfo) -> config.getIoExecutor().name()).add()
+            .append(new KeyedCodec<>("IoThreads", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setIoThreads(value),
+                    (config, extraInfo) -> config.getIoThreads()).add()
+            .append(new KeyedCodec<>("IoQueueCapacity", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setIoQueueCapacity(value),
+                    (config, extraInfo) -> config.getIoQueueCapacity()).add()
+            .append(new KeyedCodec<>("SendQueueCapacity", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setSendQueueCapacity(value),
+                    (config, extraInfo) -> config.getSendQueueCapacity()).add()
+            .append(new KeyedCodec<>("JettyMinThreads", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setJettyMinThreads(value),
+                    (config, extraInfo) -> config.getJettyMinThreads()).add()
+            .append(new KeyedCodec<>("JettyMaxThreads", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setJettyMaxThreads(value),
+                    (config, extraInfo) -> config.getJettyMaxThreads()).add()
+            .append(new KeyedCodec<>("JettyQueueCapacity", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setJettyQueueCapacity(value),
+                    (config, extraInfo) -> config.getJettyQueueCapacity()).add()
+            .build();
+
+    public static final BuilderCodec<LoudnessConfig> LOUDNESS = BuilderCodec.builder(LoudnessConfig.class, LoudnessConfig::new)
+            .append(new KeyedCodec<>("Enabled", Codec.BOOLEAN),
+                    (config, value, extraInfo) -> config.setEnabled(value),
+                    (config, extraInfo) -> config.isEnabled()).add()
+            .append(new KeyedCodec<>("TargetDbfs", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setTargetDbfs(value),
+                    (config, extraInfo) -> config.getTargetDbfs()).add()
+            .append(new KeyedCodec<>("MaxBoostDb", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxBoostDb(value),
+                    (config, extraInfo) -> config.getMaxBoostDb()).add()
+            .append(new KeyedCodec<>("MaxCutDb", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxCutDb(value),
+                    (config, extraInfo) -> config.getMaxCutDb()).add()
+            .append(new KeyedCodec<>("GateDbfs", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setGateDbfs(value),
+                    (config, extraInfo) -> config.getGateDbfs()).add()
+            .build();
+
+    public static final BuilderCodec<ZoneConfig> ZONE = BuilderCodec.builder(ZoneConfig.class, ZoneConfig::new)
+            .append(new KeyedCodec<>("Name", Codec.STRING),
+                    (config, value, extraInfo) -> config.setName(value),
+                    (config, extraInfo) -> config.getName()).add()
+            .append(new KeyedCodec<>("World", Codec.STRING),
+                    (config, value, extraInfo) -> config.setWorld(value),
+                    (config, extraInfo) -> config.getWorld()).add()
+            .append(new KeyedCodec<>("MinX", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMinX(value),
+                    (config, extraInfo) -> config.getMinX()).add()
+            .append(new KeyedCodec<>("MinY", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMinY(value),
+                    (config, extraInfo) -> config.getMinY()).add()
+            .append(new KeyedCodec<>("MinZ", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMinZ(value),
+                    (config, extraInfo) -> config.getMinZ()).add()
+            .append(new KeyedCodec<>("MaxX", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxX(value),
+                    (config, extraInfo) -> config.getMaxX()).add()
+            .append(new KeyedCodec<>("MaxY", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxY(value),
+                    (config, extraInfo) -> config.getMaxY()).add()
+            .append(new KeyedCodec<>("MaxZ", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxZ(value),
+                    (config, extraInfo) -> config.getMaxZ()).add()
+            .append(new KeyedCodec<>("Priority", Codec.INTEGER),
+                    (config, value, extraInfo) -> config.setPriority(value),
+                    (config, extraInfo) -> config.getPriority()).add()
+            .append(new KeyedCodec<>("MaxDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setMaxDistance(value),
+                    (config, extraInfo) -> config.getMaxDistance()).add()
+            .append(new KeyedCodec<>("DistanceFormula", Codec.STRING),
+                    (config, value, extraInfo) -> config.setDistanceFormula(value),
+                    (config, extraInfo) -> config.getDistanceFormula()).add()
+            .append(new KeyedCodec<>("RolloffFactor", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setRolloffFactor(value),
+                    (config, extraInfo) -> config.getRolloffFactor()).add()
+            .append(new KeyedCodec<>("RefDistance", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setRefDistance(value),
+                    (config, extraInfo) -> config.getRefDistance()).add()
+            .append(new KeyedCodec<>("ServerCutoffMultiplier", Codec.DOUBLE),
+                    (config, value, extraInfo) -> config.setServerCutoffMultiplier(value),
+                    (config, extraInfo) -> config.getServerCutoffMultiplier()).add()
+            .build();
+
+    public static final BuilderCodec<VoiceChatConfig> CODEC = BuilderCodec.builder(VoiceChatConfig.class, VoiceChatConfig::new)
+            .append(new KeyedCodec<>("Server", SERVER),
+                    (config, value, extraInfo) -> config.setServer(value),
+                    (config, extraInfo) -> config.getServer()).add()
+            .append(new KeyedCodec<>("Messages", MESSAGES),
+                    (config, value, extraInfo) -> config.setMessages(value),
+                    (config, extraInfo) -> config.getMessages()).add()
+            .append(new KeyedCodec<>("Audio", AUDIO),
+                    (config, value, extraInfo) -> config.setAudio(value),
+                    (config, extraInfo) -> config.getAudio()).add()
+            .append(new KeyedCodec<>("General", GENERAL),
+                    (config, value, extraInfo) -> config.setGeneral(value),
+                    (config, extraInfo) -> config.getGeneral()).add()
+            .append(new KeyedCodec<>("Tunnel", TUNNEL),
+                    (config, value, extraInfo) -> config.setTunnel(value),
+                    (config, extraInfo) -> config.getTunnel()).add()
+            .append(new KeyedCodec<>("Capture", CAPTURE),
+                    (config, value, extraInfo) -> config.setCapture(value),
+                    (config, extraInfo) -> config.getCapture()).add()
+            .append(new KeyedCodec<>("Recording", RECORDING),
+                    (config, value, extraInfo) -> config.setRecording(value),
+                    (config, extraInfo) -> config.getRecording()).add()
+            .append(new KeyedCodec<>("Stage", STAGE),
+                    (config, value, extraInfo) -> config.setStage(value),
+                    (config, extraInfo) -> config.getStage()).add()
+            .append(new KeyedCodec<>("Loudness", LOUDNESS),
+                    (config, value, extraInfo) -> config.setLoudness(value),
+                    (config, extraInfo) -> config.getLoudness()).add()
+            .append(new KeyedCodec<>("Threads", THREADS),
+                    (config, value, extraInfo) -> config.setThreads(value),
+                    (config, extraInfo) -> config.getThreads()).add()
+            .append(new KeyedCodec<>("Zones", new ArrayCodec<>(ZONE, ZoneConfig[]::new)),
+                    (config, value, extraInfo) -> config.setZones(value),
+                    (config, extraInfo) -> config.getZones()).add()
+            .build();
+
+    private VoiceChatConfigCodec() {}
+}
@@ -0,0 +1,103 @@
+package pl.msmaciek.impairment;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * One direction of one impaired connection. Delays, drops and reorders messages according to the
+ * current {@link ImpairmentProfile}; with a bandwidth cap, messages queue behind each other like on a slow link.
+ * <p>
+ * Random decisions come from a per-link generator seeded from the scenario seed and the connection id,
+ * so the same scenario makes the same decisions for the same message sequence.
+ */
+public class ImpairedLink {
+    private final ScheduledExecutorService scheduler;
+    private final Supplier<ImpairmentProfile> profile;
+    private final Random random;
+    // Messages scheduled but not yet delivered
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // Time the link finishes transmitting what is already queued (bandwidth cap)
+    private long linkFreeNanos = 0;
+    // Delivery time of the latest in-order message; in-order messages never overtake each other
+    private long lastDeliveryNanos = 0;
+
+    ImpairedLink(ScheduledExecutorService scheduler, Supplier<ImpairmentProfile> profile, long seed) {
+        this.scheduler = scheduler;
+        this.profile = profile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Pass a message through the link.
+     * @param bytes Message size, for the bandwidth cap
+     * @param delivery Runs when the message arrives
+     * @param dropped Runs instead of delivery if the message is lost, may be null
+     */
+    public void submit(int bytes, Runnable delivery, Runnable dropped) {
+        submit(bytes, delivery, dropped, true);
+    }
+
+    /**
+     * Pass a control event (e.g. a close) through the link; it is delayed like a message but never lost.
+     */
+    public void submitReliable(Runnable delivery) {
+        submit(0, delivery, null, false);
+    }
+
+    private void submit(int bytes, Runnable delivery, Runnable dropped, boolean lossy) {
+        ImpairmentProfile p = profile.get();
+        if (p.isNone() && pending.get() == 0) {
+            // Unimpaired and nothing queued that this message could overtake
+            delivery.run();
+            return;
+        }
+
+        long delay = schedule(p, bytes, lossy, System.nanoTime());
+        if (delay < 0) {
+            if (dropped != null) dropped.run();
+            return;
+        }
+
+        pending.incrementAndGet();
+        scheduler.schedule(() -> {
+            try {
+                delivery.run();
+            } catch (Exception e) {
+                System.err.println("Impaired delivery failed: " + e.getMessage());
+            } finally {
+                pending.decrementAndGet();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Delay until delivery in nanoseconds, or -1 if the message is lost
+     */
+    private synchronized long schedule(ImpairmentProfile p, int bytes, boolean lossy, long now) {
+        if (lossy && p.getLoss() > 0 && random.nextDouble() < p.getLoss()) return -1;
+
+        long departure = now;
+        if (p.getBandwidthKbps() > 0) {
+            long transmitNanos = (long) (bytes * 8 * 1_000_000.0 / p.getBandwidthKbps());
+            departure = Math.max(now, linkFreeNanos) + transmitNanos;
+            linkFreeNanos = departure;
+        }
+
+        double delayMs = p.getLatencyMs();
+        if (p.getJitterMs() > 0) {
+            delayMs += (random.nextDouble() * 2 - 1) * p.getJitterMs();
+        }
+        long delivery = departure + (long) (Math.max(0, delayMs) * 1_000_000);
+
+        boolean reordered = p.getReorder() > 0 && random.nextDouble() < p.getReorder();
+        if (!reordered) {
+            delivery = Math.max(delivery, lastDeliveryNanos);
+            lastDeliveryNanos = delivery;
+        }
+        return delivery - now;
+    }
+}
@@ -0,0 +1,79 @@
+package pl.msmaciek.impairment;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+/**
+ * Jetty session wrapper whose outgoing messages pass through an {@link ImpairedLink}.
+ * Built with dynamic proxies like {@link pl.msmaciek.capture.FakeSocket}; everything except whole-message
+ * sends is forwarded to the real session unchanged.
+ * <p>
+ * Blocking sends return right away, as if the message had been written to the socket buffer.
+ * Closing waits for the messages sent before it.
+ * A lost message reports success to its callback, like a send whose packets went missing on the way.
+ */
+final class ImpairedSocket {
+
+    private ImpairedSocket() {}
+
+    static Session wrap(Session session, ImpairedLink link) {
+        RemoteEndpoint remote = proxy(RemoteEndpoint.class, session.getRemote(), (target, method, args) -> {
+            String name = method.getName();
+            if ((name.equals("sendString") || name.equals("sendBytes")) && args != null && args.length <= 2) {
+                send(target, link, args[0], args.length == 2 ? (WriteCallback) args[1] : WriteCallback.NOOP);
+                return null;
+            }
+            return invoke(target, method, args);
+        });
+
+        return proxy(Session.class, session, (target, method, args) -> switch (method.getName()) {
+            case "getRemote" -> remote;
+            case "close" -> {
+                // Close after the messages sent before it, like a FIN behind queued data; never lost
+                link.submitReliable(() -> {
+                    try {
+                        invoke(target, method, args);
+                    } catch (Throwable e) {
+                        System.err.println("Impaired close failed: " + e.getMessage());
+                    }
+                });
+                yield null;
+            }
+            default -> invoke(target, method, args);
+        });
+    }
+
+    private static void send(RemoteEndpoint target, ImpairedLink link, Object message, WriteCallback callback) {
+        if (message instanceof String text) {
+            link.submit(text.length(), () -> target.sendString(text, callback), callback::writeSuccess);
+        } else {
+            ByteBuffer data = (ByteBuffer) message;
+            link.submit(data.remaining(), () -> target.sendBytes(data, callback), callback::writeSuccess);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (self, method, args) -> handler.handle(target, method, args));
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,28 @@
+package pl.msmaciek.impairment;
+
+import lombok.Getter;
+
+/**
+ * Network conditions applied to one direction of a connection.
+ * Field names are the keys used in scenario files.
+ */
+@Getter
+public class ImpairmentProfile {
+    public static final ImpairmentProfile NONE = new ImpairmentProfile();
+
+    private double latencyMs = 0;
+    // Uniformly distributed extra delay in [-jitterMs, +jitterMs], never below zero total delay
+    private double jitterMs = 0;
+    // Probability that a message is dropped
+    private double loss = 0;
+    // Probability that a message may overtake earlier ones; other messages keep their order
+    private double reorder = 0;
+    // Link rate in kilobits per second, 0 for unlimited; excess traffic queues up
+    private double bandwidthKbps = 0;
+
+    public ImpairmentProfile() {}
+
+    public boolean isNone() {
+        return latencyMs <= 0 && jitterMs <= 0 && loss <= 0 && reorder <= 0 && bandwidthKbps <= 0;
+    }
+}
@@ -0,0 +1,79 @@
+package pl.msmaciek.impairment;
+
+import com.google.gson.Gson;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A timeline of network conditions, loaded from JSON:
+ * <pre>
+ * {
+ *   "seed": 42,
+ *   "steps": [
+ *     {"at": 0, "down": {"latencyMs": 40, "jitterMs": 10}},
+ *     {"at": 30000, "every": 4, "down": {"latencyMs": 300, "jitterMs": 120, "loss": 0.02, "bandwidthKbps": 256}},
+ *     {"at": 60000}
+ *   ]
+ * }
+ * </pre>
+ * "up" is client to server, "down" server to client. At any time a connection uses the latest step that has
+ * started and selects it; {@code every}/{@code offset} select connections whose id % every == offset.
+ * A step without "up" or "down" leaves that direction unimpaired.
+ */
+@Getter
+public class ImpairmentScenario {
+    private static final Gson GSON = new Gson();
+
+    private long seed = 1;
+    private List<Step> steps = new ArrayList<>();
+
+    public static ImpairmentScenario load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            ImpairmentScenario scenario = GSON.fromJson(reader, ImpairmentScenario.class);
+            if (scenario == null) throw new IOException("Empty scenario: " + path);
+            if (scenario.steps == null) scenario.steps = new ArrayList<>();
+            scenario.steps.sort(Comparator.comparingLong(Step::getAt));
+            return scenario;
+        }
+    }
+
+    /**
+     * The conditions of a connection at a point of the scenario.
+     * @param elapsedMs Time since the scenario started
+     * @param id Connection id used for step selection
+     */
+    public ImpairmentProfile profile(long elapsedMs, int id, Direction direction) {
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            Step step = steps.get(i);
+            if (step.at > elapsedMs || !step.selects(id)) continue;
+            ImpairmentProfile profile = direction == Direction.UP ? step.up : step.down;
+            return profile != null ? profile : ImpairmentProfile.NONE;
+        }
+        return ImpairmentProfile.NONE;
+    }
+
+    public enum Direction {
+        UP,
+        DOWN
+    }
+
+    @Getter
+    public static class Step {
+        private long at = 0;
+        private int every = 1;
+        private int offset = 0;
+        private ImpairmentProfile up;
+        private ImpairmentProfile down;
+
+        boolean selects(int id) {
+            return every <= 1 || Math.floorMod(id, every) == offset;
+        }
+    }
+}
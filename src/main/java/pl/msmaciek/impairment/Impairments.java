@@ -0,0 +1,74 @@
+package pl.msmaciek.impairment;
+
+import lombok.Getter;
+import org.eclipse.jetty.websocket.api.Session;
+import pl.msmaciek.impairment.ImpairmentScenario.Direction;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Runs an {@link ImpairmentScenario} and hands out impaired links for connections.
+ * Inactive unless started; used by the standalone server and the load test client, never by the plugin.
+ * <p>
+ * Delayed messages are delivered on a single thread, which keeps delivery order deterministic.
+ */
+public class Impairments {
+    private static final Impairments INSTANCE = new Impairments();
+
+    @Getter private volatile ImpairmentScenario scenario;
+    private ScheduledExecutorService scheduler;
+    private long startNanos;
+
+    private Impairments() {}
+
+    public static Impairments getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(ImpairmentScenario scenario) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "VoiceChat-Impairment");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startNanos = System.nanoTime();
+        this.scenario = scenario;
+    }
+
+    public synchronized void stop() {
+        scenario = null;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public boolean isActive() {
+        return scenario != null;
+    }
+
+    /**
+     * Create the link for one direction of a connection, following the scenario timeline.
+     * @return The link, or null if no scenario is running
+     */
+    public synchronized ImpairedLink link(int id, Direction direction) {
+        ImpairmentScenario current = scenario;
+        if (current == null) return null;
+
+        long start = startNanos;
+        long seed = current.getSeed() * 31 + id * 2L + direction.ordinal();
+        return new ImpairedLink(scheduler,
+                () -> current.profile((System.nanoTime() - start) / 1_000_000, id, direction), seed);
+    }
+
+    /**
+     * Wrap a session so messages sent on it pass through the connection's downlink.
+     * @return The wrapped session, or the session itself if no scenario is running
+     */
+    public Session wrap(Session session, int id) {
+        ImpairedLink downlink = link(id, Direction.DOWN);
+        return downlink != null ? ImpairedSocket.wrap(session, downlink) : session;
+    }
+}
@@ -0,0 +1,51 @@
+package pl.msmaciek.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of named counters and gauges exported by the voice chat subsystems.
+ */
+public class VoiceChatMetrics {
+    private static final VoiceChatMetrics INSTANCE = new VoiceChatMetrics();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private VoiceChatMetrics() {}
+
+    public static VoiceChatMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get or create a counter. Callers should keep the returned adder instead of looking it up per event.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Register (or replace) a gauge sampled when metrics are read.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Current value of every counter and gauge, sorted by name.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+}
@@ -0,0 +1,127 @@
+package pl.msmaciek.moderation;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import pl.msmaciek.util.SerialExecutor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Players each player has blocked in voice chat. A blocked player is never relayed to the player who blocked them.
+ * <p>
+ * Lists are keyed by player UUID so they survive reconnects, and are saved to a JSON file
+ * of {@code {listener: {blocked: name}}} whenever they change.
+ */
+public class BlockList {
+    private static final BlockList INSTANCE = new BlockList();
+    private static final int MAX_BLOCKS_PER_PLAYER = 500;
+    private static final Type FILE_TYPE = new TypeToken<Map<UUID, Map<UUID, String>>>() {}.getType();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // listener -> blocked player -> blocked player's name when it was blocked
+    private final Map<UUID, Map<UUID, String>> blocks = new ConcurrentHashMap<>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final SerialExecutor saver = new SerialExecutor();
+    private volatile Path file;
+
+    private BlockList() {}
+
+    public static BlockList getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load block lists from the file and save future changes to it. A missing file is an empty list.
+     */
+    public synchronized void load(Path file) {
+        this.file = file;
+        blocks.clear();
+        if (!Files.exists(file)) return;
+
+        try (Reader reader = Files.newBufferedReader(file)) {
+            Map<UUID, Map<UUID, String>> loaded = GSON.fromJson(reader, FILE_TYPE);
+            if (loaded != null) {
+                loaded.forEach((listener, blocked) -> blocks.put(listener, new ConcurrentHashMap<>(blocked)));
+            }
+            System.out.println("[VoiceChat] Loaded block lists of " + blocks.size() + " players");
+        } catch (IOException | JsonParseException e) {
+            System.err.println("[VoiceChat] Failed to load block lists from " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the listener has blocked the speaker. Called for every relayed frame, so it only does map lookups.
+     */
+    public boolean isBlocked(UUID listener, UUID speaker) {
+        Map<UUID, String> blocked = blocks.get(listener);
+        return blocked != null && blocked.containsKey(speaker);
+    }
+
+    /**
+     * Block or unblock a player.
+     * @return false if the listener has already blocked as many players as allowed, or tried to block themselves
+     */
+    public boolean setBlocked(UUID listener, UUID player, String playerName, boolean block) {
+        if (listener.equals(player)) return false;
+
+        if (block) {
+            Map<UUID, String> blocked = blocks.computeIfAbsent(listener, k -> new ConcurrentHashMap<>());
+            if (blocked.size() >= MAX_BLOCKS_PER_PLAYER && !blocked.containsKey(player)) return false;
+            blocked.put(player, playerName);
+        } else {
+            Map<UUID, String> blocked = blocks.get(listener);
+            if (blocked == null || blocked.remove(player) == null) return true;
+            blocks.computeIfPresent(listener, (k, v) -> v.isEmpty() ? null : v);
+        }
+        scheduleSave();
+        return true;
+    }
+
+    /**
+     * Names of the players the listener has blocked, as they were when blocked.
+     */
+    public Collection<String> getBlockedNames(UUID listener) {
+        Map<UUID, String> blocked = blocks.get(listener);
+        return blocked != null ? List.copyOf(blocked.values()) : List.of();
+    }
+
+    private void scheduleSave() {
+        if (file == null || !saveScheduled.compareAndSet(false, true)) return;
+        saver.execute(() -> {
+            saveScheduled.set(false);
+            save();
+        });
+    }
+
+    private synchronized void save() {
+        Map<UUID, Map<UUID, String>> copy = new HashMap<>();
+        blocks.forEach((listener, blocked) -> copy.put(listener, new HashMap<>(blocked)));
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                GSON.toJson(copy, FILE_TYPE, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[VoiceChat] Failed to save block lists to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package pl.msmaciek.moderation;
+
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.session.UserSession;
+import pl.msmaciek.structs.Position;
+import pl.msmaciek.util.SerialExecutor;
+import pl.msmaciek.zone.AcousticZone;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional moderation recorder keeping the last few seconds of every speaker in off-heap rings,
+ * and exporting time-aligned WAV clips of a speaker and everyone within earshot.
+ * <p>
+ * Total ring memory is hard-capped; when all rings are in use the least recently active speaker's ring is reused.
+ * The relay thread only looks rings up: a new speaker's ring is allocated or reclaimed on a separate executor,
+ * and the frames arriving before it is ready are dropped.
+ */
+public class ClipRecorder {
+    private static final ClipRecorder INSTANCE = new ClipRecorder();
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final DateTimeFormatter FILE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Map<UUID, SpeakerRing> rings = new ConcurrentHashMap<>();
+    private final List<SpeakerRing> allocatedRings = new ArrayList<>();
+    private final AtomicInteger allocatedCount = new AtomicInteger();
+    // Speakers whose ring is being acquired, so a burst of frames queues one acquisition
+    private final Set<UUID> acquiring = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder framesRecorded = VoiceChatMetrics.getInstance().counter("recorder.frames.recorded");
+    private final LongAdder framesDropped = VoiceChatMetrics.getInstance().counter("recorder.frames.dropped");
+    private final LongAdder clipsExported = VoiceChatMetrics.getInstance().counter("recorder.clips.exported");
+
+    private volatile boolean enabled = false;
+    private int ringBytes;
+    private int maxRings;
+    private int bufferSeconds;
+    private Path exportDirectory;
+    private SerialExecutor exportExecutor;
+    private volatile SerialExecutor ringExecutor;
+
+    private ClipRecorder() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        metrics.gauge("recorder.memory.bytes", () -> (long) allocatedCount.get() * ringBytes);
+        metrics.gauge("recorder.memory.cap.bytes", () -> enabled ? (long) maxRings * ringBytes : 0);
+        metrics.gauge("recorder.speakers", rings::size);
+    }
+
+    public static ClipRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(VoiceChatConfig.RecordingConfig config) {
+        if (enabled) return;
+
+        bufferSeconds = Math.max(1, config.getBufferSeconds());
+        ringBytes = bufferSeconds * SAMPLE_RATE * BYTES_PER_SAMPLE;
+        long capBytes = (long) Math.max(1, config.getMaxMemoryMb()) * 1024 * 1024;
+        maxRings = (int) Math.max(1, capBytes / ringBytes);
+        exportDirectory = Path.of(config.getExportDirectory());
+        exportExecutor = new SerialExecutor();
+        ringExecutor = new SerialExecutor();
+        enabled = true;
+
+        System.out.println("[VoiceChat] Clip recorder enabled: " + bufferSeconds + "s per speaker, up to "
+                + maxRings + " speakers (" + (capBytes / (1024 * 1024)) + "MB off-heap cap)");
+    }
+
+    public synchronized void stop() {
+        if (!enabled) return;
+
+        enabled = false;
+        exportExecutor = null;
+        ringExecutor = null;
+        rings.clear();
+        acquiring.clear();
+        allocatedRings.clear();
+        allocatedCount.set(0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Copy a relayed frame into the speaker's ring. Never blocks: frames are dropped if the ring is busy.
+     */
+    public void record(UUID speaker, byte[] payload, int offset, int len) {
+        if (!enabled) return;
+
+        SpeakerRing ring = rings.get(speaker);
+        if (ring == null) {
+            requestRing(speaker);
+            framesDropped.increment();
+            return;
+        }
+
+        if (ring.tryWrite(speaker, System.currentTimeMillis(), payload, offset, len)) {
+            framesRecorded.increment();
+        } else {
+            framesDropped.increment();
+        }
+    }
+
+    /**
+     * Export the last seconds of audio from a speaker and every recorded speaker within earshot of them.
+     * @return Future completing with the written WAV file
+     */
+    public CompletableFuture<Path> exportClip(UUID speaker, String speakerName, int seconds) {
+        SerialExecutor executor = exportExecutor;
+        if (!enabled || executor == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Clip recorder is disabled"));
+        }
+
+        int clipSeconds = Math.min(Math.max(1, seconds), bufferSeconds);
+        long endMs = System.currentTimeMillis();
+        List<UUID> participants = findParticipants(speaker);
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                short[] mix = mix(participants, endMs - clipSeconds * 1000L, clipSeconds);
+                Files.createDirectories(exportDirectory);
+                Path file = exportDirectory.resolve("clip-" + speakerName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + LocalDateTime.now().format(FILE_FORMAT) + ".wav");
+                writeWav(file, mix);
+                clipsExported.increment();
+                return file;
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write clip: " + e.getMessage(), e);
+            }
+        }, executor);
+    }
+
+    private void requestRing(UUID speaker) {
+        SerialExecutor executor = ringExecutor;
+        if (executor == null || !acquiring.add(speaker)) return;
+
+        boolean queued = executor.offer(() -> {
+            try {
+                acquireRing(speaker);
+            } finally {
+                acquiring.remove(speaker);
+            }
+        });
+        if (!queued) acquiring.remove(speaker);
+    }
+
+    /**
+     * Allocate a ring for a speaker, or reclaim the least recently active one at the memory cap.
+     * Runs on the ring executor; if the chosen ring is being exported, the next frame retries.
+     */
+    private synchronized void acquireRing(UUID speaker) {
+        if (!enabled || rings.containsKey(speaker)) return;
+
+        SpeakerRing ring;
+        if (allocatedRings.size() < maxRings) {
+            ring = new SpeakerRing(ringBytes);
+            ring.tryReset(speaker);
+            allocatedRings.add(ring);
+            allocatedCount.incrementAndGet();
+        } else {
+            // Memory cap reached - reuse the ring of the least recently active speaker
+            ring = allocatedRings.get(0);
+            for (SpeakerRing candidate : allocatedRings) {
+                if (candidate.getLastWriteMs() < ring.getLastWriteMs()) ring = candidate;
+            }
+            UUID previousOwner = ring.getOwner();
+            if (!ring.tryReset(speaker)) return;
+            if (previousOwner != null) rings.remove(previousOwner, ring);
+        }
+
+        rings.put(speaker, ring);
+    }
+
+    /**
+     * The speaker plus every recorded speaker who currently hears them or is heard by them,
+     * using the zone cutoff of the listening side like the relay does.
+     */
+    private List<UUID> findParticipants(UUID speaker) {
+        List<UUID> participants = new ArrayList<>();
+        participants.add(speaker);
+
+        VoiceChatConfig.AudioConfig audio = ConfigHolder.get().getAudio();
+        Position speakerPos = PlayerTracker.getInstance().getPosition(speaker);
+        if (speakerPos == null) return participants;
+        double speakerCutoff = serverCutoff(speaker, audio);
+
+        for (UUID other : rings.keySet()) {
+            if (other.equals(speaker)) continue;
+            Position otherPos = PlayerTracker.getInstance().getPosition(other);
+            if (otherPos == null || !speakerPos.isSameWorld(otherPos)) continue;
+
+            double cutoff = Math.max(speakerCutoff, serverCutoff(other, audio));
+            if (speakerPos.distanceTo(otherPos) <= cutoff) {
+                participants.add(other);
+            }
+        }
+        return participants;
+    }
+
+    /**
+     * Distance within which a player is sent audio, from the zone they stood in at the last snapshot tick.
+     */
+    private static double serverCutoff(UUID player, VoiceChatConfig.AudioConfig audio) {
+        UserSession session = SessionManager.getInstance().getByUuid(player);
+        AcousticZone zone = session != null ? session.getZone() : AcousticZone.NONE;
+        return zone.serverCutoff(audio);
+    }
+
+    /**
+     * Mix all participants onto one timeline, placing each frame so that it ends at its arrival time.
+     */
+    private short[] mix(List<UUID> participants, long fromMs, int seconds) {
+        int totalSamples = seconds * SAMPLE_RATE;
+        int[] sum = new int[totalSamples];
+
+        for (UUID participant : participants) {
+            SpeakerRing ring = rings.get(participant);
+            if (ring == null) continue;
+
+            int cursor = 0;
+            for (SpeakerRing.Frame frame : ring.readSince(fromMs)) {
+                ByteBuffer pcm = ByteBuffer.wrap(frame.pcm()).order(ByteOrder.LITTLE_ENDIAN);
+                int samples = frame.pcm().length / BYTES_PER_SAMPLE;
+                int start = (int) ((frame.timeMs() - fromMs) * SAMPLE_RATE / 1000) - samples;
+                // Frames arriving back-to-back are contiguous audio - don't let network jitter overlap them
+                if (start < cursor && cursor - start < samples) start = cursor;
+
+                for (int i = 0; i < samples; i++) {
+                    int index = start + i;
+                    short sample = pcm.getShort(i * BYTES_PER_SAMPLE);
+                    if (index >= 0 && index < totalSamples) sum[index] += sample;
+                }
+                cursor = start + samples;
+            }
+        }
+
+        short[] mix = new short[totalSamples];
+        for (int i = 0; i < totalSamples; i++) {
+            mix[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+        }
+        return mix;
+    }
+
+    private static void writeWav(Path file, short[] samples) throws IOException {
+        int dataBytes = samples.length * BYTES_PER_SAMPLE;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1) // PCM
+                .putShort((short) 1) // mono
+                .putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * BYTES_PER_SAMPLE)
+                .putShort((short) BYTES_PER_SAMPLE)
+                .putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataBytes);
+        for (short sample : samples) wav.putShort(sample);
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(wav.array());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package pl.msmaciek.moderation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size off-heap ring holding the most recent audio of a single speaker.
+ * Frame boundaries and arrival times are kept in a small fixed on-heap index.
+ */
+class SpeakerRing {
+    private static final int INDEX_SIZE = 4096;
+
+    private final ByteBuffer data;
+    private final int capacity;
+
+    private final long[] frameTimes = new long[INDEX_SIZE];
+    private final long[] frameStarts = new long[INDEX_SIZE];
+    private final int[] frameLengths = new int[INDEX_SIZE];
+    private long frameCount;
+    private long written;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile UUID owner;
+    private volatile long lastWriteMs;
+
+    SpeakerRing(int capacity) {
+        this.capacity = capacity;
+        this.data = ByteBuffer.allocateDirect(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    UUID getOwner() {
+        return owner;
+    }
+
+    long getLastWriteMs() {
+        return lastWriteMs;
+    }
+
+    /**
+     * Append a frame unless an export is currently reading this ring.
+     * @return false if the frame was dropped because the ring was busy or has been reassigned
+     */
+    boolean tryWrite(UUID speaker, long timeMs, byte[] payload, int offset, int len) {
+        if (!lock.tryLock()) return false;
+        try {
+            if (!speaker.equals(owner)) return false;
+
+            if (len > capacity) {
+                // Keep only the newest part of an oversized frame
+                offset += len - capacity;
+                len = capacity;
+            }
+
+            int pos = (int) (written % capacity);
+            int first = Math.min(len, capacity - pos);
+            data.put(pos, payload, offset, first);
+            if (first < len) {
+                data.put(0, payload, offset + first, len - first);
+            }
+
+            int slot = (int) (frameCount % INDEX_SIZE);
+            frameTimes[slot] = timeMs;
+            frameStarts[slot] = written;
+            frameLengths[slot] = len;
+            frameCount++;
+            written += len;
+            lastWriteMs = timeMs;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reassign this ring to a new speaker, discarding its contents.
+     * @return false if the ring is busy and could not be reset without blocking
+     */
+    boolean tryReset(UUID newOwner) {
+        if (!lock.tryLock()) return false;
+        try {
+            frameCount = 0;
+            written = 0;
+            owner = newOwner;
+            lastWriteMs = System.currentTimeMillis();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy all frames that arrived at or after the given time and have not been overwritten yet.
+     */
+    List<Frame> readSince(long fromMs) {
+        List<Frame> frames = new ArrayList<>();
+        lock.lock();
+        try {
+            long oldestValid = written - capacity;
+            for (long i = Math.max(0, frameCount - INDEX_SIZE); i < frameCount; i++) {
+                int slot = (int) (i % INDEX_SIZE);
+                if (frameStarts[slot] < oldestValid || frameTimes[slot] < fromMs) continue;
+
+                int len = frameLengths[slot];
+                byte[] pcm = new byte[len];
+                int pos = (int) (frameStarts[slot] % capacity);
+                int first = Math.min(len, capacity - pos);
+                data.get(pos, pcm, 0, first);
+                if (first < len) {
+                    data.get(0, pcm, first, len - first);
+                }
+                frames.add(new Frame(frameTimes[slot], pcm));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return frames;
+    }
+
+    record Frame(long timeMs, byte[] pcm) {}
+}
@@ -1,16 +1,14 @@
 package pl.msmaciek.nameplate;
 
-import com.hypixel.hytale.server.core.entity.nameplate.Nameplate;
-import com.hypixel.hytale.server.core.universe.PlayerRef;
-import com.hypixel.hytale.server.core.universe.Universe;
-import com.hypixel.hytale.server.core.universe.world.World;
-import pl.msmaciek.Main;
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.session.TickGovernor;
+import pl.msmaciek.util.VoiceChatExecutors;
+import pl.msmaciek.world.WorldAdapter;
 
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,6 +20,7 @@ public class NameplateManager {
     private static final String TALKING_SUFFIX = " (Talking)";
     private static final String NOT_CONNECTED_SUFFIX = " (No voice chat)";
     private static final long TALKING_TIMEOUT_MS = 500; // How long to show suffix after last audio packet
+    private static final int SLOW_REFRESH_DIVISOR = 10; // Refresh once a second while the tick governor sheds load
 
     // Track when players last spoke
     private final Map<UUID, Long> lastTalkTime = new ConcurrentHashMap<>();
@@ -29,7 +28,9 @@ public class NameplateManager {
     // Track which players are connected to voice chat
     private final Map<UUID, Boolean> connectedPlayers = new ConcurrentHashMap<>();
 
-    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> refresh;
+    private WorldAdapter world;
+    private int refreshCount = 0;
 
     private NameplateManager() {}
 
@@ -37,33 +38,23 @@ public class NameplateManager {
         return INSTANCE;
     }
 
-    public void removeOldNameplates(PlayerRef playerRef) {
-        Nameplate nameplate = playerRef.getComponent(Nameplate.getComponentType());
-        if (nameplate == null) return;
-
-        String text = playerRef.getUsername();
-        text = text.replace(TALKING_SUFFIX, "");
-        text = text.replace(NOT_CONNECTED_SUFFIX, "");
-        nameplate.setText(text);
-    }
-
     /**
      * Start the nameplate update scheduler
      */
-    public void start() {
-        if (scheduler != null) return;
+    public void start(WorldAdapter world) {
+        if (refresh != null) return;
 
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(this::updateAllNameplates, 0, 100, TimeUnit.MILLISECONDS);
+        this.world = world;
+        refresh = VoiceChatExecutors.getInstance().scheduler().scheduleAtFixedRate(this::updateAllNameplates, 0, 100, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Stop the nameplate update scheduler
      */
     public void stop() {
-        if (scheduler != null) {
-            scheduler.shutdown();
-            scheduler = null;
+        if (refresh != null) {
+            refresh.cancel(false);
+            refresh = null;
         }
         lastTalkTime.clear();
         connectedPlayers.clear();
@@ -95,40 +86,19 @@ public class NameplateManager {
      * Update all player nameplates based on their voice chat status
      */
     private void updateAllNameplates() {
-        if (!Main.CONFIG.get().getGeneral().isOverrideNameplates()) return;
-
-        Universe universe = Universe.get();
-        if (universe == null) return;
-
-        for (PlayerRef playerRef : universe.getPlayers()) {
-            UUID playerUuid = playerRef.getUuid();
-            UUID worldUuid = playerRef.getWorldUuid();
-
-            if (worldUuid == null) continue;
-            World world = universe.getWorld(worldUuid);
-            if (world == null) continue;
-            world.execute(() -> updateNameplate(playerRef, playerUuid));
-        }
+        if (!ConfigHolder.get().getGeneral().isOverrideNameplates()) return;
+        if (++refreshCount % SLOW_REFRESH_DIVISOR != 0
+                && TickGovernor.getInstance().isShedding(TickGovernor.Level.SLOW_NAMEPLATES)) return;
+        world.updateNameplates(this::suffix);
     }
 
     /**
-     * Update a single player's nameplate
+     * Voice chat status shown after a player's name
      */
-    private void updateNameplate(PlayerRef playerRef, UUID playerUuid) {
-        Nameplate nameplate = playerRef.getComponent(Nameplate.getComponentType());
-        if (nameplate == null) return;
-
-        boolean isTalking = isTalking(playerUuid);
-        boolean isConnected = isConnected(playerUuid);
-
-        String text = playerRef.getUsername();
-        if (isTalking) {
-            text += TALKING_SUFFIX;
-        } else if (!isConnected) {
-            text += NOT_CONNECTED_SUFFIX;
-        }
-
-        nameplate.setText(text);
+    public String suffix(UUID playerUuid) {
+        if (isTalking(playerUuid)) return TALKING_SUFFIX;
+        if (!isConnected(playerUuid)) return NOT_CONNECTED_SUFFIX;
+        return "";
     }
 
     public boolean isConnected(UUID playerUuid) {
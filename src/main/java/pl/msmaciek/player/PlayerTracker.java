@@ -1,25 +1,23 @@
 package pl.msmaciek.player;
 
+import pl.msmaciek.session.IdentityRegistry;
 import pl.msmaciek.structs.Position;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Tracks online players, their positions, and voice chat session assignments.
+ * Tracks online players and their positions.
+ * Identity lookups and voice session claims are delegated to the {@link IdentityRegistry}.
  */
 public class PlayerTracker {
     private static final PlayerTracker INSTANCE = new PlayerTracker();
 
-    // UUID -> Username mapping for online players
-    private final Map<UUID, String> onlinePlayers = new ConcurrentHashMap<>();
+    private final IdentityRegistry identities = IdentityRegistry.getInstance();
 
     // UUID -> Current position
     private final Map<UUID, Position> playerPositions = new ConcurrentHashMap<>();
 
-    // Username -> Session assignment (to prevent duplicate claims in NO_AUTH mode)
-    private final Set<String> assignedUsernames = ConcurrentHashMap.newKeySet();
-
 
     private PlayerTracker() {}
 
@@ -31,7 +29,7 @@ public class PlayerTracker {
      * Called when a player joins the Hytale server.
      */
     public void playerJoined(UUID uuid, String username) {
-        onlinePlayers.put(uuid, username);
+        identities.playerJoined(uuid, username);
 
         // Initialize position at origin
         playerPositions.put(uuid, new Position(0, 0, 0));
@@ -41,12 +39,8 @@ public class PlayerTracker {
      * Called when a player leaves the Hytale server.
      */
     public void playerLeft(UUID uuid) {
-        String username = onlinePlayers.remove(uuid);
+        identities.playerLeft(uuid);
         playerPositions.remove(uuid);
-
-        if (username != null) {
-            assignedUsernames.remove(username.toLowerCase());
-        }
     }
 
     /**
@@ -79,74 +73,38 @@ public class PlayerTracker {
      * Get UUID by username (case-insensitive).
      */
     public UUID getUuidByUsername(String username) {
-        for (Map.Entry<UUID, String> entry : onlinePlayers.entrySet()) {
-            if (entry.getValue().equalsIgnoreCase(username)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return identities.getUuid(username);
     }
 
     /**
      * Get username by UUID.
      */
     public String getUsername(UUID uuid) {
-        return onlinePlayers.get(uuid);
+        return identities.getUsername(uuid);
     }
 
     /**
      * Check if a username is online.
      */
     public boolean isOnline(String username) {
-        return getUuidByUsername(username) != null;
+        return identities.isOnline(username);
     }
 
     /**
-     * Get all online usernames that haven't been assigned to a voice session (for NO_AUTH mode).
+     * Get all online usernames that haven't been claimed by a voice session.
      */
     public List<String> getUnassignedOnlineUsernames() {
         List<String> available = new ArrayList<>();
 
-        for (String username : onlinePlayers.values()) {
-            if (!assignedUsernames.contains(username.toLowerCase())) {
-                available.add(username);
+        for (Map.Entry<UUID, String> entry : identities.getOnlinePlayers().entrySet()) {
+            if (!identities.isClaimed(entry.getKey())) {
+                available.add(entry.getValue());
             }
         }
 
         return available;
     }
 
-    /**
-     * Try to claim a username for a voice chat session.
-     * @return true if successfully claimed, false if already taken or invalid
-     */
-    public boolean tryClaimUsername(String username) {
-        String lowerUsername = username.toLowerCase();
-
-        // Check if username is online
-        UUID uuid = getUuidByUsername(username);
-        if (uuid == null) {
-            return false; // Player not online
-        }
-
-        // Check if already assigned
-        if (assignedUsernames.contains(lowerUsername)) {
-            return false;
-        }
-
-        assignedUsernames.add(lowerUsername);
-        return true;
-    }
-
-    /**
-     * Release a username claim when session disconnects.
-     */
-    public void releaseUsername(String username) {
-        if (username != null) {
-            assignedUsernames.remove(username.toLowerCase());
-        }
-    }
-
     /**
      * Get all online player positions for broadcasting.
      */
@@ -158,6 +116,6 @@ public class PlayerTracker {
      * Get all online players.
      */
     public Map<UUID, String> getOnlinePlayers() {
-        return Collections.unmodifiableMap(onlinePlayers);
+        return identities.getOnlinePlayers();
     }
 }
@@ -0,0 +1,22 @@
+package pl.msmaciek.protocol;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * A decoded client message. Only the fields used by the server are kept.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ClientMessage {
+    private final ClientMessageType type;
+    private final String token;     // resume
+    private final long timestamp;   // ping
+    private final long seq;         // server_pong
+    private final boolean deafened; // subscription
+    private final Set<Integer> muted; // subscription
+    private final int id;           // block
+    private final boolean blocked;  // block
+}
@@ -0,0 +1,36 @@
+package pl.msmaciek.protocol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Types of text messages a browser client can send.
+ */
+public enum ClientMessageType {
+    CHECK_VERIFICATION("check_verification"),
+    JOIN("join"),
+    RESUME("resume"),
+    PING("ping"),
+    SERVER_PONG("server_pong"),
+    SUBSCRIPTION("subscription"),
+    BLOCK("block"),
+    UNKNOWN(null);
+
+    private static final Map<String, ClientMessageType> BY_WIRE_NAME = new HashMap<>();
+
+    static {
+        for (ClientMessageType type : values()) {
+            if (type.wireName != null) BY_WIRE_NAME.put(type.wireName, type);
+        }
+    }
+
+    private final String wireName;
+
+    ClientMessageType(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public static ClientMessageType fromWireName(String wireName) {
+        return BY_WIRE_NAME.getOrDefault(wireName, UNKNOWN);
+    }
+}
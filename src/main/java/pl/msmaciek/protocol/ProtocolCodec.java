@@ -0,0 +1,334 @@
+package pl.msmaciek.protocol;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.session.AudioTier;
+import pl.msmaciek.session.UserSession;
+import pl.msmaciek.structs.Position;
+import pl.msmaciek.zone.AcousticZone;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes and decodes the WebSocket control messages.
+ * <p>
+ * Messages are streamed with Gson's {@link JsonWriter}/{@link JsonReader} instead of building a tree.
+ * Output goes into a per-thread reused buffer, and messages without variable fields are encoded once.
+ * The output is the same as Gson's default (HTML-safe) serialization.
+ */
+public final class ProtocolCodec {
+    private static final int MAX_RETAINED_BUFFER_CHARS = 64 * 1024;
+    private static final int MAX_MUTED_IDS = 1000;
+    private static final ThreadLocal<BufferWriter> BUFFER = ThreadLocal.withInitial(BufferWriter::new);
+    private static final String[] ESCAPES = escapes();
+
+    public static final String RESUME_FAILED = encode("resume_failed", w -> {});
+    public static final String VERIFICATION_EXPIRED = encode("verification_expired", w -> {});
+
+    public static final String KICKED_REPLACED = kicked("Another session connected with this account.");
+    public static final String KICKED_PLAYER_LEFT = kicked("Player left the game server.");
+    public static final String KICKED_TOO_MANY_PENDING = kicked("Too many pending voice chat connections from your address.");
+    public static final String KICKED_SERVER_FULL = kicked("Voice chat is full. Please try again later.");
+    public static final String KICKED_TOO_MANY_CONNECTIONS = kicked("Too many voice chat connections from your address.");
+    public static final String KICKED_REPLAYING = kicked("Voice chat is unavailable while a recording is replayed.");
+    public static final String KICKED_HANDSHAKE_TIMEOUT = kicked("Timed out waiting to join. Refresh to get a new code.");
+
+    public static final String JOIN_ERROR_NOT_VERIFIED = joinError("Please verify first by typing the command in game chat.");
+    public static final String JOIN_ERROR_VERIFICATION_EXPIRED = joinError("Verification expired. Please refresh and try again.");
+    public static final String JOIN_ERROR_OFFLINE = joinError("Player is no longer online.");
+    public static final String JOIN_ERROR_ALREADY_JOINED = joinError("This player is already in voice chat.");
+
+    private ProtocolCodec() {}
+
+    // --- Decoding ---
+
+    /**
+     * Decode a client message, reading only the fields the server uses.
+     * @throws IllegalArgumentException if the message is not a JSON object
+     */
+    public static ClientMessage decode(String message) {
+        ClientMessageType type = ClientMessageType.UNKNOWN;
+        String token = null;
+        long timestamp = 0;
+        long seq = 0;
+        boolean deafened = false;
+        Set<Integer> muted = Set.of();
+        int id = 0;
+        boolean blocked = false;
+
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "type" -> type = ClientMessageType.fromWireName(reader.nextString());
+                    case "token" -> token = reader.nextString();
+                    case "timestamp" -> timestamp = (long) reader.nextDouble();
+                    case "seq" -> seq = reader.nextLong();
+                    case "deafened" -> deafened = reader.nextBoolean();
+                    case "muted" -> muted = readIds(reader);
+                    case "id" -> id = reader.nextInt();
+                    case "blocked" -> blocked = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed client message: " + e.getMessage(), e);
+        }
+        return new ClientMessage(type, token, timestamp, seq, deafened, muted, id, blocked);
+    }
+
+    private static Set<Integer> readIds(JsonReader reader) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (ids.size() >= MAX_MUTED_IDS) {
+                reader.skipValue();
+            } else {
+                ids.add(reader.nextInt());
+            }
+        }
+        reader.endArray();
+        return ids;
+    }
+
+    // --- Encoding ---
+
+    public static String id(int odapId) {
+        return encode("id", w -> w.name("id").value(odapId));
+    }
+
+    /**
+     * Client audio settings as they apply inside the given zone.
+     */
+    public static String config(VoiceChatConfig config, AcousticZone zone) {
+        VoiceChatConfig.AudioConfig audio = config.getAudio();
+        return encode("config", w -> {
+            w.name("maxDistance").value(zone.maxDistance(audio));
+            w.name("distanceFormula").value(zone.distanceFormula(audio).name());
+            w.name("voiceDimension").value(audio.getVoiceDimension().toString());
+            w.name("rolloffFactor").value(zone.rolloffFactor(audio));
+            w.name("refDistance").value(zone.refDistance(audio));
+            w.name("blend2dDistance").value(audio.getBlend2dDistance());
+            w.name("full3dDistance").value(audio.getFull3dDistance());
+            w.name("normalized").value(config.getLoudness().isEnabled());
+        });
+    }
+
+    public static String verificationCode(String code) {
+        return encode("verification_code", w -> {
+            w.name("code").value(code);
+            w.name("command").value("/voicechat " + code);
+        });
+    }
+
+    public static String verificationStatus(boolean verified, String username) {
+        return encode("verification_status", w -> {
+            w.name("verified").value(verified);
+            if (username != null) {
+                w.name("username").value(username);
+            }
+        });
+    }
+
+    public static String pong(long timestamp) {
+        return encode("pong", w -> w.name("timestamp").value(timestamp));
+    }
+
+    /**
+     * Server-originated ping; the client answers with server_pong carrying the same seq.
+     */
+    public static String serverPing(long seq) {
+        return encode("server_ping", w -> w.name("seq").value(seq));
+    }
+
+    /**
+     * Tell a listener which quality tier its audio is now sent in.
+     */
+    public static String audioTier(AudioTier tier) {
+        return encode("audio_tier", w -> {
+            w.name("tier").value(tier.name());
+            w.name("sampleRate").value(tier.getSampleRate());
+        });
+    }
+
+    /**
+     * Names of the players this listener has blocked, sent after joining and whenever the list changes.
+     */
+    public static String blocked(Collection<String> names) {
+        return encode("blocked", w -> {
+            w.name("names").beginArray();
+            for (String name : names) w.value(name);
+            w.endArray();
+        });
+    }
+
+    public static String kicked(String reason) {
+        return encode("kicked", w -> w.name("reason").value(reason));
+    }
+
+    public static String joinError(String error) {
+        return encode("join_error", w -> w.name("error").value(error));
+    }
+
+    public static String joinSuccess(int odapId, String name, boolean resumed, String resumeToken) {
+        return encode("join_success", w -> {
+            w.name("id").value(odapId);
+            w.name("name").value(name);
+            w.name("resumed").value(resumed);
+            w.name("resumeToken").value(resumeToken);
+        });
+    }
+
+    /**
+     * Encode a player entry of a snapshot: {"id":..,"name":..,"x":..,"y":..,"z":..,"yaw":..}
+     */
+    public static String playerEntry(UserSession session, Position pos) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("{\"id\":").append(session.getOdapId());
+        sb.append(",\"name\":");
+        appendString(sb, session.getName());
+        sb.append(",\"x\":").append(pos.getX());
+        sb.append(",\"y\":").append(pos.getY());
+        sb.append(",\"z\":").append(pos.getZ());
+        sb.append(",\"yaw\":").append(pos.getYaw());
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Append a JSON string literal, escaped the same way as Gson's HTML-safe writer.
+     */
+    public static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escaped;
+            if (c < ESCAPES.length) {
+                escaped = ESCAPES[c];
+                if (escaped == null) continue;
+            } else if (c == '\u2028') {
+                escaped = "\\u2028";
+            } else if (c == '\u2029') {
+                escaped = "\\u2029";
+            } else {
+                continue;
+            }
+            sb.append(value, last, i).append(escaped);
+            last = i + 1;
+        }
+        sb.append(value, last, length).append('"');
+    }
+
+    /**
+     * Escape sequence per ASCII character, null where it is written as is. Mirrors Gson's HTML-safe replacement table.
+     */
+    private static String[] escapes() {
+        String[] escapes = new String[128];
+        for (char c = 0; c < 0x20; c++) {
+            escapes[c] = unicodeEscape(c);
+        }
+        escapes['"'] = "\\\"";
+        escapes['\\'] = "\\\\";
+        escapes['\t'] = "\\t";
+        escapes['\b'] = "\\b";
+        escapes['\n'] = "\\n";
+        escapes['\r'] = "\\r";
+        escapes['\f'] = "\\f";
+        for (char c : new char[]{'<', '>', '&', '=', '\''}) {
+            escapes[c] = unicodeEscape(c);
+        }
+        return escapes;
+    }
+
+    private static String unicodeEscape(char c) {
+        char[] hex = "0123456789abcdef".toCharArray();
+        return new String(new char[]{'\\', 'u', hex[c >> 12], hex[(c >> 8) & 0xF], hex[(c >> 4) & 0xF], hex[c & 0xF]});
+    }
+
+    private static String encode(String type, Body body) {
+        BufferWriter buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            JsonWriter writer = new JsonWriter(buffer);
+            writer.setHtmlSafe(true);
+            writer.beginObject();
+            writer.name("type").value(type);
+            body.write(writer);
+            writer.endObject();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String json = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+            BUFFER.remove();
+        }
+        return json;
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Unsynchronized {@link Writer} over a reusable {@link StringBuilder}.
+     */
+    private static final class BufferWriter extends Writer {
+        private final StringBuilder sb = new StringBuilder(256);
+
+        void reset() {
+            sb.setLength(0);
+        }
+
+        int capacity() {
+            return sb.capacity();
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            sb.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(int c) {
+            sb.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            sb.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package pl.msmaciek.server;
+
+import pl.msmaciek.capture.ReplayDriver;
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.protocol.ProtocolCodec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps open voice connections, in total and per source IP, before any session state is allocated for them.
+ * Limits are read from the config on every connection, so a reload applies to the next one.
+ * No connection is admitted while a capture is replayed through the live pipeline.
+ */
+public class AdmissionControl {
+    private static final AdmissionControl INSTANCE = new AdmissionControl();
+
+    private final AtomicInteger connections = new AtomicInteger();
+    // Open connections per limited source IP; entries are created and removed atomically with their count
+    private final Map<String, Integer> connectionsPerIp = new ConcurrentHashMap<>();
+    private final LongAdder rejectedFull;
+    private final LongAdder rejectedIp;
+
+    private AdmissionControl() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        rejectedFull = metrics.counter("admission.rejected.full");
+        rejectedIp = metrics.counter("admission.rejected.ip");
+        metrics.gauge("admission.connections", connections::get);
+    }
+
+    public static AdmissionControl getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Count a new connection against the limits.
+     * @param sourceIp The client's address, or null if it can't be told apart (not limited per IP)
+     * @return The admission, to be released when the connection closes; check {@link Admission#isAdmitted()}
+     */
+    public Admission admit(String sourceIp) {
+        if (ReplayDriver.isRunning()) {
+            return new Admission(ProtocolCodec.KICKED_REPLAYING, null);
+        }
+
+        VoiceChatConfig.GeneralConfig general = ConfigHolder.get().getGeneral();
+
+        int max = general.getMaxConnections();
+        if (connections.incrementAndGet() > max && max > 0) {
+            connections.decrementAndGet();
+            rejectedFull.increment();
+            return new Admission(ProtocolCodec.KICKED_SERVER_FULL, null);
+        }
+
+        int maxPerIp = general.getMaxConnectionsPerIp();
+        if (sourceIp == null || maxPerIp <= 0) {
+            return new Admission(null, null);
+        }
+
+        boolean[] admitted = new boolean[1];
+        connectionsPerIp.compute(sourceIp, (ip, count) -> {
+            int current = count != null ? count : 0;
+            admitted[0] = current < maxPerIp;
+            return admitted[0] ? current + 1 : count;
+        });
+        if (!admitted[0]) {
+            connections.decrementAndGet();
+            rejectedIp.increment();
+            return new Admission(ProtocolCodec.KICKED_TOO_MANY_CONNECTIONS, null);
+        }
+        return new Admission(null, sourceIp);
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    private void releaseIp(String sourceIp) {
+        connectionsPerIp.computeIfPresent(sourceIp, (ip, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * One connection's slot. Releasing is idempotent and does nothing for a rejected connection.
+     */
+    public final class Admission {
+        private final String rejection;
+        private final String sourceIp; // null when the source IP is not limited
+        private final AtomicBoolean released;
+
+        private Admission(String rejection, String sourceIp) {
+            this.rejection = rejection;
+            this.sourceIp = sourceIp;
+            this.released = new AtomicBoolean(rejection != null);
+        }
+
+        public boolean isAdmitted() {
+            return rejection == null;
+        }
+
+        /**
+         * The kicked message explaining a rejection, null if admitted.
+         */
+        public String getRejection() {
+            return rejection;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) return;
+
+            connections.decrementAndGet();
+            if (sourceIp != null) releaseIp(sourceIp);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pl.msmaciek.server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import pl.msmaciek.config.ConfigHolder;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+
+/**
+ * Resolves the client IP of a WebSocket connection for per-address limits.
+ */
+public final class ClientAddresses {
+
+    private ClientAddresses() {}
+
+    /**
+     * Get the client IP. Connections from the same host or on the unix socket are told apart by X-Forwarded-For
+     * only if {@code General.TrustForwardedFor} says a trusted reverse proxy is in front.
+     * @return The client IP, or null if it can't be told apart from other clients (e.g. through the SSH tunnel)
+     */
+    public static String resolve(Session session) {
+        String forwardedFor = session.getUpgradeRequest() != null ? session.getUpgradeRequest().getHeader("X-Forwarded-For") : null;
+        return resolve(session.getRemoteAddress(), forwardedFor, ConfigHolder.get().getGeneral().isTrustForwardedFor());
+    }
+
+    /**
+     * @param forwardedFor The X-Forwarded-For header, or null
+     * @param trustForwardedFor Whether local connections come from a proxy that appends the client IP to the header
+     */
+    static String resolve(SocketAddress remote, String forwardedFor, boolean trustForwardedFor) {
+        boolean local;
+        if (remote instanceof UnixDomainSocketAddress) {
+            local = true;
+        } else if (remote instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            local = inet.getAddress().isLoopbackAddress();
+            if (!local) return inet.getAddress().getHostAddress();
+        } else {
+            return null;
+        }
+
+        // Tunnelled clients also come from localhost and can send any header they like
+        return local && trustForwardedFor ? lastForwarded(forwardedFor) : null;
+    }
+
+    /**
+     * The rightmost entry, the one appended by the proxy; entries left of it come from the client.
+     */
+    private static String lastForwarded(String forwardedFor) {
+        if (forwardedFor == null) return null;
+        String last = forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+        return last.isEmpty() ? null : last;
+    }
+}
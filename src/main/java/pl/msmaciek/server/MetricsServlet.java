@@ -0,0 +1,30 @@
+package pl.msmaciek.server;
+
+import com.google.gson.stream.JsonWriter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Serves the current {@link VoiceChatMetrics} as a flat JSON object.
+ * Only mounted by the standalone server, so load tests can read server-side counters.
+ */
+public class MetricsServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonWriter writer = new JsonWriter(response.getWriter())) {
+            writer.beginObject();
+            for (Map.Entry<String, Long> entry : VoiceChatMetrics.getInstance().snapshot().entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue());
+            }
+            writer.endObject();
+        }
+    }
+}
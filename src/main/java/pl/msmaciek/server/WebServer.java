@@ -1,7 +1,8 @@
 package pl.msmaciek.server;
 
-import com.hypixel.hytale.logger.HytaleLogger;
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.SecureRequestCustomizer;
@@ -11,35 +12,56 @@ import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.server.handler.HandlerList;
 import org.eclipse.jetty.server.handler.ResourceHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.unixdomain.server.UnixDomainServerConnector;
+import org.eclipse.jetty.util.BlockingArrayQueue;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.websocket.server.config.JettyWebSocketServletContainerInitializer;
 import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
 import pl.msmaciek.websocket.VoiceChatEndpoint;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 
 /**
  * Manages the embedded Jetty WebSocket server for voice chat.
+ * <p>
+ * Listens on a TCP port, or on a unix domain socket for a reverse proxy on the same host.
+ * Acceptors, selectors, buffers and timeouts of either connector come from {@link VoiceChatConfig.ServerConfig}.
  */
 public class WebServer {
-    private final HytaleLogger logger;
+    private final BiConsumer<Level, String> logger;
     private final VoiceChatConfig config;
     private Server server;
     private boolean sslEnabled;
     private final boolean forceSSLDisabled;
+    private boolean metricsEnabled = false;
 
-    public WebServer(HytaleLogger logger, VoiceChatConfig config) {
+    public WebServer(BiConsumer<Level, String> logger, VoiceChatConfig config) {
         this(logger, config, false);
     }
 
-    public WebServer(HytaleLogger logger, VoiceChatConfig config, boolean forceSSLDisabled) {
+    public WebServer(BiConsumer<Level, String> logger, VoiceChatConfig config, boolean forceSSLDisabled) {
         this.logger = logger;
         this.config = config;
         this.forceSSLDisabled = forceSSLDisabled;
     }
 
+    /**
+     * Serve metrics as JSON at /metrics. Must be called before starting.
+     */
+    public void enableMetrics() {
+        this.metricsEnabled = true;
+    }
+
     /**
      * Start the web server in a daemon thread.
      */
@@ -54,16 +76,14 @@ public class WebServer {
      */
     public void start() {
         try {
-            server = new Server();
-
-            ServerConnector connector = createConnector();
-            connector.setPort(config.getServer().getWebSocketPort());
-            server.addConnector(connector);
+            server = new Server(createThreadPool());
+            server.addConnector(createConnector());
 
             setupHandlers();
 
             String protocol = sslEnabled ? "https" : "http";
-            log(Level.INFO, "Starting Voice Chat WebSocket server on port " + config.getServer().getWebSocketPort() + " (" + protocol + ")");
+            String address = isUnixSocket() ? "unix socket " + config.getServer().getUnixSocketPath() : "port " + config.getServer().getWebSocketPort();
+            log(Level.INFO, "Starting Voice Chat WebSocket server on " + address + " (" + protocol + ")");
 
             server.start();
             server.join();
@@ -86,24 +106,82 @@ public class WebServer {
         }
     }
 
-    private ServerConnector createConnector() {
-        if (forceSSLDisabled || !config.getServer().isUseSSL()) {
+    /**
+     * Jetty's pool with the configured bounds. A full queue makes Jetty refuse new work instead of queueing it forever.
+     */
+    private QueuedThreadPool createThreadPool() {
+        VoiceChatConfig.ThreadsConfig threads = config.getThreads();
+        int minThreads = Math.max(1, threads.getJettyMinThreads());
+        int maxThreads = Math.max(minThreads, threads.getJettyMaxThreads());
+        BlockingQueue<Runnable> queue = threads.getJettyQueueCapacity() > 0
+                ? new BlockingArrayQueue<>(minThreads, minThreads, threads.getJettyQueueCapacity())
+                : new BlockingArrayQueue<>(minThreads, minThreads);
+
+        QueuedThreadPool pool = new QueuedThreadPool(maxThreads, minThreads, 60000, queue);
+        pool.setName("VoiceChat-Jetty");
+
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        metrics.gauge("jetty.threads", pool::getThreads);
+        metrics.gauge("jetty.threads.busy", pool::getBusyThreads);
+        metrics.gauge("jetty.threads.max", pool::getMaxThreads);
+        metrics.gauge("jetty.queue", pool::getQueueSize);
+        return pool;
+    }
+
+    private boolean isUnixSocket() {
+        return config.getServer().getConnector() == VoiceChatConfig.ConnectorType.UNIX;
+    }
+
+    private Connector createConnector() throws IOException {
+        VoiceChatConfig.ServerConfig serverConfig = config.getServer();
+        ConnectionFactory[] factories = createConnectionFactories();
+
+        if (isUnixSocket()) {
+            if (forceSSLDisabled) {
+                log(Level.WARNING, "The tunnel forwards to a TCP port and can't reach the unix socket connector");
+            }
+            Path path = Path.of(serverConfig.getUnixSocketPath()).toAbsolutePath();
+            // A socket file left behind by an unclean shutdown would fail the bind
+            Files.deleteIfExists(path);
+
+            UnixDomainServerConnector connector = new UnixDomainServerConnector(server, serverConfig.getAcceptors(), serverConfig.getSelectors(), factories);
+            connector.setUnixDomainPath(path);
+            connector.setAcceptQueueSize(serverConfig.getAcceptQueueSize());
+            connector.setIdleTimeout(serverConfig.getIdleTimeoutMs());
+            connector.setAcceptedReceiveBufferSize(serverConfig.getSocketReceiveBufferSize());
+            connector.setAcceptedSendBufferSize(serverConfig.getSocketSendBufferSize());
+            return connector;
+        }
+
+        ServerConnector connector = new ServerConnector(server, serverConfig.getAcceptors(), serverConfig.getSelectors(), factories);
+        connector.setPort(serverConfig.getWebSocketPort());
+        connector.setAcceptQueueSize(serverConfig.getAcceptQueueSize());
+        connector.setIdleTimeout(serverConfig.getIdleTimeoutMs());
+        connector.setAcceptedTcpNoDelay(serverConfig.isTcpNoDelay());
+        connector.setAcceptedReceiveBufferSize(serverConfig.getSocketReceiveBufferSize());
+        connector.setAcceptedSendBufferSize(serverConfig.getSocketSendBufferSize());
+        return connector;
+    }
+
+    private ConnectionFactory[] createConnectionFactories() {
+        // TLS on a unix socket is left to the proxy in front of it
+        if (forceSSLDisabled || isUnixSocket() || !config.getServer().isUseSSL()) {
             sslEnabled = false;
-            return new ServerConnector(server);
+            return new ConnectionFactory[]{new HttpConnectionFactory(createHttpConfig())};
         }
 
-        ServerConnector sslConnector = tryCreateSSLConnector();
-        if (sslConnector != null) {
+        ConnectionFactory[] sslFactories = tryCreateSSLConnectionFactories();
+        if (sslFactories != null) {
             sslEnabled = true;
-            return sslConnector;
+            return sslFactories;
         }
 
         // Fallback to non-SSL
         sslEnabled = false;
-        return new ServerConnector(server);
+        return new ConnectionFactory[]{new HttpConnectionFactory(createHttpConfig())};
     }
 
-    private ServerConnector tryCreateSSLConnector() {
+    private ConnectionFactory[] tryCreateSSLConnectionFactories() {
         String keystorePath = resolveKeystorePath();
         if (keystorePath == null) {
             logSSLFallback("SSL keystore not found");
@@ -118,9 +196,9 @@ public class WebServer {
 
             log(Level.INFO, "SSL enabled with keystore: " + keystorePath);
 
-            return new ServerConnector(server,
+            return new ConnectionFactory[]{
                     new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
-                    new HttpConnectionFactory(httpsConfig));
+                    new HttpConnectionFactory(httpsConfig)};
         } catch (Exception e) {
             logSSLFallback("Invalid SSL keystore: " + e.getMessage());
             return null;
@@ -170,8 +248,14 @@ public class WebServer {
         return sslContextFactory;
     }
 
+    private HttpConfiguration createHttpConfig() {
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        httpConfig.setOutputBufferSize(config.getServer().getOutputBufferSize());
+        return httpConfig;
+    }
+
     private HttpConfiguration createHttpsConfig() {
-        HttpConfiguration httpsConfig = new HttpConfiguration();
+        HttpConfiguration httpsConfig = createHttpConfig();
         httpsConfig.setSecureScheme("https");
         httpsConfig.setSecurePort(config.getServer().getWebSocketPort());
 
@@ -214,9 +298,14 @@ public class WebServer {
             // Increased from 65536 to support higher quality audio (8192 samples * 2 bytes = 16384 per chunk)
             container.setMaxBinaryMessageSize(131072);  // 128KB for audio packets
             container.setMaxTextMessageSize(65536);
+            container.setOutputBufferSize(config.getServer().getOutputBufferSize());
             container.addMapping("/voice", VoiceChatEndpoint.class);
         });
 
+        if (metricsEnabled) {
+            wsHandler.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
+        }
+
         return wsHandler;
     }
 
@@ -227,6 +316,6 @@ public class WebServer {
     }
 
     private void log(Level level, String message) {
-        logger.at(level).log(message);
+        logger.accept(level, message);
     }
 }
@@ -0,0 +1,201 @@
+package pl.msmaciek.session;
+
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import pl.msmaciek.audio.LoudnessNormalizer;
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.moderation.BlockList;
+import pl.msmaciek.moderation.ClipRecorder;
+import pl.msmaciek.nameplate.NameplateManager;
+import pl.msmaciek.protocol.ProtocolCodec;
+import pl.msmaciek.stage.StageManager;
+import pl.msmaciek.stage.StageRegion;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Relays audio frames from a speaker to every joined session within hearing range.
+ * Shared by the WebSocket endpoint and the capture replay driver.
+ * <p>
+ * Each listener gets the frame in its current {@link AudioTier}; see {@link DownlinkController}.
+ * Frames are prefixed with the speaker id and the sample rate of the frame.
+ * <p>
+ * A speaker broadcasting on a {@link StageRegion} reaches everyone on that stage regardless of distance.
+ * Large audiences are sent to in parallel batches by the {@link FanOutPool}.
+ * With loudness normalization on, frames are normalized once per speaker before encoding; clips keep the raw audio.
+ */
+public class AudioRelay {
+    private static final AudioRelay INSTANCE = new AudioRelay();
+    public static final int HEADER_BYTES = 8;
+
+    private final SessionManager sessions = SessionManager.getInstance();
+    private final BlockList blockList = BlockList.getInstance();
+    private final StageManager stages = StageManager.getInstance();
+    private final FanOutPool fanOutPool = FanOutPool.getInstance();
+
+    private final LongAdder framesDropped;
+    private final LongAdder framesFiltered;
+    private final LongAdder stageFrames;
+    private final LongAdder tierDowngrades;
+    private final LongAdder tierUpgrades;
+
+    private AudioRelay() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        framesDropped = metrics.counter("audio.frames.dropped.backlog");
+        framesFiltered = metrics.counter("audio.frames.filtered");
+        stageFrames = metrics.counter("stage.frames");
+        tierDowngrades = metrics.counter("audio.tier.downgrades");
+        tierUpgrades = metrics.counter("audio.tier.upgrades");
+        for (AudioTier tier : AudioTier.values()) {
+            metrics.gauge("audio.tier." + tier.name().toLowerCase() + ".sessions", () -> countSessions(tier));
+        }
+    }
+
+    public static AudioRelay getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Prefix the frame with the speaker id and send it to all sessions within the server cutoff.
+     * @return Number of sessions the frame was sent to
+     */
+    public int relay(UserSession speaker, byte[] payload, int offset, int len) {
+        if (speaker.getName() == null || speaker.getPlayerUuid() == null) return 0;
+
+        NameplateManager.getInstance().markTalking(speaker.getPlayerUuid());
+        ClipRecorder.getInstance().record(speaker.getPlayerUuid(), payload, offset, len);
+
+        VoiceChatConfig config = ConfigHolder.get();
+        VoiceChatConfig.AudioConfig audio = config.getAudio();
+        if (config.getLoudness().isEnabled()) {
+            payload = LoudnessNormalizer.getInstance().process(speaker.getLoudness(), payload, offset, len, config.getLoudness());
+            offset = 0;
+            len = payload.length;
+        }
+        double exitMultiplier = Math.max(1.0, audio.getInterestExitMultiplier());
+
+        int odapId = speaker.getOdapId();
+        UUID speakerUuid = speaker.getPlayerUuid();
+        StageRegion stage = stages.getBroadcastStage(odapId);
+        if (stage != null) stageFrames.increment();
+        // Encoded lazily, at most once per tier, and shared by all recipients
+        byte[][] frames = new byte[AudioTier.values().length][];
+        FanOutPool.Frame batches = fanOutPool.begin(speaker, System.nanoTime());
+
+        int recipients = 0;
+        for (UserSession s : sessions.getAll()) {
+            if (s.getOdapId() != odapId && s.getSession().isOpen() && s.getName() != null && s.getPlayerUuid() != null) {
+                // Calculate distance and skip if beyond server cutoff, unless both are on the speaker's stage.
+                // Server cutoff is maxDistance * multiplier of the listener's zone to allow client-side attenuation to work
+                if (stage == null || !stage.contains(s.getPosition())) {
+                    double distance = speaker.distanceTo(s);
+                    double serverCutoff = s.getZone().serverCutoff(audio);
+                    double cutoff = s.getInterest().contains(odapId) ? serverCutoff * exitMultiplier : serverCutoff;
+                    if (distance > cutoff) {
+                        continue; // Don't send audio to players too far away
+                    }
+                }
+
+                // Audio the listener would discard anyway: deafened, muted on their side, or blocked
+                if (s.isDeafened() || s.getMuted().contains(odapId) || blockList.isBlocked(s.getPlayerUuid(), speakerUuid)) {
+                    framesFiltered.increment();
+                    continue;
+                }
+
+                DownlinkController downlink = s.getDownlink();
+                if (!downlink.tryAcquire(audio.getMaxBacklogFrames())) {
+                    // The listener can't keep up - dropping is better than an ever-growing buffer
+                    framesDropped.increment();
+                    // A stalled connection completes no writes, so this is the only chance to move it down
+                    if (audio.isAdaptiveBitrate()) {
+                        updateTier(s, downlink, audio, System.nanoTime());
+                    }
+                    continue;
+                }
+
+                AudioTier tier = audio.isAdaptiveBitrate() ? downlink.getTier() : AudioTier.FULL;
+                byte[] data = frames[tier.ordinal()];
+                if (data == null) {
+                    data = encode(tier, odapId, payload, offset, len);
+                    frames[tier.ordinal()] = data;
+                }
+
+                if (batches != null) {
+                    batches.add(s, data);
+                } else {
+                    send(s, data, audio);
+                }
+                recipients++;
+            }
+        }
+
+        if (batches != null) {
+            batches.dispatch((recipient, data) -> send(recipient, data, audio));
+        }
+        fanOutPool.finish(speaker, recipients);
+        return recipients;
+    }
+
+    private void send(UserSession recipient, byte[] data, VoiceChatConfig.AudioConfig audio) {
+        DownlinkController downlink = recipient.getDownlink();
+        long start = System.nanoTime();
+
+        recipient.getSession().getRemote().sendBytes(ByteBuffer.wrap(data), new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                long now = System.nanoTime();
+                downlink.complete(start, now);
+                if (audio.isAdaptiveBitrate()) {
+                    updateTier(recipient, downlink, audio, now);
+                }
+            }
+
+            @Override
+            public void writeFailed(Throwable x) {
+                downlink.failed();
+                System.err.println("Audio send error: " + x.getMessage());
+                if (audio.isAdaptiveBitrate()) {
+                    updateTier(recipient, downlink, audio, System.nanoTime());
+                }
+            }
+        });
+    }
+
+    private void updateTier(UserSession recipient, DownlinkController downlink, VoiceChatConfig.AudioConfig audio, long now) {
+        AudioTier previous = downlink.getTier();
+        AudioTier changed = downlink.evaluate(
+                audio.getCongestionLatencyMs() * 1000L,
+                audio.getCongestionBacklogFrames(),
+                TimeUnit.SECONDS.toNanos(audio.getTierRecoverySeconds()),
+                now);
+        if (changed == null) return;
+
+        (changed.ordinal() > previous.ordinal() ? tierDowngrades : tierUpgrades).increment();
+        // Through the session queue so it stays in order with the config and snapshots already queued
+        recipient.sendText(ProtocolCodec.audioTier(changed));
+    }
+
+    private static byte[] encode(AudioTier tier, int odapId, byte[] payload, int offset, int len) {
+        byte[] data;
+        if (tier == AudioTier.FULL) {
+            data = new byte[HEADER_BYTES + len];
+            System.arraycopy(payload, offset, data, HEADER_BYTES, len);
+        } else {
+            data = tier.downsample(payload, offset, len, HEADER_BYTES);
+        }
+        ByteBuffer.wrap(data).putInt(odapId).putInt(tier.getSampleRate());
+        return data;
+    }
+
+    private long countSessions(AudioTier tier) {
+        long count = 0;
+        for (UserSession s : sessions.getAll()) {
+            if (s.getPlayerUuid() != null && s.getDownlink().getTier() == tier) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,90 @@
+package pl.msmaciek.session;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Quality tiers of the audio sent to a listener. Lower tiers are the 48kHz stream decimated on the server.
+ */
+@Getter
+public enum AudioTier {
+    FULL(48000, 1),
+    HALF(24000, 2),
+    LOW(16000, 3);
+
+    // Low-pass filter length on each side of the centre tap, in output samples
+    private static final int HALF_TAPS_PER_OUTPUT_SAMPLE = 4;
+    // Passband edge as a fraction of the output Nyquist frequency, leaving the rest for the transition band
+    private static final double CUTOFF = 0.9;
+
+    private final int sampleRate;
+    private final int decimation;
+    // Windowed-sinc anti-aliasing filter at the input rate, normalized to unity gain
+    @Getter(AccessLevel.NONE)
+    private final float[] taps;
+
+    AudioTier(int sampleRate, int decimation) {
+        this.sampleRate = sampleRate;
+        this.decimation = decimation;
+        this.taps = lowPass(decimation);
+    }
+
+    public AudioTier lower() {
+        return this == FULL ? HALF : LOW;
+    }
+
+    public AudioTier higher() {
+        return this == LOW ? HALF : FULL;
+    }
+
+    /**
+     * Downsample 16-bit little-endian mono PCM: low-pass with a short FIR, then keep every n-th sample.
+     * Each frame is filtered on its own, repeating its first and last samples past the edges, so frames
+     * stay independent at the cost of slight edge error.
+     */
+    public byte[] downsample(byte[] pcm, int offset, int len, int headerBytes) {
+        int samples = len / 2;
+        int outSamples = (samples + decimation - 1) / decimation;
+        byte[] out = new byte[headerBytes + outSamples * 2];
+        int half = taps.length / 2;
+
+        int o = headerBytes;
+        for (int centre = 0; centre < samples; centre += decimation) {
+            float acc = 0;
+            for (int k = 0; k < taps.length; k++) {
+                int i = Math.max(0, Math.min(samples - 1, centre + k - half));
+                int p = offset + i * 2;
+                acc += taps[k] * (short) ((pcm[p] & 0xFF) | (pcm[p + 1] << 8));
+            }
+            int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(acc)));
+            out[o++] = (byte) s;
+            out[o++] = (byte) (s >> 8);
+        }
+        return out;
+    }
+
+    /**
+     * Hamming-windowed sinc low-pass for decimating by the given factor.
+     */
+    private static float[] lowPass(int decimation) {
+        if (decimation == 1) return new float[]{1f};
+
+        int half = HALF_TAPS_PER_OUTPUT_SAMPLE * decimation;
+        double cutoff = CUTOFF * 0.5 / decimation; // cycles per input sample
+        double[] h = new double[2 * half + 1];
+        double sum = 0;
+        for (int n = -half; n <= half; n++) {
+            double x = 2 * cutoff * n;
+            double sinc = n == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+            double window = 0.54 + 0.46 * Math.cos(Math.PI * n / half);
+            h[n + half] = 2 * cutoff * sinc * window;
+            sum += h[n + half];
+        }
+
+        float[] taps = new float[h.length];
+        for (int i = 0; i < h.length; i++) {
+            taps[i] = (float) (h[i] / sum);
+        }
+        return taps;
+    }
+}
@@ -0,0 +1,96 @@
+package pl.msmaciek.session;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Congestion state of the audio sent to one listener.
+ * <p>
+ * Audio frames are sent asynchronously; the number of frames still in flight and the time each send takes
+ * to complete tell how far behind the listener's connection is. A congested listener is moved one
+ * {@link AudioTier} down at a time, and moved back up after it has been healthy for the recovery period.
+ */
+public class DownlinkController {
+    private static final long MIN_TIER_HOLD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Exponentially weighted send completion latency, updated from concurrent write callbacks
+    private final AtomicLong sendLatencyMicros = new AtomicLong();
+    @Getter private volatile AudioTier tier = AudioTier.FULL;
+
+    private long lastTierChangeNanos = System.nanoTime() - MIN_TIER_HOLD_NANOS;
+    private boolean healthy = false;
+    private long healthySinceNanos;
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getSendLatencyMicros() {
+        return sendLatencyMicros.get();
+    }
+
+    /**
+     * Reserve a slot for a frame.
+     * @return false if the listener already has too many frames queued and this one should be dropped
+     */
+    public boolean tryAcquire(int maxInFlight) {
+        while (true) {
+            int current = inFlight.get();
+            if (maxInFlight > 0 && current >= maxInFlight) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Record a finished send and update the latency estimate.
+     */
+    public void complete(long startNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        long latency = TimeUnit.NANOSECONDS.toMicros(nowNanos - startNanos);
+        sendLatencyMicros.getAndUpdate(current -> (7 * current + latency) / 8);
+    }
+
+    public void failed() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Re-evaluate the tier.
+     * @param congestionLatencyMicros Send latency above which the listener counts as congested
+     * @param congestionBacklog Frames in flight above which the listener counts as congested
+     * @param recoveryNanos How long the listener has to stay healthy before moving up a tier
+     * @return The new tier if it changed, otherwise null
+     */
+    public synchronized AudioTier evaluate(long congestionLatencyMicros, int congestionBacklog, long recoveryNanos, long nowNanos) {
+        boolean congested = inFlight.get() > congestionBacklog || sendLatencyMicros.get() > congestionLatencyMicros;
+
+        if (congested) {
+            healthy = false;
+            // Give the previous downgrade time to take effect before going further down
+            if (tier != AudioTier.LOW && nowNanos - lastTierChangeNanos > MIN_TIER_HOLD_NANOS) {
+                return changeTier(tier.lower(), nowNanos);
+            }
+            return null;
+        }
+
+        if (!healthy) {
+            healthy = true;
+            healthySinceNanos = nowNanos;
+        } else if (tier != AudioTier.FULL && nowNanos - healthySinceNanos > recoveryNanos) {
+            healthySinceNanos = nowNanos;
+            return changeTier(tier.higher(), nowNanos);
+        }
+        return null;
+    }
+
+    private AudioTier changeTier(AudioTier newTier, long nowNanos) {
+        tier = newTier;
+        lastTierChangeNanos = nowNanos;
+        return newTier;
+    }
+}
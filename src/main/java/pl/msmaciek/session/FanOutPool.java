@@ -0,0 +1,163 @@
+package pl.msmaciek.session;
+
+import pl.msmaciek.metrics.LatencyHistogram;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends one frame to a large audience in parallel batches, so the last listener isn't served
+ * long after the first.
+ * <p>
+ * Listeners are split into lanes by id, and every lane runs on its own thread. A listener always
+ * lands in the same lane, so its frames are still sent in order. Speakers only switch back to
+ * sending inline after a pause in their audio, when their lanes have drained.
+ */
+public class FanOutPool {
+    private static final FanOutPool INSTANCE = new FanOutPool();
+    // A pause this long between frames ends a speaker's talk spurt
+    private static final long SPURT_GAP_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private volatile ExecutorService[] lanes;
+    private volatile int threshold;
+
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LongAdder parallelFrames;
+    private final LongAdder batches;
+
+    private FanOutPool() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        parallelFrames = metrics.counter("fanout.frames.parallel");
+        batches = metrics.counter("fanout.batches");
+        metrics.gauge("fanout.batch.latency.p50.us", () -> batchLatency.percentile(50));
+        metrics.gauge("fanout.batch.latency.p95.us", () -> batchLatency.percentile(95));
+        metrics.gauge("fanout.batch.latency.p99.us", () -> batchLatency.percentile(99));
+    }
+
+    public static FanOutPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param threads Number of lanes, 0 to always send inline
+     * @param threshold Audience size from which a speaker's frames are sent in parallel
+     */
+    public synchronized void start(int threads, int threshold) {
+        if (lanes != null || threads <= 0) return;
+        ExecutorService[] created = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "VoiceChat-FanOut-" + i;
+            created[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.threshold = Math.max(1, threshold);
+        lanes = created;
+    }
+
+    public synchronized void stop() {
+        if (lanes == null) return;
+        for (ExecutorService lane : lanes) lane.shutdown();
+        lanes = null;
+    }
+
+    /**
+     * Start fanning out a frame.
+     * @param now When the frame arrived; batch latency is measured from here
+     * @return A frame to add recipients to, or null if the speaker's frames should be sent inline
+     */
+    Frame begin(UserSession speaker, long now) {
+        ExecutorService[] current = lanes;
+        if (current == null) return null;
+
+        SpeakerState state = speaker.getFanOut();
+        boolean pause = now - state.lastFrameNanos > SPURT_GAP_NANOS;
+        // The previous frame's audience decides; going back inline waits for a pause so frames stay in order
+        state.parallel = state.lastRecipients >= threshold || (state.parallel && !pause);
+        state.lastFrameNanos = now;
+        return state.parallel ? new Frame(current, now) : null;
+    }
+
+    /**
+     * Remember a speaker's audience size for the next frame.
+     */
+    void finish(UserSession speaker, int recipients) {
+        speaker.getFanOut().lastRecipients = recipients;
+    }
+
+    /**
+     * Per-speaker fan-out mode. Only touched by the thread relaying that speaker's frames.
+     */
+    static final class SpeakerState {
+        private long lastFrameNanos;
+        private int lastRecipients;
+        private boolean parallel;
+    }
+
+    /**
+     * One frame's recipients, grouped by lane. The frame data is shared by all batches.
+     */
+    final class Frame {
+        private final ExecutorService[] lanes;
+        private final long startNanos;
+        private final UserSession[][] recipients;
+        private final byte[][][] data;
+        private final int[] sizes;
+
+        private Frame(ExecutorService[] lanes, long startNanos) {
+            this.lanes = lanes;
+            this.startNanos = startNanos;
+            this.recipients = new UserSession[lanes.length][];
+            this.data = new byte[lanes.length][][];
+            this.sizes = new int[lanes.length];
+        }
+
+        void add(UserSession recipient, byte[] frame) {
+            int lane = Math.floorMod(recipient.getOdapId(), lanes.length);
+            int size = sizes[lane];
+            if (recipients[lane] == null) {
+                recipients[lane] = new UserSession[8];
+                data[lane] = new byte[8][];
+            } else if (size == recipients[lane].length) {
+                recipients[lane] = Arrays.copyOf(recipients[lane], size * 2);
+                data[lane] = Arrays.copyOf(data[lane], size * 2);
+            }
+            recipients[lane][size] = recipient;
+            data[lane][size] = frame;
+            sizes[lane] = size + 1;
+        }
+
+        /**
+         * Hand every non-empty batch to its lane.
+         */
+        void dispatch(BiConsumer<UserSession, byte[]> sender) {
+            parallelFrames.increment();
+            for (int lane = 0; lane < lanes.length; lane++) {
+                int size = sizes[lane];
+                if (size == 0) continue;
+                UserSession[] batchRecipients = recipients[lane];
+                byte[][] batchData = data[lane];
+                batches.increment();
+                try {
+                    lanes[lane].execute(() -> {
+                        for (int i = 0; i < size; i++) {
+                            sender.accept(batchRecipients[i], batchData[i]);
+                        }
+                        batchLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package pl.msmaciek.session;
+
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single source of truth for who is online and which voice session belongs to which player.
+ * <p>
+ * All indexes are hash lookups. Writes are serialized so the indexes always change together;
+ * reads never lock. A username is claimed exactly when its player UUID is linked to a session.
+ * <p>
+ * New sessions wait in a staging area until they join, so the collections iterated by every snapshot
+ * and relayed frame only hold joined sessions. A session that loses its player (kicked, or the player
+ * left the game) goes back to staging in the same step, before its socket has finished closing.
+ */
+public class IdentityRegistry {
+    private static final IdentityRegistry INSTANCE = new IdentityRegistry();
+
+    // Online players
+    private final Map<String, UUID> usernameToUuid = new ConcurrentHashMap<>();
+    private final Map<UUID, String> uuidToUsername = new ConcurrentHashMap<>();
+
+    // Voice sessions: joined, and still verifying (staged)
+    private final Map<Integer, UserSession> odapIdToSession = new ConcurrentHashMap<>();
+    private final Map<Integer, UserSession> staging = new ConcurrentHashMap<>();
+    private final Map<String, UserSession> sessionIdToSession = new ConcurrentHashMap<>();
+    private final Map<UUID, UserSession> uuidToSession = new ConcurrentHashMap<>();
+
+    private IdentityRegistry() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        metrics.gauge("sessions.joined", odapIdToSession::size);
+        metrics.gauge("sessions.staged", staging::size);
+    }
+
+    public static IdentityRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private static String fold(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    // --- Players ---
+
+    public synchronized void playerJoined(UUID uuid, String username) {
+        String previous = uuidToUsername.put(uuid, username);
+        if (previous != null) {
+            usernameToUuid.remove(fold(previous), uuid);
+        }
+        usernameToUuid.put(fold(username), uuid);
+    }
+
+    /**
+     * Forget an online player. Their session stays registered but loses its player link and goes back to staging.
+     * @return The session that was linked to the player, or null
+     */
+    public synchronized UserSession playerLeft(UUID uuid) {
+        String username = uuidToUsername.remove(uuid);
+        if (username != null) {
+            usernameToUuid.remove(fold(username), uuid);
+        }
+        UserSession session = uuidToSession.remove(uuid);
+        if (session != null) {
+            demote(session);
+        }
+        return session;
+    }
+
+    public UUID getUuid(String username) {
+        if (username == null) return null;
+        return usernameToUuid.get(fold(username));
+    }
+
+    public String getUsername(UUID uuid) {
+        return uuidToUsername.get(uuid);
+    }
+
+    public boolean isOnline(String username) {
+        return getUuid(username) != null;
+    }
+
+    public Map<UUID, String> getOnlinePlayers() {
+        return Collections.unmodifiableMap(uuidToUsername);
+    }
+
+    // --- Sessions ---
+
+    /**
+     * Add a new session to the staging area; it moves to the joined sessions when it claims a player.
+     */
+    public synchronized void register(UserSession session) {
+        staging.put(session.getOdapId(), session);
+        sessionIdToSession.put(session.getSessionId(), session);
+    }
+
+    /**
+     * Remove a session and its claim, only if it is still the one registered under its id.
+     * @return false if the session was already removed or superseded by a resumed session
+     */
+    public synchronized boolean unregister(UserSession session) {
+        if (!odapIdToSession.remove(session.getOdapId(), session) && !staging.remove(session.getOdapId(), session)) return false;
+        sessionIdToSession.remove(session.getSessionId(), session);
+        if (session.getPlayerUuid() != null) {
+            uuidToSession.remove(session.getPlayerUuid(), session);
+        }
+        return true;
+    }
+
+    /**
+     * Claim an online player for a session: checks the player is online and unclaimed, then links both ways.
+     * @return false if the player is offline or already claimed by another session
+     */
+    public synchronized boolean claim(UserSession session, UUID uuid, String username) {
+        if (!username.equalsIgnoreCase(uuidToUsername.get(uuid))) return false;
+
+        UserSession holder = uuidToSession.get(uuid);
+        if (holder != null && holder != session) return false;
+
+        session.setName(username);
+        session.setPlayerUuid(uuid);
+        uuidToSession.put(uuid, session);
+        promote(session);
+        return true;
+    }
+
+    /**
+     * Drop a session's claim and player link so another session can claim the player (e.g. when it is being kicked).
+     * The session goes back to staging, so it gets no more audio or snapshots while its socket closes.
+     */
+    public synchronized void release(UserSession session) {
+        if (session.getPlayerUuid() != null) {
+            uuidToSession.remove(session.getPlayerUuid(), session);
+        }
+        demote(session);
+    }
+
+    /**
+     * Link a session to a player without the online/claim checks (replayed traffic).
+     */
+    public synchronized void link(UserSession session, UUID uuid) {
+        session.setPlayerUuid(uuid);
+        uuidToSession.put(uuid, session);
+        promote(session);
+    }
+
+    private void promote(UserSession session) {
+        if (staging.remove(session.getOdapId(), session)) {
+            odapIdToSession.put(session.getOdapId(), session);
+        }
+    }
+
+    private void demote(UserSession session) {
+        session.setPlayerUuid(null);
+        if (odapIdToSession.remove(session.getOdapId(), session)) {
+            staging.put(session.getOdapId(), session);
+        }
+    }
+
+    /**
+     * Atomically replace a connecting session with a resumed one that takes over the previous session's id and claim.
+     * @param previous The session currently registered under the resumed id, or null if it already closed
+     * @return false if the player is offline or claimed by a session other than previous
+     */
+    public synchronized boolean resume(UserSession connecting, UserSession resumed, UserSession previous, UUID uuid, String username) {
+        if (!username.equalsIgnoreCase(uuidToUsername.get(uuid))) return false;
+
+        UserSession holder = uuidToSession.get(uuid);
+        if (holder != null && holder != previous) return false;
+        if (odapIdToSession.get(resumed.getOdapId()) != previous) return false;
+
+        staging.remove(connecting.getOdapId(), connecting);
+        sessionIdToSession.remove(connecting.getSessionId(), connecting);
+        if (previous != null) {
+            sessionIdToSession.remove(previous.getSessionId(), previous);
+        }
+
+        resumed.setName(username);
+        resumed.setPlayerUuid(uuid);
+        odapIdToSession.put(resumed.getOdapId(), resumed);
+        sessionIdToSession.put(resumed.getSessionId(), resumed);
+        uuidToSession.put(uuid, resumed);
+        return true;
+    }
+
+    public UserSession getSession(int odapId) {
+        UserSession session = odapIdToSession.get(odapId);
+        return session != null ? session : staging.get(odapId);
+    }
+
+    public UserSession getSessionBySessionId(String sessionId) {
+        if (sessionId == null) return null;
+        return sessionIdToSession.get(sessionId);
+    }
+
+    public UserSession getSessionByUuid(UUID uuid) {
+        return uuidToSession.get(uuid);
+    }
+
+    public UserSession getSessionByUsername(String username) {
+        UUID uuid = getUuid(username);
+        return uuid != null ? uuidToSession.get(uuid) : null;
+    }
+
+    public boolean isClaimed(UUID uuid) {
+        return uuidToSession.containsKey(uuid);
+    }
+
+    /**
+     * Joined sessions, the ones that send and receive audio and snapshots.
+     */
+    public Collection<UserSession> getSessions() {
+        return odapIdToSession.values();
+    }
+
+    /**
+     * Sessions that have connected but not joined yet.
+     */
+    public Collection<UserSession> getStagedSessions() {
+        return staging.values();
+    }
+}
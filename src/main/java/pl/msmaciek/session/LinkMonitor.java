@@ -0,0 +1,97 @@
+package pl.msmaciek.session;
+
+import pl.msmaciek.metrics.LatencyHistogram;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.util.VoiceChatExecutors;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically pings every connected client and aggregates their {@link LinkQuality} for metrics.
+ */
+public class LinkMonitor {
+    private static final LinkMonitor INSTANCE = new LinkMonitor();
+
+    private ScheduledFuture<?> pings;
+
+    private LinkMonitor() {}
+
+    public static LinkMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(long pingIntervalMs) {
+        if (pings != null || pingIntervalMs <= 0) return;
+        pings = VoiceChatExecutors.getInstance().scheduler().scheduleAtFixedRate(() -> {
+            try {
+                pingAll();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, pingIntervalMs, pingIntervalMs, TimeUnit.MILLISECONDS);
+
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        metrics.gauge("link.rtt.p50.us", () -> aggregateRtt().percentile(50));
+        metrics.gauge("link.rtt.p95.us", () -> aggregateRtt().percentile(95));
+        metrics.gauge("link.rtt.p99.us", () -> aggregateRtt().percentile(99));
+        metrics.gauge("link.jitter.p95.us", () -> aggregateJitter().percentile(95));
+        metrics.gauge("link.pings.lost", () -> {
+            long lost = 0;
+            for (UserSession session : SessionManager.getInstance().getAll()) {
+                lost += session.getLink().getLostPings();
+            }
+            return lost;
+        });
+    }
+
+    public synchronized void stop() {
+        if (pings != null) {
+            pings.cancel(false);
+            pings = null;
+        }
+    }
+
+    private void pingAll() {
+        long now = System.nanoTime();
+        SessionManager sessions = SessionManager.getInstance();
+        for (UserSession session : sessions.getAll()) {
+            if (session.getPlayerUuid() != null) ping(session, now);
+        }
+        // Clients still verifying are pinged too: their pongs are the heartbeat the reaper checks
+        for (UserSession session : sessions.getStaged()) {
+            ping(session, now);
+        }
+    }
+
+    private void ping(UserSession session, long now) {
+        if (!session.getSession().isOpen()) return;
+
+        long seq = session.getLink().nextPing(now);
+        // Queued behind the session's other text messages, and timed from when it is written;
+        // a stalled socket doesn't delay the others' pings
+        session.sendPing(seq);
+    }
+
+    /**
+     * RTT histogram of all connected sessions combined.
+     */
+    public LatencyHistogram aggregateRtt() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (UserSession session : SessionManager.getInstance().getAll()) {
+            total.add(session.getLink().getRttHistogram());
+        }
+        return total;
+    }
+
+    /**
+     * Jitter histogram of all connected sessions combined.
+     */
+    public LatencyHistogram aggregateJitter() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (UserSession session : SessionManager.getInstance().getAll()) {
+            total.add(session.getLink().getJitterHistogram());
+        }
+        return total;
+    }
+}
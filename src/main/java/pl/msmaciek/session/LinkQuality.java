@@ -0,0 +1,87 @@
+package pl.msmaciek.session;
+
+import lombok.Getter;
+import pl.msmaciek.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip time and jitter of one client connection, measured with server-originated pings.
+ * <p>
+ * Keeps full histograms for the metrics and TCP-style smoothed estimates (RFC 6298) for a cheap current
+ * value, shown per player by {@code /voicechat-latency}.
+ */
+public class LinkQuality {
+    private static final int MAX_OUTSTANDING = 8;
+
+    @Getter private final LatencyHistogram rttHistogram = new LatencyHistogram();
+    @Getter private final LatencyHistogram jitterHistogram = new LatencyHistogram();
+
+    // Ring of outstanding pings: seq -> send time
+    private final long[] pendingSeq = new long[MAX_OUTSTANDING];
+    private final long[] pendingSentNanos = new long[MAX_OUTSTANDING];
+    private long nextSeq = 1;
+
+    private long lastRttMicros = -1;
+    // Smoothed RTT in microseconds, -1 before the first measurement
+    @Getter private volatile long smoothedRttMicros = -1;
+    // Smoothed RTT variation in microseconds (jitter estimate)
+    @Getter private volatile long rttVarianceMicros = 0;
+    @Getter private volatile long lostPings = 0;
+
+    /**
+     * Register a ping about to be queued; {@link #pingSent} moves its send time to when it is written.
+     * @return The sequence number to put in the ping
+     */
+    public synchronized long nextPing(long nowNanos) {
+        long seq = nextSeq++;
+        int slot = (int) (seq % MAX_OUTSTANDING);
+        if (pendingSeq[slot] != 0) {
+            // The ping that used this slot was never answered
+            lostPings++;
+        }
+        pendingSeq[slot] = seq;
+        pendingSentNanos[slot] = nowNanos;
+        return seq;
+    }
+
+    /**
+     * Stamp a registered ping with the time it was actually written to the socket,
+     * so time spent behind other queued messages is not counted as round-trip time.
+     */
+    public synchronized void pingSent(long seq, long nowNanos) {
+        int slot = Math.floorMod(seq, MAX_OUTSTANDING);
+        if (seq > 0 && pendingSeq[slot] == seq) pendingSentNanos[slot] = nowNanos;
+    }
+
+    /**
+     * Record the answer to a ping.
+     * @return The measured RTT in microseconds, or -1 if the sequence number is unknown or stale
+     */
+    public synchronized long pongReceived(long seq, long nowNanos) {
+        int slot = Math.floorMod(seq, MAX_OUTSTANDING);
+        if (seq <= 0 || pendingSeq[slot] != seq) return -1;
+        pendingSeq[slot] = 0;
+
+        long rtt = TimeUnit.NANOSECONDS.toMicros(nowNanos - pendingSentNanos[slot]);
+        rttHistogram.record(rtt);
+
+        if (lastRttMicros >= 0) {
+            jitterHistogram.record(Math.abs(rtt - lastRttMicros));
+        }
+        lastRttMicros = rtt;
+
+        if (smoothedRttMicros < 0) {
+            smoothedRttMicros = rtt;
+            rttVarianceMicros = rtt / 2;
+        } else {
+            rttVarianceMicros = (3 * rttVarianceMicros + Math.abs(smoothedRttMicros - rtt)) / 4;
+            smoothedRttMicros = (7 * smoothedRttMicros + rtt) / 8;
+        }
+        return rtt;
+    }
+
+    public boolean hasMeasurement() {
+        return smoothedRttMicros >= 0;
+    }
+}
@@ -1,39 +1,41 @@
 package pl.msmaciek.session;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.hypixel.hytale.component.Ref;
-import com.hypixel.hytale.component.Store;
-import com.hypixel.hytale.server.core.entity.entities.Player;
-import com.hypixel.hytale.server.core.universe.PlayerRef;
-import com.hypixel.hytale.server.core.universe.Universe;
-import com.hypixel.hytale.server.core.universe.world.World;
-import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
-import pl.msmaciek.Main;
+import pl.msmaciek.auth.ResumeTokenManager;
+import pl.msmaciek.auth.VerificationManager;
+import pl.msmaciek.capture.TrafficCapture;
+import pl.msmaciek.config.ConfigHolder;
 import pl.msmaciek.config.VoiceChatConfig;
 import pl.msmaciek.nameplate.NameplateManager;
 import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.protocol.ProtocolCodec;
+import pl.msmaciek.stage.StageManager;
+import pl.msmaciek.stage.StageRegion;
 import pl.msmaciek.structs.Position;
-import pl.msmaciek.ui.NearbyPlayersUI;
+import pl.msmaciek.zone.AcousticZone;
+import pl.msmaciek.zone.ZoneManager;
+import pl.msmaciek.util.VoiceChatExecutors;
+import pl.msmaciek.world.WorldAdapter;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SessionManager {
     private static final SessionManager INSTANCE = new SessionManager();
-    private static final Gson gson = new Gson();
+    private static final ThreadLocal<StringBuilder> SNAPSHOT_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+    private static final int MAX_RETAINED_BUFFER_CHARS = 256 * 1024;
 
-    private final Map<Integer, UserSession> sessions = new ConcurrentHashMap<>();
-    private final Map<UUID, UserSession> uuidToSession = new ConcurrentHashMap<>();
+    private static final int FAR_SNAPSHOT_DIVISOR = 3;
+
+    private final IdentityRegistry identities = IdentityRegistry.getInstance();
+    private final TickGovernor governor = TickGovernor.getInstance();
     private final AtomicInteger idCounter = new AtomicInteger(0);
-    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> tick;
+    private WorldAdapter world;
     private volatile boolean closed = false;
+    // Server time the current positions were sampled at, sent with snapshots for client-side interpolation
+    private volatile long positionsSampledAt = System.currentTimeMillis();
 
     private SessionManager() {}
 
@@ -41,17 +43,25 @@ public class SessionManager {
         return INSTANCE;
     }
 
-    public void startScheduler(long updateIntervalMs) {
-        if (scheduler != null) return;
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(() -> {
-            if (!closed) {
+    public void startScheduler(WorldAdapter world, long updateIntervalMs) {
+        if (tick != null) return;
+        this.world = world;
+        governor.configure(updateIntervalMs, ConfigHolder.get().getGeneral().getTickBudgetPercent());
+        tick = VoiceChatExecutors.getInstance().scheduler().scheduleAtFixedRate(() -> {
+            if (!closed && governor.beginTick()) {
                 // Avoids the exception from being silenced
                 try {
+                    long start = System.nanoTime();
                     updateAllPlayerPositions();
+                    StageManager.getInstance().update(identities.getSessions());
+                    long positionsDone = System.nanoTime();
+                    governor.record(TickGovernor.Stage.POSITIONS, positionsDone - start);
                     broadcastPlayerSnapshot();
+                    governor.record(TickGovernor.Stage.SNAPSHOTS, System.nanoTime() - positionsDone);
                 } catch (Exception ex) {
                     ex.printStackTrace();
+                } finally {
+                    governor.endTick();
                 }
             }
         }, 0L, updateIntervalMs, TimeUnit.MILLISECONDS);
@@ -59,9 +69,9 @@ public class SessionManager {
 
     public void stopScheduler() {
         closed = true;
-        if (scheduler != null) {
-            scheduler.shutdown();
-            scheduler = null;
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
         }
     }
 
@@ -69,30 +79,15 @@ public class SessionManager {
         Set<UUID> foundPlayers = new HashSet<>();
 
         try {
-            Universe universe = Universe.get();
-            if (universe == null) return;
-
-            List<PlayerRef> players = universe.getPlayers();
-            for (PlayerRef playerRef : players) {
-                var transform = playerRef.getTransform();
-                var position = transform.getPosition();
-
-                UUID playerUuid = playerRef.getUuid();
-                UUID worldUuid = playerRef.getWorldUuid();
+            boolean available = world.forEachPlayer((playerUuid, worldUuid, x, y, z, yaw) -> {
                 foundPlayers.add(playerUuid);
-
-                double x = position.getX();
-                double y = position.getY();
-                double z = position.getZ();
-
-                var rotation = transform.getRotation();
-                float yawRadians = rotation.getY();
-                float yaw = (float) Math.toDegrees(yawRadians);
-                yaw = yaw % 360;
-                if (yaw < 0) yaw += 360;
-
                 PlayerTracker.getInstance().updatePosition(playerUuid, x, y, z, yaw, worldUuid);
-            }
+                TrafficCapture.getInstance().position(playerUuid, x, y, z, yaw, worldUuid);
+            });
+            if (!available) return;
+
+            positionsSampledAt = System.currentTimeMillis();
+            TrafficCapture.getInstance().tick();
         } catch (Exception e) {
             System.err.println("Error updating player positions: " + e.getMessage());
         }
@@ -110,27 +105,75 @@ public class SessionManager {
     }
 
     public void add(UserSession session) {
-        sessions.put(session.getOdapId(), session);
+        identities.register(session);
     }
 
+    /**
+     * Link a session to a player without claim checks. Used for replayed traffic.
+     */
     public void linkToPlayer(UserSession session, UUID playerUuid) {
-        session.setPlayerUuid(playerUuid);
-        uuidToSession.put(playerUuid, session);
+        identities.link(session, playerUuid);
+    }
+
+    /**
+     * Claim an online player for a session.
+     * @return false if the player is offline or already has a voice session
+     */
+    public boolean claim(UserSession session, UUID playerUuid, String playerName) {
+        return identities.claim(session, playerUuid, playerName);
     }
 
     public void remove(int odapId) {
-        UserSession session = sessions.remove(odapId);
-        if (session != null && session.getPlayerUuid() != null) {
-            uuidToSession.remove(session.getPlayerUuid());
+        UserSession session = identities.getSession(odapId);
+        if (session != null) {
+            identities.unregister(session);
         }
     }
 
+    /**
+     * Remove a session only if it is still the one registered under its id.
+     * @return false if the session was already removed or superseded by a resumed session
+     */
+    public boolean remove(UserSession session) {
+        return identities.unregister(session);
+    }
+
+    /**
+     * Move a freshly connected socket onto the id and player link of a previous session (resume after reconnect).
+     * A previous session that is still registered is closed and replaced in one step, keeping its claim.
+     * @param connecting The session created for the new socket
+     * @param claims The validated resume token claims
+     * @return The resumed session, or null if the player could not be claimed
+     */
+    public UserSession reclaim(UserSession connecting, ResumeTokenManager.Claims claims) {
+        UserSession previous = identities.getSession(claims.getOdapId());
+        UserSession resumed = new UserSession(claims.getOdapId(), connecting.getSession(), connecting.getSessionId(), connecting);
+        resumed.inheritConnection(connecting);
+
+        if (!identities.resume(connecting, resumed, previous, claims.getPlayerUuid(), claims.getPlayerName())) {
+            return null;
+        }
+
+        if (previous != null && previous.getSession().isOpen()) {
+            // Half-open socket of the same client - its close handler sees it was superseded and skips cleanup
+            previous.getSession().close();
+        }
+        return resumed;
+    }
+
     public UserSession get(int odapId) {
-        return sessions.get(odapId);
+        return identities.getSession(odapId);
     }
 
     public UserSession getByUuid(UUID playerUuid) {
-        return uuidToSession.get(playerUuid);
+        return identities.getSessionByUuid(playerUuid);
+    }
+
+    /**
+     * Get the session of a WebSocket connection by its connection session id.
+     */
+    public UserSession getBySessionId(String sessionId) {
+        return identities.getSessionBySessionId(sessionId);
     }
 
     /**
@@ -140,28 +183,59 @@ public class SessionManager {
      * @return The disconnected session, or null if none found
      */
     public UserSession disconnectByUsername(String username) {
-        if (username == null) return null;
+        UserSession session = identities.getSessionByUsername(username);
+        if (session == null) return null;
 
-        for (UserSession session : sessions.values()) {
-            if (username.equalsIgnoreCase(session.getName()) && session.getSession().isOpen()) {
-                try {
-                    // Send disconnect message before closing
-                    JsonObject msg = new JsonObject();
-                    msg.addProperty("type", "kicked");
-                    msg.addProperty("reason", "Another session connected with this account.");
-                    session.getSession().getRemote().sendString(gson.toJson(msg));
-                    session.getSession().close();
-                } catch (Exception e) {
-                    System.err.println("Error disconnecting old session: " + e.getMessage());
-                }
-                return session;
-            }
+        // Free the claim right away so the new session can take it; the kicked session stops receiving audio now
+        identities.release(session);
+        if (!session.getSession().isOpen()) return session;
+
+        ResumeTokenManager.getInstance().revoke(session.getOdapId());
+        // Send disconnect message before closing
+        session.sendTextAndClose(ProtocolCodec.KICKED_REPLACED);
+        return session;
+    }
+
+    /**
+     * Verify a code as an in-game player and push the result to the browser tab waiting on it,
+     * instead of leaving it to poll.
+     * @return false if the code doesn't exist or was already verified
+     */
+    public boolean verifyCode(String code, UUID playerUuid, String playerName) {
+        VerificationManager vm = VerificationManager.getInstance();
+        if (!vm.verify(code, playerUuid, playerName)) return false;
+
+        UserSession waiting = getBySessionId(vm.getSessionForCode(code));
+        if (waiting != null && waiting.getSession().isOpen()) {
+            waiting.sendVerificationStatus(true, playerName);
         }
-        return null;
+        return true;
     }
 
+    /**
+     * Close a connection whose verification code expired before it joined.
+     * The client reconnects from the login screen and receives a fresh code.
+     * @param sessionId The connection session id of the expired code
+     */
+    public void closeExpiredHandshake(String sessionId) {
+        UserSession session = getBySessionId(sessionId);
+        if (session == null || session.getName() != null || !session.getSession().isOpen()) return;
+
+        session.sendTextAndClose(ProtocolCodec.VERIFICATION_EXPIRED);
+    }
+
+    /**
+     * Joined sessions.
+     */
     public Collection<UserSession> getAll() {
-        return sessions.values();
+        return identities.getSessions();
+    }
+
+    /**
+     * Sessions still verifying, kept out of {@link #getAll()} until they join.
+     */
+    public Collection<UserSession> getStaged() {
+        return identities.getStagedSessions();
     }
 
     /**
@@ -170,19 +244,11 @@ public class SessionManager {
      * @param playerUuid The UUID of the player who left
      */
     public void disconnectByUuid(UUID playerUuid) {
-        UserSession session = uuidToSession.get(playerUuid);
+        UserSession session = identities.getSessionByUuid(playerUuid);
         if (session != null && session.getSession().isOpen()) {
-            try {
-                NameplateManager.getInstance().markDisconnected(playerUuid);
-
-                JsonObject msg = new JsonObject();
-                msg.addProperty("type", "kicked");
-                msg.addProperty("reason", "Player left the game server.");
-                session.getSession().getRemote().sendString(gson.toJson(msg));
-                session.getSession().close();
-            } catch (Exception e) {
-                System.err.println("Error disconnecting session for leaving player: " + e.getMessage());
-            }
+            NameplateManager.getInstance().markDisconnected(playerUuid);
+            ResumeTokenManager.getInstance().revoke(session.getOdapId());
+            session.sendTextAndClose(ProtocolCodec.KICKED_PLAYER_LEFT);
         }
     }
 
@@ -190,31 +256,67 @@ public class SessionManager {
      * Send a complete snapshot of all nearby players to each connected client.
      * This is stateless - clients replace their entire user list with this data.
      * Each client receives: their own position + list of nearby players in same world.
+     * <p>
+     * Each player's entry is encoded once per tick and every snapshot is assembled from those fragments.
+     * Snapshots carry the time positions were sampled ("t"), which clients use to interpolate between ticks.
+     * Under load ({@link TickGovernor.Level#SLOW_FAR_SNAPSHOTS}) listeners with nobody within half the
+     * hearing range only get every third snapshot.
+     * <p>
+     * Listeners on a stage also get everyone broadcasting on it, however far, and their ids in "stage"
+     * so the client plays them without distance attenuation.
+     * <p>
+     * Hearing range follows the listener's {@link AcousticZone}.
      */
     public void broadcastPlayerSnapshot() {
-        VoiceChatConfig config = Main.CONFIG.get();
-        double maxDistance = config.getAudio().getMaxDistance() * config.getAudio().getServerCutoffMultiplier();
-
-        for (UserSession targetSession : sessions.values()) {
+        VoiceChatConfig config = ConfigHolder.get();
+        VoiceChatConfig.AudioConfig audio = config.getAudio();
+        ZoneManager zones = ZoneManager.getInstance();
+
+        // odapId -> encoded entry, valid for this tick only
+        Map<Integer, String> fragments = new HashMap<>();
+        long sampledAt = positionsSampledAt;
+        StringBuilder sb = SNAPSHOT_BUFFER.get();
+        boolean slowFarSnapshots = governor.isShedding(TickGovernor.Level.SLOW_FAR_SNAPSHOTS);
+        long tick = governor.getTick();
+        Map<Integer, StageRegion> broadcasting = StageManager.getInstance().getBroadcasting();
+
+        for (UserSession targetSession : identities.getSessions()) {
             if (!targetSession.getSession().isOpen()) continue;
             if (targetSession.getPlayerUuid() == null) continue;
 
             Position targetPos = targetSession.getPosition();
             if (targetPos == null) continue;
 
-            JsonObject msg = new JsonObject();
-            msg.addProperty("type", "players_snapshot");
+            // The listener's zone decides their hearing range; their client gets its acoustics when it changes
+            AcousticZone zone = zones.locate(targetSession, targetPos);
+            if (zone != targetSession.getZone()) {
+                targetSession.setZone(zone);
+                targetSession.sendConfig(config);
+            }
+            double maxDistance = zone.serverCutoff(audio);
+            // Players already in a session's interest set stay there until the larger exit radius
+            double exitDistance = maxDistance * Math.max(1.0, audio.getInterestExitMultiplier());
+
+            if (slowFarSnapshots && targetSession.getNearestDistance() > maxDistance / 2
+                    && (tick + targetSession.getOdapId()) % FAR_SNAPSHOT_DIVISOR != 0) continue;
+
+            sb.setLength(0);
+            sb.append("{\"type\":\"players_snapshot\",\"t\":").append(sampledAt).append(",\"self\":");
 
             ArrayList<String> nearbyTalkingPlayers = new ArrayList<>();
 
             // Add self info
-            msg.add("self", packPositionPacket(targetSession, targetPos));
+            sb.append(fragment(fragments, targetSession, targetPos));
             if(NameplateManager.getInstance().isTalking(targetSession.getPlayerUuid()))
                 nearbyTalkingPlayers.add(targetSession.getName());
 
             // Add nearby players
-            JsonArray nearbyPlayers = new JsonArray();
-            for (UserSession otherSession : sessions.values()) {
+            sb.append(",\"players\":[");
+            boolean first = true;
+            Set<Integer> previousInterest = targetSession.getInterest();
+            Set<Integer> interest = new HashSet<>();
+            double nearest = Double.MAX_VALUE;
+            for (UserSession otherSession : identities.getSessions()) {
                 if (otherSession.getOdapId() == targetSession.getOdapId()) continue;
                 if (!otherSession.getSession().isOpen()) continue;
                 if (otherSession.getPlayerUuid() == null) continue;
@@ -227,53 +329,61 @@ public class SessionManager {
 
                 // Check distance
                 double distance = targetPos.distanceTo(otherPos);
-                if (distance > maxDistance) continue;
+                if (distance > (previousInterest.contains(otherSession.getOdapId()) ? exitDistance : maxDistance)) continue;
 
                 // Add to nearby list
-                nearbyPlayers.add(packPositionPacket(otherSession, otherPos));
+                interest.add(otherSession.getOdapId());
+                nearest = Math.min(nearest, distance);
+                if (!first) sb.append(',');
+                sb.append(fragment(fragments, otherSession, otherPos));
+                first = false;
 
                 if(NameplateManager.getInstance().isTalking(otherSession.getPlayerUuid()))
                     nearbyTalkingPlayers.add(otherSession.getName());
             }
-            msg.add("players", nearbyPlayers);
+
+            // Broadcasters on the listener's stage, including those out of normal range
+            StringBuilder stageIds = null;
+            for (Map.Entry<Integer, StageRegion> entry : broadcasting.entrySet()) {
+                int broadcasterId = entry.getKey();
+                if (broadcasterId == targetSession.getOdapId() || !entry.getValue().contains(targetPos)) continue;
+                UserSession broadcaster = identities.getSession(broadcasterId);
+                Position broadcasterPos = broadcaster != null ? broadcaster.getPosition() : null;
+                if (broadcasterPos == null) continue;
+
+                if (!interest.contains(broadcasterId)) {
+                    if (!first) sb.append(',');
+                    sb.append(fragment(fragments, broadcaster, broadcasterPos));
+                    first = false;
+                }
+                if (stageIds == null) stageIds = new StringBuilder();
+                else stageIds.append(',');
+                stageIds.append(broadcasterId);
+            }
+            sb.append(']');
+            if (stageIds != null) sb.append(",\"stage\":[").append(stageIds).append(']');
+            sb.append('}');
+            targetSession.setInterest(interest);
+            targetSession.setNearestDistance(nearest);
 
             scheduleUIUpdate(targetSession, nearbyTalkingPlayers);
 
-            try {
-                targetSession.getSession().getRemote().sendString(gson.toJson(msg));
-            } catch (IOException e) {
-                System.err.println("Snapshot broadcast error: " + e.getMessage());
-            }
+            targetSession.sendSnapshot(sb.toString());
+        }
+
+        // Don't let one huge tick pin a large buffer to the scheduler thread
+        if (sb.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+            SNAPSHOT_BUFFER.remove();
         }
     }
 
     private void scheduleUIUpdate(UserSession session, ArrayList<String> nearbyTalkingPlayers) {
-        if(!Main.CONFIG.get().getGeneral().isEnableUI()) return;
-        PlayerRef playerRef = Universe.get().getPlayer(session.getPlayerUuid());
-        if(playerRef == null) return;
-        Ref<EntityStore> entityRef = playerRef.getReference();
-        if(entityRef == null) return;
-        if(playerRef.getWorldUuid() == null) return;
-        World w = Universe.get().getWorld(playerRef.getWorldUuid());
-        if(w == null) return;
-        w.execute(() -> {
-            Store<EntityStore> store = entityRef.getStore();
-            Player player = store.getComponent(entityRef, Player.getComponentType());
-            if (player == null) return;
-            var customHud = player.getHudManager().getCustomHud();
-            if(!(customHud instanceof NearbyPlayersUI nearbyPlayersUI)) return;
-            nearbyPlayersUI.updateNearbyPlayers(nearbyTalkingPlayers);
-        });
+        if(!ConfigHolder.get().getGeneral().isEnableUI()) return;
+        if(governor.isShedding(TickGovernor.Level.NO_HUD)) return;
+        world.showNearbyTalking(session.getPlayerUuid(), nearbyTalkingPlayers);
     }
 
-    private JsonObject packPositionPacket(UserSession targetSession, Position targetPos) {
-        JsonObject self = new JsonObject();
-        self.addProperty("id", targetSession.getOdapId());
-        self.addProperty("name", targetSession.getName());
-        self.addProperty("x", targetPos.getX());
-        self.addProperty("y", targetPos.getY());
-        self.addProperty("z", targetPos.getZ());
-        self.addProperty("yaw", targetPos.getYaw());
-        return self;
+    private static String fragment(Map<Integer, String> fragments, UserSession session, Position pos) {
+        return fragments.computeIfAbsent(session.getOdapId(), id -> ProtocolCodec.playerEntry(session, pos));
     }
 }
@@ -0,0 +1,109 @@
+package pl.msmaciek.session;
+
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.protocol.ProtocolCodec;
+import pl.msmaciek.util.VoiceChatExecutors;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closes connections that hold a slot without using it: clients that never finish verifying and
+ * joining within the handshake timeout, and sockets that stopped answering the {@link LinkMonitor}
+ * pings (a closed laptop lid or a dropped network leaves the TCP connection open for a long time).
+ * <p>
+ * Only sessions marked by their endpoint are checked; replayed sessions have no socket to reap.
+ */
+public class SessionReaper {
+    private static final SessionReaper INSTANCE = new SessionReaper();
+    private static final long CHECK_INTERVAL_MS = 1000;
+    // Never reap before this many pings went unanswered, whatever the configured timeout
+    private static final int MIN_MISSED_PINGS = 3;
+
+    private final LongAdder handshakeTimeouts;
+    private final LongAdder heartbeatTimeouts;
+    private ScheduledFuture<?> checks;
+
+    private SessionReaper() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        handshakeTimeouts = metrics.counter("sessions.reaped.handshake");
+        heartbeatTimeouts = metrics.counter("sessions.reaped.heartbeat");
+    }
+
+    public static SessionReaper getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (checks != null) return;
+        checks = VoiceChatExecutors.getInstance().scheduler().scheduleAtFixedRate(() -> {
+            try {
+                reap();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (checks != null) {
+            checks.cancel(false);
+            checks = null;
+        }
+    }
+
+    private void reap() {
+        VoiceChatConfig.GeneralConfig general = ConfigHolder.get().getGeneral();
+        long now = System.nanoTime();
+        long handshakeNanos = TimeUnit.SECONDS.toNanos(Math.max(0, general.getHandshakeTimeoutSeconds()));
+        long heartbeatNanos = heartbeatTimeoutNanos(general);
+
+        SessionManager sessions = SessionManager.getInstance();
+        for (UserSession session : sessions.getStaged()) {
+            if (session.getConnectedAtNanos() == 0 || !session.getSession().isOpen()) continue;
+
+            if (handshakeNanos > 0 && now - session.getConnectedAtNanos() > handshakeNanos) {
+                handshakeTimeouts.increment();
+                session.sendTextAndClose(ProtocolCodec.KICKED_HANDSHAKE_TIMEOUT);
+            } else if (isDead(session, now, heartbeatNanos)) {
+                disconnect(session);
+            }
+        }
+
+        for (UserSession session : sessions.getAll()) {
+            if (isDead(session, now, heartbeatNanos)) {
+                disconnect(session);
+            }
+        }
+    }
+
+    /**
+     * The heartbeat timeout, 0 if disabled. Without server pings an idle client sends nothing, so there is no heartbeat.
+     */
+    private static long heartbeatTimeoutNanos(VoiceChatConfig.GeneralConfig general) {
+        long pingIntervalMs = general.getServerPingIntervalMs();
+        if (general.getHeartbeatTimeoutSeconds() <= 0 || pingIntervalMs <= 0) return 0;
+
+        long timeoutMs = Math.max(general.getHeartbeatTimeoutSeconds() * 1000L, pingIntervalMs * MIN_MISSED_PINGS);
+        return TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    private static boolean isDead(UserSession session, long now, long heartbeatNanos) {
+        long lastSeen = session.getLastSeenNanos();
+        return heartbeatNanos > 0 && lastSeen != 0 && now - lastSeen > heartbeatNanos && session.getSession().isOpen();
+    }
+
+    private void disconnect(UserSession session) {
+        heartbeatTimeouts.increment();
+        System.out.println("[VoiceChat] No heartbeat from session " + session.getOdapId() + ", disconnecting");
+        try {
+            // Closing cleanly would wait on a peer that is gone; drop the connection, the close handler cleans up
+            session.getSession().disconnect();
+        } catch (Exception e) {
+            System.err.println("[VoiceChat] Failed to disconnect session " + session.getOdapId() + ": " + e.getMessage());
+        }
+    }
+}
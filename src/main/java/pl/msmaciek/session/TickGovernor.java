@@ -0,0 +1,156 @@
+package pl.msmaciek.session;
+
+import lombok.Getter;
+import pl.msmaciek.metrics.LatencyHistogram;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the session tick within its time budget by shedding optional work.
+ * <p>
+ * Every tick stage is timed. After a few ticks over budget the governor moves one {@link Level} up,
+ * and after a longer stretch well under budget it moves one level back down.
+ * Ticks that the scheduler fires late to catch up after an overrun are skipped instead of run back to back.
+ */
+public class TickGovernor {
+    private static final TickGovernor INSTANCE = new TickGovernor();
+
+    // Consecutive ticks over budget before shedding the next kind of work
+    private static final int OVERLOAD_TICKS = 3;
+    // Consecutive ticks under RECOVERY_FRACTION of the budget before restoring work
+    private static final int RECOVERY_TICKS = 50;
+    private static final double RECOVERY_FRACTION = 0.5;
+
+    /**
+     * Degradation levels, in the order work is shed. Each level includes the ones before it.
+     */
+    public enum Level {
+        NORMAL,
+        NO_HUD,                 // Nearby-talking HUD is not updated
+        SLOW_NAMEPLATES,        // Nameplates are refreshed at a lower rate
+        SLOW_FAR_SNAPSHOTS      // Listeners with nobody close get snapshots at a lower rate
+    }
+
+    public enum Stage {
+        POSITIONS,
+        SNAPSHOTS
+    }
+
+    @Getter private volatile Level level = Level.NORMAL;
+    // Number of ticks run so far
+    @Getter private volatile long tick = 0;
+
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LatencyHistogram[] stageTimes = new LatencyHistogram[Stage.values().length];
+    private final LongAdder overruns;
+    private final LongAdder skipped;
+    private final LongAdder degradations;
+
+    private long intervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private long budgetNanos = 0;
+    private long lastTickStartNanos = 0;
+    private long tickStartNanos;
+    private int overTicks = 0;
+    private int underTicks = 0;
+
+    private TickGovernor() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        overruns = metrics.counter("tick.overruns");
+        skipped = metrics.counter("tick.skipped");
+        degradations = metrics.counter("tick.degradations");
+        metrics.gauge("tick.degradation.level", () -> level.ordinal());
+        metrics.gauge("tick.time.p95.us", () -> tickTimes.percentile(95));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            stageTimes[stage.ordinal()] = histogram;
+            metrics.gauge("tick." + stage.name().toLowerCase() + ".p95.us", () -> histogram.percentile(95));
+        }
+    }
+
+    public static TickGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param intervalMs Tick interval
+     * @param budgetPercent Share of the interval a tick may take before work is shed, 0 to never shed
+     */
+    public synchronized void configure(long intervalMs, int budgetPercent) {
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        setBudgetPercent(budgetPercent);
+    }
+
+    /**
+     * Change the budget of the running tick interval, e.g. after a config reload.
+     */
+    public synchronized void setBudgetPercent(int budgetPercent) {
+        budgetNanos = intervalNanos * budgetPercent / 100;
+        if (budgetNanos <= 0 && level != Level.NORMAL) {
+            changeLevel(Level.NORMAL, 0);
+        }
+    }
+
+    /**
+     * Start a tick.
+     * @return false if this is a catch-up tick fired right after an overrun, which should be skipped
+     */
+    public synchronized boolean beginTick() {
+        long now = System.nanoTime();
+        if (lastTickStartNanos != 0 && now - lastTickStartNanos < intervalNanos / 2) {
+            skipped.increment();
+            return false;
+        }
+        lastTickStartNanos = now;
+        tickStartNanos = now;
+        tick++;
+        return true;
+    }
+
+    /**
+     * Record how long a stage of the current tick took.
+     */
+    public void record(Stage stage, long nanos) {
+        stageTimes[stage.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public synchronized void endTick() {
+        long elapsed = System.nanoTime() - tickStartNanos;
+        tickTimes.record(TimeUnit.NANOSECONDS.toMicros(elapsed));
+        if (budgetNanos <= 0) return;
+
+        if (elapsed > budgetNanos) {
+            overruns.increment();
+            underTicks = 0;
+            if (++overTicks >= OVERLOAD_TICKS && level.ordinal() < Level.values().length - 1) {
+                overTicks = 0;
+                degradations.increment();
+                changeLevel(Level.values()[level.ordinal() + 1], elapsed);
+            }
+        } else {
+            overTicks = 0;
+            if (elapsed < budgetNanos * RECOVERY_FRACTION && level != Level.NORMAL) {
+                if (++underTicks >= RECOVERY_TICKS) {
+                    underTicks = 0;
+                    changeLevel(Level.values()[level.ordinal() - 1], elapsed);
+                }
+            } else {
+                underTicks = 0;
+            }
+        }
+    }
+
+    /**
+     * Whether work shed at the given level is currently being shed.
+     */
+    public boolean isShedding(Level work) {
+        return level.ordinal() >= work.ordinal();
+    }
+
+    private void changeLevel(Level newLevel, long tickNanos) {
+        System.out.println("[VoiceChat] Tick governor: " + level + " -> " + newLevel + " (last tick "
+                + TimeUnit.NANOSECONDS.toMillis(tickNanos) + "ms, budget " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms)");
+        level = newLevel;
+    }
+}
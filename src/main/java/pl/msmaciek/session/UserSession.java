@@ -1,20 +1,30 @@
 package pl.msmaciek.session;
 
-import com.google.gson.JsonObject;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.eclipse.jetty.websocket.api.Session;
+import pl.msmaciek.audio.LoudnessNormalizer;
+import pl.msmaciek.config.ConfigHolder;
 import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
 import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.protocol.ProtocolCodec;
 import pl.msmaciek.structs.Position;
+import pl.msmaciek.util.SerialExecutor;
+import pl.msmaciek.zone.AcousticZone;
+import pl.msmaciek.zone.ZoneManager;
 
 import java.io.IOException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
-@RequiredArgsConstructor
 public class UserSession {
+    private static final LongAdder SENDS_DROPPED = VoiceChatMetrics.getInstance().counter("session.sends.dropped");
+    private static final LongAdder SENDS_LOST_CLOSES = VoiceChatMetrics.getInstance().counter("session.sends.lost_closes");
+
     private final int odapId;
     private final Session session;
     private final String sessionId;
@@ -22,6 +32,68 @@ public class UserSession {
     @Setter private String name;
     @Setter private UUID playerUuid;
 
+    private final LinkQuality link = new LinkQuality();
+    private final DownlinkController downlink = new DownlinkController();
+    private final FanOutPool.SpeakerState fanOut = new FanOutPool.SpeakerState();
+    private final LoudnessNormalizer.SpeakerState loudness = new LoudnessNormalizer.SpeakerState();
+    // Blocking text sends, kept in order and off the Jetty and scheduler threads. Shared by the sessions of one socket
+    @Getter(AccessLevel.NONE)
+    private final SerialExecutor sends;
+    // System.nanoTime() of the socket opening and of its last inbound message, 0 if not tracked (replays)
+    private volatile long connectedAtNanos;
+    private volatile long lastSeenNanos;
+
+    // odapIds of the players this session currently hears, rebuilt every snapshot tick
+    @Setter private volatile Set<Integer> interest = Set.of();
+    // Distance to the closest player in the last snapshot, MAX_VALUE if nobody was in range
+    @Setter private volatile double nearestDistance = Double.MAX_VALUE;
+    // Subscription filters set by the client: no audio at all while deafened, none from muted odapIds
+    @Setter private volatile boolean deafened = false;
+    @Setter private volatile Set<Integer> muted = Set.of();
+    // Acoustic zone the player stands in, updated every snapshot tick
+    @Setter private volatile AcousticZone zone = AcousticZone.NONE;
+    @Setter private volatile ZoneManager.Cached zoneCache;
+
+    public UserSession(int odapId, Session session, String sessionId) {
+        this(odapId, session, sessionId, newSendQueue(session));
+    }
+
+    /**
+     * A session taking over the socket, and so the send queue, of another one.
+     */
+    UserSession(int odapId, Session session, String sessionId, UserSession connecting) {
+        this(odapId, session, sessionId, connecting.sends);
+    }
+
+    private UserSession(int odapId, Session session, String sessionId, SerialExecutor sends) {
+        this.odapId = odapId;
+        this.session = session;
+        this.sessionId = sessionId;
+        this.sends = sends;
+    }
+
+    private static SerialExecutor newSendQueue(Session session) {
+        return new SerialExecutor(ConfigHolder.get().getThreads().getSendQueueCapacity(), task -> {
+            SENDS_DROPPED.increment();
+            if (!(task instanceof TextSend send) || !send.droppable()) closeOnLostSend(session);
+        });
+    }
+
+    /**
+     * A message the client's state depends on was lost: drop the connection so the client
+     * reconnects and resumes with a consistent state, instead of staying open out of sync.
+     */
+    private static void closeOnLostSend(Session session) {
+        if (!session.isOpen()) return;
+        SENDS_LOST_CLOSES.increment();
+        try {
+            // The queue is stuck or the pool is saturated, a clean close would wait behind it
+            session.disconnect();
+        } catch (Exception e) {
+            System.err.println("[VoiceChat] Failed to disconnect session after a lost send: " + e.getMessage());
+        }
+    }
+
     /**
      * Get live position from PlayerTracker (server-authoritative).
      */
@@ -79,24 +151,106 @@ public class UserSession {
     }
 
     /**
-     * Send server configuration to this session's client.
+     * Send server configuration to this session's client, with the overrides of the player's zone.
      * @param config The VoiceChatConfig to send
      */
     public void sendConfig(VoiceChatConfig config) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "config");
-        msg.addProperty("maxDistance", config.getAudio().getMaxDistance());
-        msg.addProperty("distanceFormula", config.getAudio().getDistanceFormula().name());
-        msg.addProperty("voiceDimension", config.getAudio().getVoiceDimension().toString());
-        msg.addProperty("rolloffFactor", config.getAudio().getRolloffFactor());
-        msg.addProperty("refDistance", config.getAudio().getRefDistance());
-        msg.addProperty("blend2dDistance", config.getAudio().getBlend2dDistance());
-        msg.addProperty("full3dDistance", config.getAudio().getFull3dDistance());
+        sendText(ProtocolCodec.config(config, zone));
+    }
 
-        try {
-            session.getRemote().sendString(msg.toString());
-        } catch (IOException e) {
-            System.err.println("Failed to send config to session " + odapId + ": " + e.getMessage());
+    /**
+     * Send the verification state of this session's code to its client.
+     * @param verified Whether the code has been verified in game
+     * @param username The verified player's name, or null
+     */
+    public void sendVerificationStatus(boolean verified, String username) {
+        sendText(ProtocolCodec.verificationStatus(verified, username));
+    }
+
+    /**
+     * Send a text message on the I/O executor, after every text message queued before it.
+     * If it can't be queued or is dropped (the client stopped reading, or the I/O executor is saturated),
+     * the connection is dropped, so the client never stays connected having missed it.
+     */
+    public void sendText(String text) {
+        queueText(text, false, false);
+    }
+
+    /**
+     * Send a players snapshot. Unlike other messages it may be dropped, as the next tick replaces it.
+     */
+    public void sendSnapshot(String text) {
+        queueText(text, false, true);
+    }
+
+    /**
+     * Send a server ping registered with {@link LinkQuality#nextPing}, stamped when it is written.
+     */
+    public void sendPing(long seq) {
+        if (!sends.offer(new PingSend(this, seq))) {
+            SENDS_DROPPED.increment();
+            closeOnLostSend(session);
+        }
+    }
+
+    /**
+     * Send a last text message, then close the connection.
+     */
+    public void sendTextAndClose(String text) {
+        queueText(text, true, false);
+    }
+
+    /**
+     * Start tracking the handshake deadline and heartbeat of a live socket.
+     */
+    public void markConnected(long nowNanos) {
+        connectedAtNanos = nowNanos;
+        lastSeenNanos = nowNanos;
+    }
+
+    /**
+     * Record that the client sent something, proving the socket is alive.
+     */
+    public void markSeen(long nowNanos) {
+        if (lastSeenNanos != 0) lastSeenNanos = nowNanos;
+    }
+
+    /**
+     * Take over the liveness of the session created for the same socket,
+     * so the reaper judges the new socket, not the old one.
+     */
+    void inheritConnection(UserSession connecting) {
+        this.connectedAtNanos = connecting.connectedAtNanos;
+        this.lastSeenNanos = connecting.lastSeenNanos;
+    }
+
+    private void queueText(String text, boolean close, boolean droppable) {
+        if (!sends.offer(new TextSend(this, text, close, droppable))) {
+            SENDS_DROPPED.increment();
+            if (!droppable) closeOnLostSend(session);
+        }
+    }
+
+    private record TextSend(UserSession target, String text, boolean close, boolean droppable) implements Runnable {
+        @Override
+        public void run() {
+            Session session = target.session;
+            try {
+                if (session.isOpen()) session.getRemote().sendString(text);
+            } catch (IOException e) {
+                System.err.println("Failed to send to session " + target.odapId + ": " + e.getMessage());
+                if (!droppable) closeOnLostSend(session);
+            }
+            if (close) session.close();
+        }
+    }
+
+    private record PingSend(UserSession target, long seq) implements Runnable {
+        @Override
+        public void run() {
+            // The RTT starts when the ping leaves, not when it joined the queue
+            target.link.pingSent(seq, System.nanoTime());
+            new TextSend(target, ProtocolCodec.serverPing(seq), false, false).run();
         }
     }
 }
@@ -0,0 +1,150 @@
+package pl.msmaciek.stage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.session.UserSession;
+import pl.msmaciek.structs.Position;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stage (broadcast) mode: the configured {@link StageRegion}s and who is broadcasting on them.
+ * <p>
+ * Broadcasters are worked out once per position tick, so the relay only does a map lookup per frame.
+ * Stages are saved to a JSON file whenever they change.
+ */
+public class StageManager {
+    private static final StageManager INSTANCE = new StageManager();
+    private static final Type FILE_TYPE = new TypeToken<List<StageRegion>>() {}.getType();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private volatile List<StageRegion> stages = List.of();
+    // odapId of every session broadcasting right now -> its stage, rebuilt every tick
+    private volatile Map<Integer, StageRegion> broadcasting = Map.of();
+    private Path file;
+
+    private StageManager() {
+        VoiceChatMetrics.getInstance().gauge("stage.broadcasters", () -> broadcasting.size());
+    }
+
+    public static StageManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load stages from the file and save future changes to it. A missing file means no stages.
+     */
+    public synchronized void load(Path file) {
+        this.file = file;
+        if (!Files.exists(file)) return;
+
+        try (Reader reader = Files.newBufferedReader(file)) {
+            List<StageRegion> loaded = GSON.fromJson(reader, FILE_TYPE);
+            if (loaded != null) stages = List.copyOf(loaded);
+            System.out.println("[VoiceChat] Loaded " + stages.size() + " stages");
+        } catch (IOException | JsonParseException e) {
+            System.err.println("[VoiceChat] Failed to load stages from " + file + ": " + e.getMessage());
+        }
+    }
+
+    public List<StageRegion> getStages() {
+        return stages;
+    }
+
+    public StageRegion getStage(String name) {
+        for (StageRegion stage : stages) {
+            if (stage.getName().equalsIgnoreCase(name)) return stage;
+        }
+        return null;
+    }
+
+    /**
+     * Add a stage, replacing any stage of the same name.
+     */
+    public synchronized void put(StageRegion stage) {
+        List<StageRegion> changed = new ArrayList<>(stages);
+        changed.removeIf(s -> s.getName().equalsIgnoreCase(stage.getName()));
+        changed.add(stage);
+        stages = List.copyOf(changed);
+        save();
+    }
+
+    /**
+     * @return false if there is no stage with that name
+     */
+    public synchronized boolean remove(String name) {
+        List<StageRegion> changed = new ArrayList<>(stages);
+        if (!changed.removeIf(s -> s.getName().equalsIgnoreCase(name))) return false;
+        stages = List.copyOf(changed);
+        save();
+        return true;
+    }
+
+    /**
+     * Work out which sessions are broadcasting. Called once per position tick.
+     */
+    public void update(Collection<UserSession> sessions) {
+        List<StageRegion> current = stages;
+        if (current.isEmpty()) {
+            broadcasting = Map.of();
+            return;
+        }
+
+        Map<Integer, StageRegion> found = new HashMap<>();
+        for (UserSession session : sessions) {
+            if (session.getPlayerUuid() == null) continue;
+            Position pos = session.getPosition();
+            for (StageRegion stage : current) {
+                if (stage.isBroadcaster(session.getPlayerUuid(), pos)) {
+                    found.put(session.getOdapId(), stage);
+                    break;
+                }
+            }
+        }
+        broadcasting = found;
+    }
+
+    /**
+     * The stage a speaker is broadcasting on, or null.
+     */
+    public StageRegion getBroadcastStage(int odapId) {
+        return broadcasting.get(odapId);
+    }
+
+    /**
+     * All sessions broadcasting right now, by odapId.
+     */
+    public Map<Integer, StageRegion> getBroadcasting() {
+        return broadcasting;
+    }
+
+    private void save() {
+        if (file == null) return;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                GSON.toJson(stages, FILE_TYPE, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[VoiceChat] Failed to save stages to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package pl.msmaciek.stage;
+
+import lombok.Getter;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A stage: an area where broadcasters are heard by every listener inside it, regardless of distance.
+ * Hosts broadcast from anywhere in the area; anyone standing on the podium, if there is one, broadcasts too.
+ * <p>
+ * Immutable; {@link StageManager} replaces a stage when it changes.
+ */
+@Getter
+public class StageRegion {
+    private final String name;
+    private final UUID worldUuid;
+    private final Box area;
+    private final Box podium;
+    private final Set<UUID> hosts;
+
+    public StageRegion(String name, UUID worldUuid, Box area, Box podium, Set<UUID> hosts) {
+        this.name = name;
+        this.worldUuid = worldUuid;
+        this.area = area;
+        this.podium = podium;
+        this.hosts = hosts != null ? Set.copyOf(hosts) : Set.of();
+    }
+
+    public boolean contains(Position pos) {
+        return pos != null && Objects.equals(worldUuid, pos.getWorldUuid()) && area.contains(pos);
+    }
+
+    /**
+     * Whether a player at the given position is broadcasting on this stage.
+     */
+    public boolean isBroadcaster(UUID player, Position pos) {
+        if (!contains(pos)) return false;
+        return (hosts != null && hosts.contains(player)) || (podium != null && podium.contains(pos));
+    }
+
+    public StageRegion withPodium(Box podium) {
+        return new StageRegion(name, worldUuid, area, podium, hosts);
+    }
+
+    public StageRegion withHost(UUID host, boolean add) {
+        Set<UUID> changed = new HashSet<>(hosts != null ? hosts : Set.of());
+        if (add) changed.add(host);
+        else changed.remove(host);
+        return new StageRegion(name, worldUuid, area, podium, changed);
+    }
+}
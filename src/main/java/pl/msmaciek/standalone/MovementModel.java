@@ -0,0 +1,102 @@
+package pl.msmaciek.standalone;
+
+import java.util.Random;
+
+/**
+ * How simulated players move around.
+ */
+public enum MovementModel {
+    /**
+     * Independent walkers that keep changing direction a little.
+     */
+    RANDOM_WALK {
+        @Override
+        void step(SimulatedWorld world, SimulatedBot bot, double dt, Random random) {
+            wander(world, bot, dt, random, WALK_SPEED);
+        }
+    },
+
+    /**
+     * Players gather around a few slowly drifting points, like a spawn area or an event,
+     * so many speakers are in range of each other at once.
+     */
+    CROWD {
+        @Override
+        void tick(SimulatedWorld world, double dt, Random random) {
+            for (double[] hotspot : world.getHotspots()) {
+                hotspot[0] = clamp(hotspot[0] + random.nextGaussian() * HOTSPOT_DRIFT * dt, world.getArea());
+                hotspot[1] = clamp(hotspot[1] + random.nextGaussian() * HOTSPOT_DRIFT * dt, world.getArea());
+            }
+        }
+
+        @Override
+        void step(SimulatedWorld world, SimulatedBot bot, double dt, Random random) {
+            double[][] hotspots = world.getHotspots();
+            if (random.nextDouble() < dt / GROUP_CHANGE_SECONDS) {
+                bot.setGroup(random.nextInt(hotspots.length));
+            }
+
+            double[] hotspot = hotspots[bot.getGroup() % hotspots.length];
+            if (bot.distanceSquaredTo(hotspot[0], hotspot[1]) > CROWD_RADIUS * CROWD_RADIUS) {
+                bot.face(hotspot[0], hotspot[1]);
+                bot.turn(random.nextGaussian() * 20);
+                bot.walk(RUN_SPEED * dt, world.getArea());
+            } else {
+                wander(world, bot, dt, random, WALK_SPEED / 3);
+            }
+        }
+    },
+
+    /**
+     * Random walk with occasional bursts where part of the population teleports at once,
+     * e.g. after a minigame round ends. Exercises interest set churn.
+     */
+    TELEPORT_BURSTS {
+        @Override
+        void tick(SimulatedWorld world, double dt, Random random) {
+            if (random.nextDouble() >= dt / BURST_INTERVAL_SECONDS) return;
+            for (SimulatedBot bot : world.getBots()) {
+                if (random.nextDouble() < BURST_FRACTION) world.teleportRandomly(bot);
+            }
+        }
+
+        @Override
+        void step(SimulatedWorld world, SimulatedBot bot, double dt, Random random) {
+            wander(world, bot, dt, random, WALK_SPEED);
+        }
+    };
+
+    private static final double WALK_SPEED = 4.3;           // blocks per second
+    private static final double RUN_SPEED = 5.6;
+    private static final double TURN_RATE = 90;             // degrees per sqrt(second)
+    private static final double CROWD_RADIUS = 12;
+    private static final double HOTSPOT_DRIFT = 0.5;
+    private static final double GROUP_CHANGE_SECONDS = 120;
+    private static final double BURST_INTERVAL_SECONDS = 30;
+    private static final double BURST_FRACTION = 0.3;
+
+    /**
+     * Population-wide update, once per step before the bots move.
+     */
+    void tick(SimulatedWorld world, double dt, Random random) {}
+
+    abstract void step(SimulatedWorld world, SimulatedBot bot, double dt, Random random);
+
+    private static void wander(SimulatedWorld world, SimulatedBot bot, double dt, Random random, double speed) {
+        bot.turn(random.nextGaussian() * TURN_RATE * Math.sqrt(dt));
+        bot.walk(speed * dt, world.getArea());
+    }
+
+    private static double clamp(double value, double area) {
+        return Math.max(-area, Math.min(area, value));
+    }
+
+    public static MovementModel fromString(String value) {
+        return switch (value.toLowerCase()) {
+            case "random", "random_walk" -> RANDOM_WALK;
+            case "crowd", "cluster" -> CROWD;
+            case "teleport", "teleport_bursts" -> TELEPORT_BURSTS;
+            default -> throw new IllegalArgumentException("Unknown movement model: " + value);
+        };
+    }
+}
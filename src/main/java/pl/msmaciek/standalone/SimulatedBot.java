@@ -0,0 +1,64 @@
+package pl.msmaciek.standalone;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * A simulated player of the standalone server.
+ */
+@Getter
+public class SimulatedBot {
+    private final UUID uuid;
+    private final String name;
+    private double x, y, z;
+    private float yaw; // degrees, same convention as Position (0 = +Z, 90 = -X)
+    @Setter private int world;
+    @Setter private int group;
+
+    public SimulatedBot(UUID uuid, String name) {
+        this.uuid = uuid;
+        this.name = name;
+    }
+
+    public void teleport(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public void turn(double degrees) {
+        yaw = (float) ((yaw + degrees) % 360);
+        if (yaw < 0) yaw += 360;
+    }
+
+    /**
+     * Turn to face a point on the ground plane.
+     */
+    public void face(double targetX, double targetZ) {
+        yaw = 0;
+        turn(Math.toDegrees(Math.atan2(x - targetX, targetZ - z)));
+    }
+
+    /**
+     * Move forward, turning around at the edge of the area.
+     * @param area Half the side length of the square the bots stay in
+     */
+    public void walk(double distance, double area) {
+        double rad = Math.toRadians(yaw);
+        double nx = x - Math.sin(rad) * distance;
+        double nz = z + Math.cos(rad) * distance;
+        if (Math.abs(nx) > area || Math.abs(nz) > area) {
+            turn(180);
+            return;
+        }
+        x = nx;
+        z = nz;
+    }
+
+    public double distanceSquaredTo(double px, double pz) {
+        double dx = x - px, dz = z - pz;
+        return dx * dx + dz * dz;
+    }
+}
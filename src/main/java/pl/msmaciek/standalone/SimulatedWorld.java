@@ -0,0 +1,111 @@
+package pl.msmaciek.standalone;
+
+import lombok.Getter;
+import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.world.WorldAdapter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * {@link WorldAdapter} with a population of bots moving on a flat square area.
+ * Bots advance whenever the session scheduler samples positions, by the time passed since the last sample.
+ */
+public class SimulatedWorld implements WorldAdapter {
+    private static final double GROUND_Y = 64;
+    private static final double MAX_STEP_SECONDS = 1.0;
+    private static final int HOTSPOTS = 4;
+
+    @Getter private final List<SimulatedBot> bots;
+    @Getter private final double area;
+    @Getter private final double[][] hotspots = new double[HOTSPOTS][2];
+    private final MovementModel model;
+    private final UUID[] worlds;
+    private final double worldSwitchesPerMinute;
+    private final Random random;
+
+    private long lastStepNanos = 0;
+
+    /**
+     * @param area Half the side length of the square the bots stay in
+     * @param worldSwitchesPerMinute How often each bot moves to another world on average
+     */
+    public SimulatedWorld(int botCount, MovementModel model, double area, int worldCount, double worldSwitchesPerMinute, long seed) {
+        this.model = model;
+        this.area = area;
+        this.worldSwitchesPerMinute = worldSwitchesPerMinute;
+        this.random = new Random(seed);
+
+        worlds = new UUID[Math.max(1, worldCount)];
+        for (int i = 0; i < worlds.length; i++) {
+            worlds[i] = UUID.nameUUIDFromBytes(("world-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        for (double[] hotspot : hotspots) {
+            hotspot[0] = (random.nextDouble() * 2 - 1) * area / 2;
+            hotspot[1] = (random.nextDouble() * 2 - 1) * area / 2;
+        }
+
+        List<SimulatedBot> list = new ArrayList<>(botCount);
+        for (int i = 1; i <= botCount; i++) {
+            String name = "Bot" + i;
+            SimulatedBot bot = new SimulatedBot(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)), name);
+            bot.setGroup(random.nextInt(HOTSPOTS));
+            bot.setWorld(random.nextInt(worlds.length));
+            bot.turn(random.nextDouble() * 360);
+            teleportRandomly(bot);
+            list.add(bot);
+        }
+        bots = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Register every bot as an online player.
+     */
+    public void spawn() {
+        for (SimulatedBot bot : bots) {
+            PlayerTracker.getInstance().playerJoined(bot.getUuid(), bot.getName());
+        }
+    }
+
+    public UUID getWorldUuid(int world) {
+        return worlds[world];
+    }
+
+    public SimulatedBot getBot(String name) {
+        for (SimulatedBot bot : bots) {
+            if (bot.getName().equalsIgnoreCase(name)) return bot;
+        }
+        return null;
+    }
+
+    void teleportRandomly(SimulatedBot bot) {
+        bot.teleport((random.nextDouble() * 2 - 1) * area, GROUND_Y, (random.nextDouble() * 2 - 1) * area);
+    }
+
+    @Override
+    public synchronized boolean forEachPlayer(PlayerVisitor visitor) {
+        long now = System.nanoTime();
+        double dt = lastStepNanos == 0 ? 0 : Math.min((now - lastStepNanos) / 1e9, MAX_STEP_SECONDS);
+        lastStepNanos = now;
+
+        if (dt > 0) {
+            model.tick(this, dt, random);
+            for (SimulatedBot bot : bots) {
+                model.step(this, bot, dt, random);
+                if (worlds.length > 1 && random.nextDouble() < worldSwitchesPerMinute * dt / 60) {
+                    bot.setWorld((bot.getWorld() + 1 + random.nextInt(worlds.length - 1)) % worlds.length);
+                    teleportRandomly(bot);
+                }
+            }
+        }
+
+        for (SimulatedBot bot : bots) {
+            visitor.visit(bot.getUuid(), worlds[bot.getWorld()], bot.getX(), bot.getY(), bot.getZ(), bot.getYaw());
+        }
+        return true;
+    }
+}
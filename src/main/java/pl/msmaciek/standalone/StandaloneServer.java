@@ -0,0 +1,303 @@
+package pl.msmaciek.standalone;
+
+import pl.msmaciek.auth.VerificationManager;
+import pl.msmaciek.capture.TrafficCapture;
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.impairment.ImpairmentScenario;
+import pl.msmaciek.impairment.Impairments;
+import pl.msmaciek.moderation.ClipRecorder;
+import pl.msmaciek.nameplate.NameplateManager;
+import pl.msmaciek.server.WebServer;
+import pl.msmaciek.session.FanOutPool;
+import pl.msmaciek.session.LinkMonitor;
+import pl.msmaciek.session.SessionReaper;
+import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.stage.StageManager;
+import pl.msmaciek.stage.StageRegion;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.util.VoiceChatExecutors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs the voice server without a Hytale server, against a {@link SimulatedWorld}.
+ * Used for load testing and profiling the session pipeline; needs nothing but the JDK and Jetty.
+ * <p>
+ * Browsers join as one of the bots: open the web client, then type {@code verify <code> <bot>} in the console.
+ * <pre>
+ * ./gradlew runStandalone --args="--bots 200 --model crowd --worlds 2 --world-switch-rate 0.5"
+ * </pre>
+ */
+public class StandaloneServer {
+    private static final String USAGE = """
+            Options:
+              --port <port>                 WebSocket/HTTP port (default 8080)
+              --ssl                         Use the keystore from the default config
+              --unix-socket <path>          Listen on a unix domain socket instead of the port
+              --acceptors <n>               Jetty acceptor threads (default picked by Jetty)
+              --selectors <n>               Jetty selector threads (default picked by Jetty)
+              --output-buffer <bytes>       HTTP and WebSocket output buffer size (default 32768)
+              --io-executor <virtual|platform>  Executor for blocking sends (default virtual)
+              --bots <n>                    Number of simulated players (default 50)
+              --model <random|crowd|teleport>  Movement model (default random)
+              --area <blocks>               Half the side length of the area bots walk in (default 200)
+              --worlds <n>                  Number of worlds (default 1)
+              --world-switch-rate <n>       World switches per bot per minute (default 0)
+              --update-ms <ms>              Position update interval (default 100)
+              --seed <n>                    Random seed (default 1)
+              --auto-verify                 Verify every new code as the next free bot (load tests)
+              --metrics                     Serve metrics as JSON at /metrics
+              --impair <scenario.json>      Simulate bad networks on every connection (see ImpairmentScenario)
+              --stage-hosts <n>             Make the first n bots hosts of a stage covering the whole first world
+            Console:
+              verify <code> <bot>           Verify a web client as a bot
+              status                        Show bots and sessions
+              stop                          Shut down""";
+
+    private final VoiceChatConfig config = new VoiceChatConfig();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger nextBot = new AtomicInteger();
+    private SimulatedWorld world;
+    private WebServer webServer;
+    private boolean autoVerify = false;
+    private boolean metrics = false;
+    private ImpairmentScenario impairment;
+    private int stageHosts = 0;
+
+    public static void main(String[] args) throws Exception {
+        StandaloneServer server = new StandaloneServer();
+        try {
+            server.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "VoiceChat-Shutdown"));
+        server.readConsole();
+    }
+
+    private void parse(String[] args) {
+        int bots = 50;
+        MovementModel model = MovementModel.RANDOM_WALK;
+        double area = 200;
+        int worlds = 1;
+        double worldSwitchRate = 0;
+        long seed = 1;
+
+        config.getServer().setWebSocketPort(8080);
+        config.getServer().setUseSSL(false);
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--ssl" -> config.getServer().setUseSSL(true);
+                case "--port" -> config.getServer().setWebSocketPort(Integer.parseInt(value(args, ++i, arg)));
+                case "--unix-socket" -> {
+                    config.getServer().setConnector(VoiceChatConfig.ConnectorType.UNIX);
+                    config.getServer().setUnixSocketPath(value(args, ++i, arg));
+                }
+                case "--acceptors" -> config.getServer().setAcceptors(Integer.parseInt(value(args, ++i, arg)));
+                case "--selectors" -> config.getServer().setSelectors(Integer.parseInt(value(args, ++i, arg)));
+                case "--output-buffer" -> config.getServer().setOutputBufferSize(Integer.parseInt(value(args, ++i, arg)));
+                case "--io-executor" -> config.getThreads().setIoExecutor(VoiceChatConfig.ExecutorType.fromString(value(args, ++i, arg)));
+                case "--bots" -> bots = Integer.parseInt(value(args, ++i, arg));
+                case "--model" -> model = MovementModel.fromString(value(args, ++i, arg));
+                case "--area" -> area = Double.parseDouble(value(args, ++i, arg));
+                case "--worlds" -> worlds = Integer.parseInt(value(args, ++i, arg));
+                case "--world-switch-rate" -> worldSwitchRate = Double.parseDouble(value(args, ++i, arg));
+                case "--update-ms" -> config.getGeneral().setUpdateIntervalMs(Long.parseLong(value(args, ++i, arg)));
+                case "--seed" -> seed = Long.parseLong(value(args, ++i, arg));
+                case "--auto-verify" -> autoVerify = true;
+                case "--metrics" -> metrics = true;
+                case "--impair" -> impairment = loadScenario(value(args, ++i, arg));
+                case "--stage-hosts" -> stageHosts = Integer.parseInt(value(args, ++i, arg));
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (autoVerify) {
+            // Every load test client connects from the same address
+            config.getGeneral().setMaxPendingCodesPerIp(0);
+            config.getGeneral().setMaxConnectionsPerIp(0);
+            config.getGeneral().setMaxConnections(0);
+        }
+
+        world = new SimulatedWorld(bots, model, area, worlds, worldSwitchRate, seed);
+    }
+
+    private static ImpairmentScenario loadScenario(String path) {
+        try {
+            return ImpairmentScenario.load(Path.of(path));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Failed to load impairment scenario " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[index];
+    }
+
+    private void start() {
+        ConfigHolder.set(() -> config);
+        VoiceChatExecutors.getInstance().configure(config.getThreads());
+        world.spawn();
+
+        VerificationManager.getInstance().setExpiryListener(SessionManager.getInstance()::closeExpiredHandshake);
+        if (autoVerify) {
+            VerificationManager.getInstance().setIssueListener(this::autoVerify);
+        }
+        VerificationManager.getInstance().start(
+            config.getGeneral().getVerificationCodeTtlSeconds() * 1000L,
+            config.getGeneral().getMaxPendingCodesPerIp()
+        );
+
+        SessionManager.getInstance().startScheduler(world, config.getGeneral().getUpdateIntervalMs());
+        NameplateManager.getInstance().start(world);
+        LinkMonitor.getInstance().start(config.getGeneral().getServerPingIntervalMs());
+        SessionReaper.getInstance().start();
+        FanOutPool.getInstance().start(config.getStage().getFanOutThreads(), config.getStage().getFanOutThreshold());
+
+        if (stageHosts > 0) {
+            createStage();
+        }
+
+        if (impairment != null) {
+            Impairments.getInstance().start(impairment);
+            log(Level.INFO, "Network impairment enabled (" + impairment.getSteps().size() + " steps)");
+        }
+
+        webServer = new WebServer(StandaloneServer::log, config);
+        if (metrics) {
+            webServer.enableMetrics();
+        }
+        webServer.startAsync();
+
+        log(Level.INFO, "Standalone voice server started with " + world.getBots().size() + " bots");
+    }
+
+    /**
+     * A stage over the whole first world, hosted by the first bots. Not saved.
+     */
+    private void createStage() {
+        double area = world.getArea();
+        Set<UUID> hosts = new HashSet<>();
+        for (SimulatedBot bot : world.getBots().subList(0, Math.min(stageHosts, world.getBots().size()))) {
+            hosts.add(bot.getUuid());
+        }
+        StageManager.getInstance().put(new StageRegion("main", world.getWorldUuid(0),
+                new Box(-area, -area, -area, area, area + 128, area), null, hosts));
+        log(Level.INFO, "Stage mode: " + hosts.size() + " hosts heard across the first world");
+    }
+
+    private synchronized void stop() {
+        if (stopped.getCount() == 0) return;
+        SessionManager.getInstance().stopScheduler();
+        VerificationManager.getInstance().stop();
+        NameplateManager.getInstance().stop();
+        LinkMonitor.getInstance().stop();
+        SessionReaper.getInstance().stop();
+        FanOutPool.getInstance().stop();
+        TrafficCapture.getInstance().stop();
+        ClipRecorder.getInstance().stop();
+        Impairments.getInstance().stop();
+        if (webServer != null) {
+            webServer.stop();
+        }
+        VoiceChatExecutors.getInstance().stop();
+        stopped.countDown();
+    }
+
+    private void readConsole() throws InterruptedException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                switch (parts[0].toLowerCase()) {
+                    case "" -> {}
+                    case "verify" -> verify(parts);
+                    case "status" -> status();
+                    case "stop", "quit", "exit" -> {
+                        stop();
+                        return;
+                    }
+                    default -> System.out.println(USAGE);
+                }
+            }
+        } catch (IOException e) {
+            log(Level.WARNING, "Console closed: " + e.getMessage());
+        }
+        // No console (e.g. running in the background) - keep serving until the process is stopped
+        stopped.await();
+    }
+
+    private void verify(String[] parts) {
+        if (parts.length < 3) {
+            System.out.println("Usage: verify <code> <bot>");
+            return;
+        }
+
+        SimulatedBot bot = world.getBot(parts[2]);
+        if (bot == null) {
+            System.out.println("No bot named " + parts[2]);
+            return;
+        }
+
+        String code = parts[1].toUpperCase();
+        if (!SessionManager.getInstance().verifyCode(code, bot.getUuid(), bot.getName())) {
+            System.out.println("Invalid or expired code");
+            return;
+        }
+        System.out.println("Verified " + code + " as " + bot.getName());
+    }
+
+    /**
+     * Verify a code as the next bot without a voice session, round-robin.
+     * The client still has to send join; with more clients than bots, later joins replace earlier ones.
+     */
+    private void autoVerify(String code) {
+        List<SimulatedBot> bots = world.getBots();
+        if (bots.isEmpty()) return;
+
+        SimulatedBot bot = null;
+        for (int attempt = 0; attempt < bots.size(); attempt++) {
+            SimulatedBot candidate = bots.get(Math.floorMod(nextBot.getAndIncrement(), bots.size()));
+            if (bot == null) bot = candidate;
+            if (SessionManager.getInstance().getByUuid(candidate.getUuid()) == null) {
+                bot = candidate;
+                break;
+            }
+        }
+        // Called while the code is being issued, before the client has it: there is no status to push yet
+        VerificationManager.getInstance().verify(code, bot.getUuid(), bot.getName());
+    }
+
+    private void status() {
+        SessionManager sessions = SessionManager.getInstance();
+        long joined = sessions.getAll().stream().filter(s -> s.getPlayerUuid() != null).count();
+        System.out.println(world.getBots().size() + " bots, " + (sessions.getAll().size() + sessions.getStaged().size())
+            + " sessions (" + joined + " joined, " + sessions.getStaged().size() + " verifying)");
+    }
+
+    private static void log(Level level, String message) {
+        if (level.intValue() >= Level.WARNING.intValue()) {
+            System.err.println("[" + level.getName() + "] " + message);
+        } else {
+            System.out.println("[" + level.getName() + "] " + message);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pl.msmaciek.structs;
+
+/**
+ * Axis-aligned box, bounds inclusive.
+ */
+public record Box(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+    /**
+     * A cube of the given half side length around a position.
+     */
+    public static Box around(Position center, double radius) {
+        return new Box(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+    }
+
+    public boolean contains(Position pos) {
+        return contains(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x <= maxX
+                && y >= minY && y <= maxY
+                && z >= minZ && z <= maxZ;
+    }
+
+    public double volume() {
+        return (maxX - minX) * (maxY - minY) * (maxZ - minZ);
+    }
+}
@@ -7,7 +7,7 @@ import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
+import java.util.List;
 
 public class NearbyPlayersUI extends CustomUIHud {
     public NearbyPlayersUI(@Nonnull PlayerRef playerRef) {
@@ -18,7 +18,7 @@ public class NearbyPlayersUI extends CustomUIHud {
         player.getHudManager().setCustomHud(playerRef, new NearbyPlayersUI(playerRef));
     }
 
-    public void updateNearbyPlayers(ArrayList<String> playerNames) {
+    public void updateNearbyPlayers(List<String> playerNames) {
         UICommandBuilder uiCommandBuilder = new UICommandBuilder();
 
         StringBuilder playersText = new StringBuilder();
@@ -0,0 +1,76 @@
+package pl.msmaciek.util;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for coarse-grained expiry of many short-lived items.
+ * <p>
+ * Scheduling is O(1) and lock-free; {@link #advance()} must be called once per tick from a single thread
+ * and fires the expiry handler for every item whose deadline has passed. Items that were dealt with
+ * elsewhere are not removed from the wheel - the handler is expected to ignore them.
+ */
+public class HashedTimingWheel<T> {
+    private final Queue<Entry<T>>[] buckets;
+    private final int mask;
+    private final long tickMs;
+    private final Consumer<T> expiryHandler;
+
+    private volatile long currentTick;
+
+    /**
+     * @param bucketCount Number of buckets, rounded up to a power of two
+     * @param tickMs Duration of one tick in milliseconds
+     * @param expiryHandler Called on the advancing thread for every expired item
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(int bucketCount, long tickMs, Consumer<T> expiryHandler) {
+        int size = Integer.highestOneBit(Math.max(1, bucketCount - 1)) << 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickMs = tickMs;
+        this.expiryHandler = expiryHandler;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * Schedule an item to expire after the given delay (rounded up to whole ticks).
+     */
+    public void schedule(T item, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        long deadline = currentTick + ticks;
+        buckets[(int) (deadline & mask)].add(new Entry<>(item, deadline));
+    }
+
+    /**
+     * Move the wheel forward by one tick and expire the items of the new current bucket.
+     */
+    public void advance() {
+        long tick = currentTick + 1;
+        currentTick = tick;
+
+        Iterator<Entry<T>> it = buckets[(int) (tick & mask)].iterator();
+        while (it.hasNext()) {
+            Entry<T> entry = it.next();
+            // Entries for later rounds of the wheel share the bucket
+            if (entry.deadline > tick) continue;
+
+            it.remove();
+            try {
+                expiryHandler.accept(entry.item);
+            } catch (Exception e) {
+                System.err.println("Timing wheel expiry handler failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private record Entry<T>(T item, long deadline) {}
+}
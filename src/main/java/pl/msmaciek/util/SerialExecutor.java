@@ -0,0 +1,106 @@
+package pl.msmaciek.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks one at a time, in submission order, on the shared I/O executor.
+ * Nothing runs while the queue is empty, so an idle instance costs no thread.
+ * <p>
+ * If the I/O executor rejects the work (its queue is full, or it is shutting down), the queued tasks are
+ * dropped and handed to the drop handler rather than run on the submitting thread.
+ */
+public class SerialExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final int capacity;
+    private final Consumer<Runnable> dropped;
+
+    public SerialExecutor() {
+        this(Integer.MAX_VALUE, task -> System.err.println("[VoiceChat] I/O executor is saturated, dropped a queued task"));
+    }
+
+    /**
+     * @param capacity Tasks waiting beyond this are rejected
+     * @param dropped Called with each queued task dropped because the I/O executor rejected it
+     */
+    public SerialExecutor(int capacity, Consumer<Runnable> dropped) {
+        this.capacity = capacity;
+        this.dropped = dropped;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the queue is full
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!offer(task)) throw new RejectedExecutionException("Serial executor queue is full");
+    }
+
+    /**
+     * Queue a task.
+     * @return false if the queue is full
+     */
+    public boolean offer(Runnable task) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            return false;
+        }
+        tasks.add(task);
+        schedule();
+        return true;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    private void schedule() {
+        while (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+            try {
+                VoiceChatExecutors.getInstance().io().execute(this::drain);
+                return;
+            } catch (RejectedExecutionException e) {
+                dropQueued();
+                running.set(false);
+                // Loop: a task may have been added after the last drop, while running was still set
+            }
+        }
+    }
+
+    private void dropQueued() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            pending.decrementAndGet();
+            try {
+                dropped.accept(task);
+            } catch (RuntimeException e) {
+                System.err.println("[VoiceChat] Dropped task handler failed: " + e);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                pending.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[VoiceChat] Queued task failed: " + e);
+                }
+            }
+        } finally {
+            running.set(false);
+            // A task may have been added after the last poll but before running was cleared
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package pl.msmaciek.util;
+
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The plugin's shared executors: one scheduler for every periodic task (snapshot tick, nameplates,
+ * pings, code expiry) and one executor for blocking I/O such as WebSocket text sends and file writes.
+ * <p>
+ * Blocking I/O runs on a virtual thread per task, or on a bounded platform pool that rejects work when
+ * its queue is full. Callers are Jetty and scheduler threads, so the work is never run on them instead.
+ * Both are created on first use with the configured sizes.
+ */
+public class VoiceChatExecutors {
+    private static final VoiceChatExecutors INSTANCE = new VoiceChatExecutors();
+
+    private volatile VoiceChatConfig.ThreadsConfig config = new VoiceChatConfig.ThreadsConfig();
+    private volatile ScheduledThreadPoolExecutor scheduler;
+    private volatile ExecutorService io;
+    private volatile ThreadPoolExecutor ioPool; // Same as io with a platform pool, null with virtual threads
+
+    private final Executor ioExecutor = this::executeIo;
+    private final AtomicInteger ioActive = new AtomicInteger();
+    private final LongAdder ioTasks;
+    private final LongAdder ioRejected;
+
+    private VoiceChatExecutors() {
+        VoiceChatMetrics metrics = VoiceChatMetrics.getInstance();
+        ioTasks = metrics.counter("executor.io.tasks");
+        ioRejected = metrics.counter("executor.io.rejected");
+        metrics.gauge("executor.io.active", ioActive::get);
+        metrics.gauge("executor.io.threads", () -> {
+            ThreadPoolExecutor pool = ioPool;
+            return pool != null ? pool.getPoolSize() : ioActive.get();
+        });
+        metrics.gauge("executor.io.queue", () -> {
+            ThreadPoolExecutor pool = ioPool;
+            return pool != null ? pool.getQueue().size() : 0;
+        });
+        metrics.gauge("executor.scheduler.threads", () -> {
+            ScheduledThreadPoolExecutor current = scheduler;
+            return current != null ? current.getPoolSize() : 0;
+        });
+        metrics.gauge("executor.scheduler.active", () -> {
+            ScheduledThreadPoolExecutor current = scheduler;
+            return current != null ? current.getActiveCount() : 0;
+        });
+        metrics.gauge("executor.scheduler.tasks", () -> {
+            ScheduledThreadPoolExecutor current = scheduler;
+            return current != null ? current.getQueue().size() : 0;
+        });
+    }
+
+    public static VoiceChatExecutors getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the executor sizes. Executors already running keep theirs until {@link #stop()}.
+     */
+    public void configure(VoiceChatConfig.ThreadsConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * The shared scheduler. Periodic tasks must not block, as they hold one of a few threads.
+     */
+    public ScheduledExecutorService scheduler() {
+        ScheduledThreadPoolExecutor current = scheduler;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (scheduler == null) {
+                ScheduledThreadPoolExecutor created = new ScheduledThreadPoolExecutor(
+                        Math.max(1, config.getSchedulerThreads()), daemonFactory("VoiceChat-Scheduler-"));
+                created.setRemoveOnCancelPolicy(true);
+                scheduler = created;
+            }
+            return scheduler;
+        }
+    }
+
+    /**
+     * Executor for blocking I/O.
+     * @throws java.util.concurrent.RejectedExecutionException from execute if the platform pool's queue is full or shut down
+     */
+    public Executor io() {
+        return ioExecutor;
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        if (io != null) {
+            io.shutdown();
+            io = null;
+            ioPool = null;
+        }
+    }
+
+    private void executeIo(Runnable task) {
+        ioService().execute(() -> {
+            ioActive.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                ioActive.decrementAndGet();
+            }
+        });
+        ioTasks.increment();
+    }
+
+    private ExecutorService ioService() {
+        ExecutorService current = io;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (io == null) {
+                VoiceChatConfig.ThreadsConfig threads = config;
+                if (threads.getIoExecutor() == VoiceChatConfig.ExecutorType.VIRTUAL) {
+                    io = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VoiceChat-IO-", 0).factory());
+                } else {
+                    int size = Math.max(1, threads.getIoThreads());
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(Math.max(1, threads.getIoQueueCapacity())),
+                            daemonFactory("VoiceChat-IO-"),
+                            (task, executor) -> {
+                                ioRejected.increment();
+                                throw new RejectedExecutionException(executor.isShutdown()
+                                        ? "I/O executor is shut down" : "I/O executor queue is full");
+                            });
+                    pool.allowCoreThreadTimeOut(true);
+                    ioPool = pool;
+                    io = pool;
+                }
+                System.out.println("[VoiceChat] Blocking I/O runs on " + (ioPool != null
+                        ? "a pool of " + ioPool.getMaximumPoolSize() + " platform threads" : "virtual threads"));
+            }
+            return io;
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
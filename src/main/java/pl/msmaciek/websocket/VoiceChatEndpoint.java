@@ -1,90 +1,120 @@
 package pl.msmaciek.websocket;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
-import pl.msmaciek.Main;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.auth.ResumeTokenManager;
 import pl.msmaciek.auth.VerificationManager;
-import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.capture.TrafficCapture;
+import pl.msmaciek.impairment.ImpairedLink;
+import pl.msmaciek.impairment.ImpairmentScenario;
+import pl.msmaciek.impairment.Impairments;
+import pl.msmaciek.moderation.BlockList;
 import pl.msmaciek.nameplate.NameplateManager;
 import pl.msmaciek.player.PlayerTracker;
+import pl.msmaciek.protocol.ClientMessage;
+import pl.msmaciek.protocol.ProtocolCodec;
+import pl.msmaciek.server.AdmissionControl;
+import pl.msmaciek.session.AudioRelay;
 import pl.msmaciek.session.SessionManager;
+import pl.msmaciek.server.ClientAddresses;
 import pl.msmaciek.session.UserSession;
 
-import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
 import java.util.UUID;
 
 public class VoiceChatEndpoint extends WebSocketAdapter {
-    private static final Gson gson = new Gson();
     private static final SessionManager sessions = SessionManager.getInstance();
 
     private int odapId;
     private UserSession userSession;
     private String sessionId;
     private String verificationCode;
+    // Connection slot, null until admitted
+    private AdmissionControl.Admission admission;
+    // Inbound half of the impairment simulator, null unless a scenario is running
+    private ImpairedLink uplink;
 
     @Override
     public void onWebSocketConnect(Session session) {
         super.onWebSocketConnect(session);
 
+        // Turn away connections over the limits before allocating anything for them
+        String sourceIp = ClientAddresses.resolve(session);
+        AdmissionControl.Admission admitted = AdmissionControl.getInstance().admit(sourceIp);
+        if (!admitted.isAdmitted()) {
+            session.getRemote().sendString(admitted.getRejection(), WriteCallback.NOOP);
+            session.close();
+            return;
+        }
+        admission = admitted;
+
         // Generate unique session ID for this WebSocket connection
         sessionId = UUID.randomUUID().toString();
 
         odapId = sessions.nextId();
-        userSession = new UserSession(odapId, session, sessionId);
+        Session socket = Impairments.getInstance().wrap(session, odapId);
+        uplink = Impairments.getInstance().link(odapId, ImpairmentScenario.Direction.UP);
+
+        userSession = new UserSession(odapId, socket, sessionId);
+        userSession.markConnected(System.nanoTime());
         sessions.add(userSession);
+        TrafficCapture.getInstance().sessionOpened(odapId);
 
         // Send session ID and config
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "id");
-        msg.addProperty("id", odapId);
-        send(session, msg);
+        send(ProtocolCodec.id(odapId));
 
         // Send server config for client-side audio processing
-        userSession.sendConfig(Main.CONFIG.get());
+        userSession.sendConfig(ConfigHolder.get());
 
         // Generate verification code for this session
-        verificationCode = VerificationManager.getInstance().getOrCreateCode(sessionId);
-        sendVerificationCode(session);
+        verificationCode = VerificationManager.getInstance().getOrCreateCode(sessionId, sourceIp);
+        if (verificationCode == null) {
+            userSession.sendTextAndClose(ProtocolCodec.KICKED_TOO_MANY_PENDING);
+            return;
+        }
+        sendVerificationCode();
 
         System.out.println("WebSocket connected: " + odapId + " (session: " + sessionId + "), code: " + verificationCode);
     }
 
-    private void sendVerificationCode(Session session) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "verification_code");
-        msg.addProperty("code", verificationCode);
-        msg.addProperty("command", "/voicechat " + verificationCode);
-        send(session, msg);
+    private void sendVerificationCode() {
+        send(ProtocolCodec.verificationCode(verificationCode));
     }
 
-    private void sendVerificationStatus(Session session) {
+    private void sendVerificationStatus() {
         VerificationManager vm = VerificationManager.getInstance();
         boolean verified = vm.isVerified(verificationCode);
         String username = verified ? vm.getVerifiedUsername(verificationCode) : null;
-
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "verification_status");
-        msg.addProperty("verified", verified);
-        if (username != null) {
-            msg.addProperty("username", username);
-        }
-        send(session, msg);
+        userSession.sendVerificationStatus(verified, username);
     }
 
     @Override
     public void onWebSocketText(String message) {
-        try {
-            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-            String type = json.get("type").getAsString();
+        if (admission == null) return;
+        if (uplink != null) {
+            uplink.submit(message.length(), () -> handleText(message), null);
+            return;
+        }
+        handleText(message);
+    }
 
-            switch (type) {
-                case "check_verification" -> sendVerificationStatus(getSession());
-                case "join" -> handleJoin();
-                case "ping" -> handlePing(json);
+    private void handleText(String message) {
+        userSession.markSeen(System.nanoTime());
+        try {
+            ClientMessage msg = ProtocolCodec.decode(message);
+
+            switch (msg.getType()) {
+                case CHECK_VERIFICATION -> sendVerificationStatus();
+                case JOIN -> handleJoin();
+                case RESUME -> handleResume(msg);
+                case PING -> handlePing(msg);
+                case SERVER_PONG -> userSession.getLink().pongReceived(msg.getSeq(), System.nanoTime());
+                case SUBSCRIPTION -> handleSubscription(msg);
+                case BLOCK -> handleBlock(msg);
+                case UNKNOWN -> {}
             }
         } catch (Exception e) {
             System.err.println("Error processing message: " + e.getMessage());
@@ -93,52 +123,34 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
 
     @Override
     public void onWebSocketBinary(byte[] payload, int offset, int len) {
+        if (uplink != null) {
+            byte[] copy = Arrays.copyOfRange(payload, offset, offset + len);
+            uplink.submit(len, () -> handleBinary(copy, 0, len), null);
+            return;
+        }
+        handleBinary(payload, offset, len);
+    }
+
+    private void handleBinary(byte[] payload, int offset, int len) {
+        if (userSession != null) userSession.markSeen(System.nanoTime());
         if (userSession == null || userSession.getName() == null || userSession.getPlayerUuid() == null) return;
 
-        NameplateManager.getInstance().markTalking(userSession.getPlayerUuid());
-
-        VoiceChatConfig config = Main.CONFIG.get();
-        // Server cutoff is maxDistance * multiplier to allow client-side attenuation to work
-        double serverCutoff = config.getAudio().getMaxDistance() * config.getAudio().getServerCutoffMultiplier();
-
-        ByteBuffer buffer = ByteBuffer.allocate(4 + len);
-        buffer.putInt(odapId);
-        buffer.put(payload, offset, len);
-        buffer.flip();
-
-        byte[] data = new byte[buffer.remaining()];
-        buffer.get(data);
-
-        for (UserSession s : sessions.getAll()) {
-            if (s.getOdapId() != odapId && s.getSession().isOpen() && s.getName() != null && s.getPlayerUuid() != null) {
-                // Calculate distance and skip if beyond server cutoff
-                double distance = userSession.distanceTo(s);
-                if (distance > serverCutoff) {
-                    continue; // Don't send audio to players too far away
-                }
-
-                try {
-                    ByteBuffer sendBuffer = ByteBuffer.wrap(data);
-                    s.getSession().getRemote().sendBytes(sendBuffer);
-                } catch (IOException e) {
-                    System.err.println("Audio send error: " + e.getMessage());
-                }
-            }
-        }
+        TrafficCapture.getInstance().audioFrame(odapId, payload, offset, len);
+        AudioRelay.getInstance().relay(userSession, payload, offset, len);
     }
 
     @Override
     public void onWebSocketClose(int statusCode, String reason) {
         super.onWebSocketClose(statusCode, reason);
+        if (admission == null) return; // Rejected, nothing was set up
 
-        // Mark player as disconnected from voice chat
-        if (userSession != null && userSession.getPlayerUuid() != null) {
-            NameplateManager.getInstance().markDisconnected(userSession.getPlayerUuid());
-        }
+        // A resumed session may have replaced this one and taken over its player link and username claim
+        boolean superseded = userSession != null && !sessions.remove(userSession);
 
-        // Release the username claim
-        if (userSession != null && userSession.getName() != null) {
-            PlayerTracker.getInstance().releaseUsername(userSession.getName());
+        // Mark player as disconnected from voice chat, unless a newer session already took over the player
+        if (!superseded && userSession != null && userSession.getPlayerUuid() != null
+                && sessions.getByUuid(userSession.getPlayerUuid()) == null) {
+            NameplateManager.getInstance().markDisconnected(userSession.getPlayerUuid());
         }
 
         // Invalidate verification code if not consumed
@@ -146,11 +158,14 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
             VerificationManager.getInstance().invalidateForSession(sessionId);
         }
 
-        sessions.remove(odapId);
+        if (!superseded) {
+            TrafficCapture.getInstance().sessionClosed(odapId);
+        }
 
         SessionManager.getInstance().broadcastPlayerSnapshot();
+        admission.release();
 
-        System.out.println("WebSocket disconnected: " + odapId);
+        System.out.println("WebSocket disconnected: " + odapId + (superseded ? " (resumed elsewhere)" : ""));
     }
 
     @Override
@@ -164,10 +179,7 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
 
         // Check if verified
         if (!vm.isVerified(verificationCode)) {
-            JsonObject errorMsg = new JsonObject();
-            errorMsg.addProperty("type", "join_error");
-            errorMsg.addProperty("error", "Please verify first by typing the command in game chat.");
-            send(getSession(), errorMsg);
+            send(ProtocolCodec.JOIN_ERROR_NOT_VERIFIED);
             return;
         }
 
@@ -176,19 +188,13 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
         String playerName = vm.getVerifiedUsername(verificationCode);
 
         if (playerUuid == null || playerName == null) {
-            JsonObject errorMsg = new JsonObject();
-            errorMsg.addProperty("type", "join_error");
-            errorMsg.addProperty("error", "Verification expired. Please refresh and try again.");
-            send(getSession(), errorMsg);
+            send(ProtocolCodec.JOIN_ERROR_VERIFICATION_EXPIRED);
             return;
         }
 
         // Check if player is still online
         if (!PlayerTracker.getInstance().isOnline(playerName)) {
-            JsonObject errorMsg = new JsonObject();
-            errorMsg.addProperty("type", "join_error");
-            errorMsg.addProperty("error", "Player is no longer online.");
-            send(getSession(), errorMsg);
+            send(ProtocolCodec.JOIN_ERROR_OFFLINE);
             vm.consumeCode(verificationCode);
             return;
         }
@@ -197,16 +203,11 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
         UserSession existingSession = sessions.disconnectByUsername(playerName);
         if (existingSession != null) {
             System.out.println("Disconnected existing session for: " + playerName);
-            // Release the username claim from the old session
-            PlayerTracker.getInstance().releaseUsername(playerName);
         }
 
-        // Try to claim the username
-        if (!PlayerTracker.getInstance().tryClaimUsername(playerName)) {
-            JsonObject errorMsg = new JsonObject();
-            errorMsg.addProperty("type", "join_error");
-            errorMsg.addProperty("error", "This player is already in voice chat.");
-            send(getSession(), errorMsg);
+        // Try to claim the player
+        if (!sessions.claim(userSession, playerUuid, playerName)) {
+            send(ProtocolCodec.JOIN_ERROR_ALREADY_JOINED);
             vm.consumeCode(verificationCode);
             return;
         }
@@ -214,35 +215,96 @@ public class VoiceChatEndpoint extends WebSocketAdapter {
         // Success - consume the code
         vm.consumeCode(verificationCode);
 
-        userSession.setName(playerName);
-        sessions.linkToPlayer(userSession, playerUuid);
+        TrafficCapture.getInstance().sessionJoined(odapId, playerUuid, playerName);
 
         // Mark player as connected to voice chat
         NameplateManager.getInstance().markConnected(playerUuid);
 
-        // Send join success - snapshots will handle player list
-        JsonObject joinMsg = new JsonObject();
-        joinMsg.addProperty("type", "join_success");
-        joinMsg.addProperty("id", odapId);
-        joinMsg.addProperty("name", playerName);
-        send(getSession(), joinMsg);
+        sendJoinSuccess(false);
 
         System.out.println("User joined voice chat: " + playerName + " (ID: " + odapId + ")");
     }
 
+    private void handleResume(ClientMessage msg) {
+        ResumeTokenManager tokens = ResumeTokenManager.getInstance();
+        ResumeTokenManager.Claims claims = tokens.verify(msg.getToken());
 
-    private void handlePing(JsonObject json) {
-        JsonObject msg = new JsonObject();
-        msg.addProperty("type", "pong");
-        msg.addProperty("timestamp", json.get("timestamp").getAsLong());
-        send(getSession(), msg);
+        // Only a fresh connection can resume, and only while the player is still in game under the same name.
+        // The token is used up only once these pass, so a repeated resume or a briefly missing player keeps it
+        String onlineName = claims != null ? PlayerTracker.getInstance().getUsername(claims.getPlayerUuid()) : null;
+        if (claims == null || userSession.getName() != null || !claims.getPlayerName().equalsIgnoreCase(onlineName)
+                || !tokens.consume(claims)) {
+            sendResumeFailed();
+            return;
+        }
+
+        UserSession resumed = sessions.reclaim(userSession, claims);
+        if (resumed == null) {
+            sendResumeFailed();
+            return;
+        }
+
+        // This connection's own verification code is no longer needed
+        VerificationManager.getInstance().invalidateForSession(sessionId);
+        TrafficCapture.getInstance().sessionClosed(odapId);
+
+        odapId = resumed.getOdapId();
+        userSession = resumed;
+
+        TrafficCapture.getInstance().sessionOpened(odapId);
+        TrafficCapture.getInstance().sessionJoined(odapId, claims.getPlayerUuid(), claims.getPlayerName());
+        NameplateManager.getInstance().markConnected(claims.getPlayerUuid());
+
+        sendJoinSuccess(true);
+
+        System.out.println("User resumed voice chat: " + claims.getPlayerName() + " (ID: " + odapId + ")");
     }
 
-    private void send(Session session, JsonObject json) {
-        try {
-            session.getRemote().sendString(gson.toJson(json));
-        } catch (IOException e) {
-            System.err.println("Send error: " + e.getMessage());
+    private void sendResumeFailed() {
+        send(ProtocolCodec.RESUME_FAILED);
+    }
+
+    /**
+     * Send join success with a fresh resume token - snapshots will handle player list.
+     */
+    private void sendJoinSuccess(boolean resumed) {
+        long ttlMs = ConfigHolder.get().getGeneral().getResumeTokenTtlSeconds() * 1000L;
+
+        String resumeToken = ResumeTokenManager.getInstance()
+                .issue(odapId, userSession.getPlayerUuid(), userSession.getName(), ttlMs);
+        send(ProtocolCodec.joinSuccess(odapId, userSession.getName(), resumed, resumeToken));
+        sendBlocked();
+    }
+
+    /**
+     * The client tells us which audio it discards anyway, so the relay can skip sending it.
+     */
+    private void handleSubscription(ClientMessage msg) {
+        userSession.setDeafened(msg.isDeafened());
+        userSession.setMuted(Set.copyOf(msg.getMuted()));
+    }
+
+    private void handleBlock(ClientMessage msg) {
+        UUID listener = userSession.getPlayerUuid();
+        UserSession target = sessions.get(msg.getId());
+        if (listener == null || target == null || target.getPlayerUuid() == null) return;
+
+        if (BlockList.getInstance().setBlocked(listener, target.getPlayerUuid(), target.getName(), msg.isBlocked())) {
+            System.out.println(userSession.getName() + (msg.isBlocked() ? " blocked " : " unblocked ") + target.getName());
         }
+        sendBlocked();
+    }
+
+    private void sendBlocked() {
+        send(ProtocolCodec.blocked(BlockList.getInstance().getBlockedNames(userSession.getPlayerUuid())));
+    }
+
+
+    private void handlePing(ClientMessage msg) {
+        send(ProtocolCodec.pong(msg.getTimestamp()));
+    }
+
+    private void send(String json) {
+        userSession.sendText(json);
     }
 }
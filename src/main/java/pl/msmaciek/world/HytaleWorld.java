@@ -0,0 +1,89 @@
+package pl.msmaciek.world;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.entity.nameplate.Nameplate;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import pl.msmaciek.ui.NearbyPlayersUI;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * {@link WorldAdapter} backed by the Hytale universe.
+ */
+public class HytaleWorld implements WorldAdapter {
+
+    @Override
+    public boolean forEachPlayer(PlayerVisitor visitor) {
+        Universe universe = Universe.get();
+        if (universe == null) return false;
+
+        for (PlayerRef playerRef : universe.getPlayers()) {
+            var transform = playerRef.getTransform();
+            var position = transform.getPosition();
+
+            var rotation = transform.getRotation();
+            float yawRadians = rotation.getY();
+            float yaw = (float) Math.toDegrees(yawRadians);
+            yaw = yaw % 360;
+            if (yaw < 0) yaw += 360;
+
+            visitor.visit(playerRef.getUuid(), playerRef.getWorldUuid(), position.getX(), position.getY(), position.getZ(), yaw);
+        }
+        return true;
+    }
+
+    @Override
+    public void showNearbyTalking(UUID playerUuid, List<String> talkingNames) {
+        PlayerRef playerRef = Universe.get().getPlayer(playerUuid);
+        if(playerRef == null) return;
+        Ref<EntityStore> entityRef = playerRef.getReference();
+        if(entityRef == null) return;
+        if(playerRef.getWorldUuid() == null) return;
+        World w = Universe.get().getWorld(playerRef.getWorldUuid());
+        if(w == null) return;
+        w.execute(() -> {
+            Store<EntityStore> store = entityRef.getStore();
+            Player player = store.getComponent(entityRef, Player.getComponentType());
+            if (player == null) return;
+            var customHud = player.getHudManager().getCustomHud();
+            if(!(customHud instanceof NearbyPlayersUI nearbyPlayersUI)) return;
+            nearbyPlayersUI.updateNearbyPlayers(talkingNames);
+        });
+    }
+
+    @Override
+    public void updateNameplates(Function<UUID, String> suffix) {
+        Universe universe = Universe.get();
+        if (universe == null) return;
+
+        for (PlayerRef playerRef : universe.getPlayers()) {
+            UUID playerUuid = playerRef.getUuid();
+            UUID worldUuid = playerRef.getWorldUuid();
+
+            if (worldUuid == null) continue;
+            World world = universe.getWorld(worldUuid);
+            if (world == null) continue;
+            world.execute(() -> setNameplate(playerRef, playerRef.getUsername() + suffix.apply(playerUuid)));
+        }
+    }
+
+    /**
+     * Reset a player's nameplate to their plain username, e.g. after a restart left a voice chat suffix on it.
+     */
+    public static void resetNameplate(PlayerRef playerRef) {
+        setNameplate(playerRef, playerRef.getUsername());
+    }
+
+    private static void setNameplate(PlayerRef playerRef, String text) {
+        Nameplate nameplate = playerRef.getComponent(Nameplate.getComponentType());
+        if (nameplate == null) return;
+        nameplate.setText(text);
+    }
+}
@@ -0,0 +1,37 @@
+package pl.msmaciek.world;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * The game world the voice server runs against.
+ * Implemented by the Hytale plugin and by the simulated world of the standalone server.
+ */
+public interface WorldAdapter {
+
+    /**
+     * Visit every online player with their current position.
+     * @return false if the world isn't available right now; online players are then left as they are
+     */
+    boolean forEachPlayer(PlayerVisitor visitor);
+
+    /**
+     * Show the names of nearby talking players in the player's in-game UI.
+     */
+    default void showNearbyTalking(UUID playerUuid, List<String> talkingNames) {}
+
+    /**
+     * Update the nameplate of every online player.
+     * @param suffix Voice chat status suffix for a player's name
+     */
+    default void updateNameplates(Function<UUID, String> suffix) {}
+
+    @FunctionalInterface
+    interface PlayerVisitor {
+        /**
+         * @param yawDegrees Yaw in degrees, 0-360
+         */
+        void visit(UUID playerUuid, UUID worldUuid, double x, double y, double z, float yawDegrees);
+    }
+}
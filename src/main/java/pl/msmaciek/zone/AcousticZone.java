@@ -0,0 +1,98 @@
+package pl.msmaciek.zone;
+
+import lombok.Getter;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A zone with its own acoustics, built from a {@link VoiceChatConfig.ZoneConfig}.
+ * Settings the zone doesn't override fall back to the global audio config.
+ * <p>
+ * Listeners take the acoustics of the zone they stand in: it decides how far away
+ * they are sent audio from and how their client attenuates it.
+ */
+@Getter
+public class AcousticZone {
+    /**
+     * Outside every zone: the global settings apply.
+     */
+    public static final AcousticZone NONE = new AcousticZone("", null, null, Integer.MIN_VALUE, 0, null, 0, 0, 0);
+
+    private final String name;
+    private final UUID worldUuid; // null for every world
+    private final Box bounds;
+    private final int priority;
+    private final double maxDistance;
+    private final VoiceChatConfig.DistanceFormula distanceFormula;
+    private final double rolloffFactor;
+    private final double refDistance;
+    private final double serverCutoffMultiplier;
+
+    private AcousticZone(String name, UUID worldUuid, Box bounds, int priority, double maxDistance,
+                         VoiceChatConfig.DistanceFormula distanceFormula, double rolloffFactor, double refDistance,
+                         double serverCutoffMultiplier) {
+        this.name = name;
+        this.worldUuid = worldUuid;
+        this.bounds = bounds;
+        this.priority = priority;
+        this.maxDistance = maxDistance;
+        this.distanceFormula = distanceFormula;
+        this.rolloffFactor = rolloffFactor;
+        this.refDistance = refDistance;
+        this.serverCutoffMultiplier = serverCutoffMultiplier;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the world is not a UUID
+     */
+    public static AcousticZone from(VoiceChatConfig.ZoneConfig config) {
+        UUID world = config.getWorld() == null || config.getWorld().isBlank() ? null : UUID.fromString(config.getWorld().trim());
+        Box bounds = new Box(
+                Math.min(config.getMinX(), config.getMaxX()), Math.min(config.getMinY(), config.getMaxY()), Math.min(config.getMinZ(), config.getMaxZ()),
+                Math.max(config.getMinX(), config.getMaxX()), Math.max(config.getMinY(), config.getMaxY()), Math.max(config.getMinZ(), config.getMaxZ()));
+        VoiceChatConfig.DistanceFormula formula = config.getDistanceFormula() == null || config.getDistanceFormula().isBlank()
+                ? null : VoiceChatConfig.DistanceFormula.fromString(config.getDistanceFormula());
+        return new AcousticZone(config.getName(), world, bounds, config.getPriority(), config.getMaxDistance(), formula,
+                config.getRolloffFactor(), config.getRefDistance(), config.getServerCutoffMultiplier());
+    }
+
+    public boolean contains(Position pos) {
+        return bounds != null && (worldUuid == null || Objects.equals(worldUuid, pos.getWorldUuid())) && bounds.contains(pos);
+    }
+
+    /**
+     * Whether this zone wins over another one the position is also in: higher priority, then the smaller zone.
+     */
+    boolean beats(AcousticZone other) {
+        if (other == NONE) return true;
+        if (priority != other.priority) return priority > other.priority;
+        return bounds.volume() < other.bounds.volume();
+    }
+
+    public double maxDistance(VoiceChatConfig.AudioConfig audio) {
+        return maxDistance > 0 ? maxDistance : audio.getMaxDistance();
+    }
+
+    public VoiceChatConfig.DistanceFormula distanceFormula(VoiceChatConfig.AudioConfig audio) {
+        return distanceFormula != null ? distanceFormula : audio.getDistanceFormula();
+    }
+
+    public double rolloffFactor(VoiceChatConfig.AudioConfig audio) {
+        return rolloffFactor > 0 ? rolloffFactor : audio.getRolloffFactor();
+    }
+
+    public double refDistance(VoiceChatConfig.AudioConfig audio) {
+        return refDistance > 0 ? refDistance : audio.getRefDistance();
+    }
+
+    /**
+     * Distance beyond which a listener in this zone is not sent audio.
+     */
+    public double serverCutoff(VoiceChatConfig.AudioConfig audio) {
+        return maxDistance(audio) * (serverCutoffMultiplier > 0 ? serverCutoffMultiplier : audio.getServerCutoffMultiplier());
+    }
+}
@@ -0,0 +1,126 @@
+package pl.msmaciek.zone;
+
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the X/Z plane for finding the zone a position is in.
+ * Each cell lists the zones overlapping it; zones too large to register cell by cell are checked everywhere.
+ * <p>
+ * A lookup also returns a box around the position in which the answer stays the same,
+ * so callers can skip lookups until a player leaves it.
+ */
+public class ZoneIndex {
+    private static final int CELL_SIZE = 32;
+    private static final long MAX_CELLS_PER_ZONE = 4096;
+    private static final AcousticZone[] EMPTY = new AcousticZone[0];
+
+    private final Map<Long, AcousticZone[]> cells = new HashMap<>();
+    private final AcousticZone[] large;
+
+    public record Lookup(AcousticZone zone, Box valid) {}
+
+    public ZoneIndex(List<AcousticZone> zones) {
+        Map<Long, List<AcousticZone>> building = new HashMap<>();
+        List<AcousticZone> largeZones = new ArrayList<>();
+        for (AcousticZone zone : zones) {
+            Box b = zone.getBounds();
+            long minCx = cell(b.minX()), maxCx = cell(b.maxX());
+            long minCz = cell(b.minZ()), maxCz = cell(b.maxZ());
+            if ((maxCx - minCx + 1) * (maxCz - minCz + 1) > MAX_CELLS_PER_ZONE) {
+                largeZones.add(zone);
+                continue;
+            }
+            for (long cx = minCx; cx <= maxCx; cx++) {
+                for (long cz = minCz; cz <= maxCz; cz++) {
+                    building.computeIfAbsent(key(cx, cz), k -> new ArrayList<>()).add(zone);
+                }
+            }
+        }
+        building.forEach((key, list) -> cells.put(key, list.toArray(EMPTY)));
+        large = largeZones.toArray(EMPTY);
+    }
+
+    public boolean isEmpty() {
+        return cells.isEmpty() && large.length == 0;
+    }
+
+    /**
+     * Find the zone a position is in, or {@link AcousticZone#NONE}.
+     */
+    public Lookup lookup(Position pos) {
+        long cx = cell(pos.getX()), cz = cell(pos.getZ());
+        Box cell = new Box(cx * CELL_SIZE, -Double.MAX_VALUE, cz * CELL_SIZE,
+                Math.nextDown((cx + 1) * (double) CELL_SIZE), Double.MAX_VALUE, Math.nextDown((cz + 1) * (double) CELL_SIZE));
+
+        Bounds valid = new Bounds(cell);
+        AcousticZone best = AcousticZone.NONE;
+        for (AcousticZone[] candidates : new AcousticZone[][] { cells.getOrDefault(key(cx, cz), EMPTY), large }) {
+            for (AcousticZone zone : candidates) {
+                if (zone.getWorldUuid() != null && !zone.getWorldUuid().equals(pos.getWorldUuid())) continue;
+                if (zone.contains(pos)) {
+                    valid.intersect(zone.getBounds());
+                    if (zone.beats(best)) best = zone;
+                } else {
+                    valid.exclude(zone.getBounds(), pos);
+                }
+            }
+        }
+        return new Lookup(best, valid.toBox());
+    }
+
+    private static long cell(double coordinate) {
+        return (long) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(long cx, long cz) {
+        return (cx << 32) ^ (cz & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Mutable box shrunk around the looked up position.
+     */
+    private static final class Bounds {
+        double minX, minY, minZ, maxX, maxY, maxZ;
+
+        Bounds(Box box) {
+            minX = box.minX(); minY = box.minY(); minZ = box.minZ();
+            maxX = box.maxX(); maxY = box.maxY(); maxZ = box.maxZ();
+        }
+
+        void intersect(Box box) {
+            minX = Math.max(minX, box.minX()); minY = Math.max(minY, box.minY()); minZ = Math.max(minZ, box.minZ());
+            maxX = Math.min(maxX, box.maxX()); maxY = Math.min(maxY, box.maxY()); maxZ = Math.min(maxZ, box.maxZ());
+        }
+
+        /**
+         * Cut off the side of a box the position is outside of, along the axis with the widest gap.
+         */
+        void exclude(Box box, Position pos) {
+            double x = pos.getX(), y = pos.getY(), z = pos.getZ();
+            double gapX = Math.max(box.minX() - x, x - box.maxX());
+            double gapY = Math.max(box.minY() - y, y - box.maxY());
+            double gapZ = Math.max(box.minZ() - z, z - box.maxZ());
+
+            if (gapX >= gapY && gapX >= gapZ) {
+                if (x < box.minX()) maxX = Math.min(maxX, Math.nextDown(box.minX()));
+                else minX = Math.max(minX, Math.nextUp(box.maxX()));
+            } else if (gapY >= gapZ) {
+                if (y < box.minY()) maxY = Math.min(maxY, Math.nextDown(box.minY()));
+                else minY = Math.max(minY, Math.nextUp(box.maxY()));
+            } else {
+                if (z < box.minZ()) maxZ = Math.min(maxZ, Math.nextDown(box.minZ()));
+                else minZ = Math.max(minZ, Math.nextUp(box.maxZ()));
+            }
+        }
+
+        Box toBox() {
+            return new Box(minX, minY, minZ, maxX, maxY, maxZ);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pl.msmaciek.zone;
+
+import pl.msmaciek.config.ConfigHolder;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.metrics.VoiceChatMetrics;
+import pl.msmaciek.session.UserSession;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the {@link AcousticZone} of each listener.
+ * <p>
+ * The index is rebuilt when the configured zones change (e.g. on reload). Each session caches its zone
+ * together with the box it stays valid in, so most ticks don't touch the index at all.
+ */
+public class ZoneManager {
+    private static final ZoneManager INSTANCE = new ZoneManager();
+
+    /**
+     * A session's last lookup, valid while it stays in the box, in the same world, with the same index.
+     */
+    public record Cached(ZoneIndex index, UUID worldUuid, Box valid, AcousticZone zone) {}
+
+    private volatile ZoneIndex index = new ZoneIndex(List.of());
+    private volatile VoiceChatConfig.ZoneConfig[] indexedZones;
+
+    private final LongAdder lookups;
+
+    private ZoneManager() {
+        lookups = VoiceChatMetrics.getInstance().counter("zone.lookups");
+    }
+
+    public static ZoneManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The zone a session's player is in, looked up again only after they cross a zone or cell boundary.
+     */
+    public AcousticZone locate(UserSession session, Position pos) {
+        ZoneIndex current = currentIndex();
+        if (current.isEmpty()) return AcousticZone.NONE;
+
+        Cached cached = session.getZoneCache();
+        if (cached != null && cached.index() == current && Objects.equals(cached.worldUuid(), pos.getWorldUuid())
+                && cached.valid().contains(pos)) {
+            return cached.zone();
+        }
+
+        lookups.increment();
+        ZoneIndex.Lookup lookup = current.lookup(pos);
+        session.setZoneCache(new Cached(current, pos.getWorldUuid(), lookup.valid(), lookup.zone()));
+        return lookup.zone();
+    }
+
+    private ZoneIndex currentIndex() {
+        VoiceChatConfig.ZoneConfig[] zones = ConfigHolder.get().getZones();
+        if (zones == indexedZones) return index;
+
+        synchronized (this) {
+            if (zones != indexedZones) {
+                index = new ZoneIndex(build(zones));
+                indexedZones = zones;
+            }
+            return index;
+        }
+    }
+
+    private static List<AcousticZone> build(VoiceChatConfig.ZoneConfig[] zones) {
+        List<AcousticZone> built = new ArrayList<>();
+        if (zones == null) return built;
+        for (VoiceChatConfig.ZoneConfig zone : zones) {
+            try {
+                built.add(AcousticZone.from(zone));
+            } catch (IllegalArgumentException e) {
+                System.err.println("[VoiceChat] Skipping zone " + zone.getName() + ": " + e.getMessage());
+            }
+        }
+        if (!built.isEmpty()) {
+            System.out.println("[VoiceChat] Indexed " + built.size() + " acoustic zones");
+        }
+        return built;
+    }
+}
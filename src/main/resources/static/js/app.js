@@ -9,10 +9,16 @@ class VoiceChat {
         this.speaking = false;
         this.verified = false;
         this.verificationCheckInterval = null;
+        this.pingInterval = null;
+        this.resumeToken = null;
+        this.blockedNames = new Set();
+        this.stageSpeakers = new Set();
+        this.lastSubscription = null;
 
         this.serverConfig = null;
 
         // Initialize managers
+        this.motion = new MotionPredictor();
         this.settings = new SettingsManager();
         this.audio = new AudioManager(this);
         this.connection = new ConnectionManager(this);
@@ -87,19 +93,36 @@ class VoiceChat {
 
     // Connection callbacks
     onConnected() {
+        if (this.resumeToken) {
+            // Reconnected after a network blip - reclaim the previous session without re-verifying
+            this.connection.send({ type: 'resume', token: this.resumeToken });
+            return;
+        }
+
         // Don't show the status message if user is already verified and joined
         if (!this.verified || document.getElementById('loginScreen').classList.contains('hidden')) {
             this.ui.setConnectionStatus('Connected! Verify in-game to continue.', 'connected');
         }
 
-        // Start checking verification status every 2 seconds
+        // The server pushes verification status; polling is only a rare fallback
         this.startVerificationCheck();
     }
 
+    canResume() {
+        return this.resumeToken !== null;
+    }
+
+    onConnectionLost() {
+        this.ui.setVoiceStatus(false, '');
+        this.ui.setReconnecting();
+    }
+
     onDisconnected() {
+        this.resumeToken = null;
         this.ui.setConnectionStatus('Disconnected from server', 'disconnected');
         this.ui.setVoiceStatus(false, '');
         this.audio.cleanup();
+        this.motion.clear();
         this.stopVerificationCheck();
         this.verified = false;
 
@@ -120,6 +143,7 @@ class VoiceChat {
     }
 
     onReconnectFailed() {
+        if (this.resumeToken) this.onDisconnected();
         this.ui.setConnectionStatus('Failed to connect. Click refresh to retry.', 'error');
     }
 
@@ -130,7 +154,7 @@ class VoiceChat {
             if (!this.verified && this.connection.isConnected()) {
                 this.connection.send({ type: 'check_verification' });
             }
-        }, 2000);
+        }, 30000);
     }
 
     stopVerificationCheck() {
@@ -150,18 +174,25 @@ class VoiceChat {
                 this.serverConfig = msg;
                 console.log('Server config received/updated:', this.serverConfig);
                 this.audio.updatePannerSettings(this.serverConfig);
+                this.audio.setNormalized(!!msg.normalized);
                 break;
 
             case 'verification_code':
                 this.ui.setVerificationCode(msg.command);
                 break;
 
+            case 'verification_expired':
+                // The server closes the connection; reconnecting issues a fresh code
+                this.ui.setConnectionStatus('Verification code expired, getting a new one...', 'disconnected');
+                break;
+
             case 'verification_status':
                 this.verified = msg.verified;
                 this.userName = msg.username || null;
                 this.ui.setVerificationStatus(msg.verified, msg.username);
                 if (msg.verified) {
                     this.stopVerificationCheck();
+                    this.autoJoin();
                 }
                 break;
 
@@ -175,9 +206,17 @@ class VoiceChat {
                 break;
 
             case 'join_success':
+                this.resumeToken = msg.resumeToken || null;
                 this.handleJoinSuccess(msg);
                 break;
 
+            case 'resume_failed':
+                // Token expired or the player left the game - fall back to normal verification
+                this.onDisconnected();
+                this.ui.setConnectionStatus('Session expired. Verify in-game to continue.', 'connected');
+                this.startVerificationCheck();
+                break;
+
             case 'players_snapshot':
                 this.handlePlayersSnapshot(msg);
                 break;
@@ -185,14 +224,30 @@ class VoiceChat {
             case 'pong':
                 this.ui.setPing(Date.now() - msg.timestamp);
                 break;
+
+            case 'audio_tier':
+                this.ui.setAudioQuality(msg.sampleRate);
+                break;
+
+            case 'blocked':
+                this.blockedNames = new Set(msg.names);
+                this.renderUsers();
+                break;
+
+            case 'server_ping':
+                // Answer right away so the server can measure round-trip time
+                this.connection.send({ type: 'server_pong', seq: msg.seq });
+                break;
         }
     }
 
     onAudioReceived(data) {
         if (this.deafened) return;
 
+        // Header: sender id, then the sample rate of this frame (lower when our connection is congested)
         const view = new DataView(data);
         const senderId = view.getInt32(0);
+        const sampleRate = view.getInt32(4);
         if (senderId === this.odapId) return;
 
         // Mark sender as speaking (will be cleared by timeout)
@@ -200,19 +255,30 @@ class VoiceChat {
 
         const userVol = this.settings.getUserVolume(senderId);
         const masterVol = this.settings.get('masterVolume');
-        this.audio.playAudio(senderId, data.slice(4), userVol, masterVol, this.serverConfig);
+        this.audio.playAudio(senderId, data.slice(8), sampleRate, userVol, masterVol, this.serverConfig);
     }
 
     markUserSpeaking(userId) {
         const user = this.users.get(userId);
         if (user) {
+            const wasSpeaking = user.speaking;
             user.speaking = true;
             user.speakingTimeout && clearTimeout(user.speakingTimeout);
             user.speakingTimeout = setTimeout(() => {
                 user.speaking = false;
                 this.renderUsers();
             }, 300); // Clear speaking after 300ms of no audio
-            this.renderUsers();
+            if (!wasSpeaking) this.renderUsers();
+        }
+    }
+
+    /**
+     * Join right after verification when the browser allows starting audio without another click
+     */
+    autoJoin() {
+        const userActivated = !navigator.userActivation || navigator.userActivation.hasBeenActive;
+        if (userActivated && this.settings.get('micId')) {
+            this.connection.send({ type: 'join' });
         }
     }
 
@@ -222,7 +288,15 @@ class VoiceChat {
         this.ui.showMainView();
         this.ui.setVoiceStatus(true, this.userName);
         this.startPing();
-        this.startAudio();
+
+        // Filters live on the server session, which is new after every join or resume
+        this.lastSubscription = null;
+        this.sendSubscription();
+
+        // Audio keeps running across a resumed reconnect
+        if (!this.audio.audioContext || this.audio.audioContext.state === 'closed') {
+            this.startAudio();
+        }
     }
 
     handlePlayersSnapshot(msg) {
@@ -231,6 +305,13 @@ class VoiceChat {
         this.odapId = self.id;
         this.position = { x: self.x, y: self.y, z: self.z, yaw: self.yaw };
 
+        // Snapshots arrive at the server tick rate; panners glide towards where everyone will be at the next one
+        const repeated = msg.t && msg.t === this.motion.lastServerTime;
+        const intervalMs = this.motion.beginSnapshot(msg.t);
+        this.motion.observe(self.id, msg.t, self);
+        // Broadcasters on our stage, heard regardless of distance
+        this.stageSpeakers = new Set(msg.stage || []);
+
         // Build new users map (preserve speaking state from audio)
         const newUserIds = new Set();
 
@@ -251,6 +332,7 @@ class VoiceChat {
         // Add nearby players
         for (const player of msg.players) {
             newUserIds.add(player.id);
+            this.motion.observe(player.id, msg.t, player);
             const existing = this.users.get(player.id);
             this.users.set(player.id, {
                 id: player.id,
@@ -269,13 +351,22 @@ class VoiceChat {
             if (!newUserIds.has(id)) {
                 user.speakingTimeout && clearTimeout(user.speakingTimeout);
                 this.users.delete(id);
-                this.audio.removePlayer(id);
+                this.motion.remove(id);
+                this.audio.releaseLater(id);
             }
         }
 
+        // Players in range get their audio nodes before they speak
+        const masterVol = this.settings.get('masterVolume');
+        for (const player of msg.players) {
+            this.audio.prewarm(player.id, this.settings.getUserVolume(player.id), masterVol, this.serverConfig);
+        }
+
         // Update audio and UI
-        this.audio.updateListenerOrientation();
-        this.audio.updateAllPanners();
+        if (!repeated) {
+            this.audio.updateAllPanners(intervalMs / 1000);
+            this.audio.updateLod();
+        }
         this.renderUsers();
     }
 
@@ -330,9 +421,11 @@ class VoiceChat {
             for (let i = 0; i < input.length; i++) sum += input[i] * input[i];
             if (Math.sqrt(sum / input.length) < (threshold / 100) * 0.15) return;
 
+            // The server evens out loudness itself, so the mic only needs clamping instead of a driven soft clip
+            const normalized = this.serverConfig && this.serverConfig.normalized;
             const out = new Int16Array(input.length);
             for (let i = 0; i < input.length; i++) {
-                const s = Math.tanh(input[i] * 1.5);
+                const s = normalized ? Math.max(-1, Math.min(1, input[i])) : Math.tanh(input[i] * 1.5);
                 out[i] = s < 0 ? s * 0x8000 : s * 0x7FFF;
             }
 
@@ -344,13 +437,23 @@ class VoiceChat {
         this.audio.processor = processor;
     }
 
+    /**
+     * Schedule a user list update; all changes within one frame are rendered together
+     */
     renderUsers() {
-        this.ui.renderUsers(
-            this.users,
-            this.odapId,
-            (user) => this.calculateDistance(user),
-            (id) => this.settings.getUserVolume(id)
-        );
+        if (this.renderScheduled) return;
+        this.renderScheduled = true;
+
+        requestAnimationFrame(() => {
+            this.renderScheduled = false;
+            this.ui.renderUsers(
+                this.users,
+                this.odapId,
+                (user) => this.calculateDistance(user),
+                (id) => this.settings.getUserVolume(id),
+                (user) => this.blockedNames.has(user.name)
+            );
+        });
     }
 
     calculateDistance(user) {
@@ -363,6 +466,22 @@ class VoiceChat {
     setUserVolume(odapId, volume) {
         this.settings.setUserVolume(odapId, parseInt(volume));
         this.audio.setPlayerVolume(odapId, volume, this.settings.get('masterVolume'));
+        this.sendSubscription();
+    }
+
+    toggleBlock(user) {
+        this.connection.send({ type: 'block', id: user.id, blocked: !this.blockedNames.has(user.name) });
+    }
+
+    /**
+     * Tell the server which audio we would discard anyway, so it isn't sent at all
+     */
+    sendSubscription() {
+        const subscription = { type: 'subscription', deafened: this.deafened, muted: this.settings.getSilencedUsers() };
+        const json = JSON.stringify(subscription);
+        if (json === this.lastSubscription || !this.connection.isConnected()) return;
+        this.lastSubscription = json;
+        this.connection.send(subscription);
     }
 
     updateAllVolumes() {
@@ -384,12 +503,14 @@ class VoiceChat {
             // Unmuting - also undeafen
             this.deafened = false;
             this.ui.setDeafenState(false);
+            this.sendSubscription();
         }
     }
 
     toggleDeafen() {
         this.deafened = !this.deafened;
         this.ui.setDeafenState(this.deafened);
+        this.sendSubscription();
 
         if (this.deafened && !this.muted) {
             // Deafening - also mute
@@ -402,7 +523,9 @@ class VoiceChat {
     }
 
     startPing() {
-        setInterval(() => {
+        if (this.pingInterval) return;
+
+        this.pingInterval = setInterval(() => {
             if (this.connection.isConnected()) {
                 this.connection.send({ type: 'ping', timestamp: Date.now() });
             }
@@ -9,6 +9,8 @@ class AudioManager {
         this.micGain = null;
         this.analyser = null;
         this.processor = null;
+        this.bus = null;
+        this.normalized = false;
         this.players = new Map();
     }
 
@@ -18,6 +20,11 @@ class AudioManager {
     async initialize(micId, micVolume) {
         this.audioContext = new (window.AudioContext || window.webkitAudioContext)({ sampleRate: 48000 });
 
+        // One compressor for the whole mix instead of one per speaker
+        this.bus = this.audioContext.createDynamicsCompressor();
+        this.configureBus();
+        this.bus.connect(this.audioContext.destination);
+
         this.updateListenerOrientation();
 
         this.micStream = await navigator.mediaDevices.getUserMedia({
@@ -39,6 +46,24 @@ class AudioManager {
         this.micGain.connect(this.analyser);
     }
 
+    /**
+     * Whether the server already evens out speaker loudness
+     */
+    setNormalized(normalized) {
+        this.normalized = normalized;
+        this.configureBus();
+    }
+
+    /**
+     * Compress the mix, or only catch peaks of overlapping speakers when the server normalizes loudness
+     */
+    configureBus() {
+        if (!this.bus) return;
+        this.bus.threshold.value = this.normalized ? -6 : -24;
+        this.bus.knee.value = this.normalized ? 0 : 30;
+        this.bus.ratio.value = this.normalized ? 20 : 12;
+    }
+
     /**
      * Set microphone volume
      */
@@ -71,10 +96,28 @@ class AudioManager {
     }
 
     /**
-     * Update panner position for a specific user based on relative angle
+     * Update the spatial position of a speaker based on relative angle
      * Note: 2D voice means mono audio (no stereo panning), but distance uses all 3 axes.
+     * @param rampSeconds Glide to the new position over this time instead of jumping (avoids zipper noise)
+     */
+    updatePannerPosition(p, user, listenerPosition, serverConfig, rampSeconds = 0) {
+        p.target = this.relativePosition(user, listenerPosition, serverConfig);
+        for (const path of Object.values(p.paths)) {
+            this.applyPathPosition(path, p.target, serverConfig, rampSeconds);
+        }
+    }
+
+    /**
+     * Where a speaker is rendered: stage broadcasters are played centered and unattenuated, as if right next to us
+     */
+    sourcePosition(odapId, user, listenerPosition) {
+        return this.voiceChat.stageSpeakers.has(odapId) ? listenerPosition : user;
+    }
+
+    /**
+     * Position of a user relative to the listener, in panner coordinates
      */
-    updatePannerPosition(panner, user, listenerPosition, serverConfig) {
+    relativePosition(user, listenerPosition, serverConfig) {
         const dx = user.x - listenerPosition.x;
         const dy = user.y - listenerPosition.y;
         const dz = user.z - listenerPosition.z;
@@ -82,18 +125,12 @@ class AudioManager {
         const fullDist = Math.sqrt(dx * dx + dy * dy + dz * dz);
 
         if (!serverConfig || serverConfig.voiceDimension === '2D') {
-            panner.positionX.value = 0;
-            panner.positionY.value = 0;
-            panner.positionZ.value = -fullDist;
-            return;
+            return { x: 0, y: 0, z: -fullDist };
         }
 
         // Too close - center audio
         if (horizontalDist < 0.1) {
-            panner.positionX.value = 0;
-            panner.positionY.value = dy;
-            panner.positionZ.value = -0.1;
-            return;
+            return { x: 0, y: dy, z: -0.1 };
         }
 
         // Calculate relative angle
@@ -114,31 +151,186 @@ class AudioManager {
         const sign = leftRight >= 0 ? 1 : -1;
         const softLeftRight = sign * Math.pow(Math.abs(leftRight), 0.7) * maxStereoSeparation;
 
-        panner.positionX.value = softLeftRight * horizontalDist;
-        panner.positionY.value = dy;
-        panner.positionZ.value = -frontBack * horizontalDist;
+        return {
+            x: softLeftRight * horizontalDist,
+            y: dy,
+            z: -frontBack * horizontalDist
+        };
+    }
+
+    /**
+     * Move one rendering path of a speaker: panner paths get the position, the mono path gets the distance gain
+     */
+    applyPathPosition(path, pos, serverConfig, rampSeconds) {
+        if (path.panner) {
+            this.rampParam(path.panner.positionX, pos.x, rampSeconds);
+            this.rampParam(path.panner.positionY, pos.y, rampSeconds);
+            this.rampParam(path.panner.positionZ, pos.z, rampSeconds);
+        } else {
+            const distance = Math.sqrt(pos.x * pos.x + pos.y * pos.y + pos.z * pos.z);
+            this.rampParam(path.attenuation.gain, this.distanceGain(distance, serverConfig), rampSeconds);
+        }
+    }
+
+    /**
+     * Set an AudioParam, either instantly or with a linear ramp starting from where it is now
+     */
+    rampParam(param, value, rampSeconds) {
+        const now = this.audioContext.currentTime;
+        if (param.cancelAndHoldAtTime) {
+            param.cancelAndHoldAtTime(now);
+        } else {
+            const current = param.value;
+            param.cancelScheduledValues(now);
+            param.setValueAtTime(current, now);
+        }
+
+        if (rampSeconds > 0) {
+            param.linearRampToValueAtTime(value, now + rampSeconds);
+        } else {
+            param.setValueAtTime(value, now);
+        }
+    }
+
+    /**
+     * Distance attenuation of a PannerNode with the server's settings, for speakers rendered without one
+     */
+    distanceGain(distance, serverConfig) {
+        const ref = serverConfig ? serverConfig.refDistance : 1.0;
+        const max = serverConfig ? serverConfig.maxDistance : 150;
+        const rolloff = serverConfig ? serverConfig.rolloffFactor : 1.0;
+
+        switch (serverConfig ? serverConfig.distanceFormula : 'LINEAR') {
+            case 'EXPONENTIAL':
+                return Math.pow(Math.max(distance, ref) / ref, -rolloff);
+            case 'INVERSE_SQUARE':
+                return ref / (ref + rolloff * (Math.max(distance, ref) - ref));
+            default: {
+                const d = Math.min(Math.max(distance, ref), max);
+                return 1 - Math.min(rolloff, 1) * (d - ref) / (max - ref);
+            }
+        }
     }
 
     /**
      * Update panner for a specific user
+     * @param rampSeconds When set, glide to the positions predicted for that time ahead
      */
-    updatePanner(odapId) {
+    updatePanner(odapId, rampSeconds = 0) {
         const p = this.players.get(odapId);
         const u = this.voiceChat.users.get(odapId);
-        if (p && u) {
-            this.updatePannerPosition(p.panner, u, this.voiceChat.position, this.voiceChat.serverConfig);
+        if (!p || !u) return;
+
+        let user = u;
+        let listener = this.voiceChat.position;
+
+        if (rampSeconds > 0) {
+            const motion = this.voiceChat.motion;
+            const selfId = this.voiceChat.odapId;
+            if (motion.wasTeleported(odapId) || motion.wasTeleported(selfId)) {
+                rampSeconds = 0;
+            } else {
+                user = motion.predict(odapId, rampSeconds * 1000) || u;
+                listener = motion.predict(selfId, rampSeconds * 1000) || listener;
+            }
         }
+
+        this.updatePannerPosition(p, this.sourcePosition(odapId, user, listener), listener, this.voiceChat.serverConfig, rampSeconds);
     }
 
     /**
      * Update all panners
      */
-    updateAllPanners() {
+    updateAllPanners(rampSeconds = 0) {
         for (const id of this.players.keys()) {
-            this.updatePanner(id);
+            this.updatePanner(id, rampSeconds);
         }
     }
 
+    /**
+     * Pick the rendering level of detail of every speaker:
+     * HRTF for the nearest (speaking first), equal-power panning for mid range, plain gain for the rest.
+     */
+    updateLod() {
+        if (!this.audioContext) return;
+
+        const users = this.voiceChat.users;
+        const maxDistance = this.voiceChat.serverConfig ? this.voiceChat.serverConfig.maxDistance : 150;
+        const ranked = [...this.players.entries()].map(([id, p]) => {
+            const t = p.target || { x: 0, y: 0, z: 0 };
+            return { p, speaking: !!users.get(id)?.speaking, distance: Math.sqrt(t.x * t.x + t.y * t.y + t.z * t.z) };
+        });
+        ranked.sort((a, b) => (b.speaking - a.speaking) || (a.distance - b.distance));
+
+        ranked.forEach((entry, index) => {
+            let lod;
+            if (index < AudioManager.HRTF_SLOTS) lod = 'hrtf';
+            else if (entry.distance < maxDistance * AudioManager.PANNED_RANGE) lod = 'equalpower';
+            else lod = 'mono';
+            this.setLod(entry.p, lod);
+        });
+    }
+
+    /**
+     * Switch a speaker to another rendering path by crossfading, then drop the old path once it is silent
+     */
+    setLod(p, lod) {
+        if (p.lod === lod) return;
+
+        const serverConfig = this.voiceChat.serverConfig;
+        let path = p.paths[lod];
+        if (!path) {
+            path = this.createPath(lod, serverConfig);
+            if (p.target) this.applyPathPosition(path, p.target, serverConfig, 0);
+            p.input.connect(path.input);
+            path.fade.connect(p.gain);
+            p.paths[lod] = path;
+        }
+
+        const now = this.audioContext.currentTime;
+        const first = !p.lod;
+        for (const [name, other] of Object.entries(p.paths)) {
+            const level = name === lod ? 1 : 0;
+            other.fade.gain.cancelScheduledValues(now);
+            if (first) {
+                other.fade.gain.setValueAtTime(level, now);
+            } else {
+                other.fade.gain.setTargetAtTime(level, now, AudioManager.LOD_FADE_SECONDS / 3);
+            }
+        }
+        p.lod = lod;
+
+        clearTimeout(p.lodCleanup);
+        p.lodCleanup = setTimeout(() => {
+            for (const [name, other] of Object.entries(p.paths)) {
+                if (name === p.lod) continue;
+                p.input.disconnect(other.input);
+                other.fade.disconnect();
+                delete p.paths[name];
+            }
+        }, AudioManager.LOD_FADE_SECONDS * 1000 * 2);
+    }
+
+    /**
+     * Create one rendering path: [panner or distance gain] -> fade
+     */
+    createPath(lod, serverConfig) {
+        const fade = this.audioContext.createGain();
+        fade.gain.value = 0;
+
+        if (lod === 'mono') {
+            const attenuation = this.audioContext.createGain();
+            attenuation.connect(fade);
+            return { input: attenuation, attenuation, fade };
+        }
+
+        const panner = this.audioContext.createPanner();
+        panner.panningModel = lod === 'hrtf' ? 'HRTF' : 'equalpower';
+        this.applyPannerSettings(panner, serverConfig);
+        panner.connect(fade);
+        return { input: panner, panner, fade };
+    }
+
     /**
      * Apply panner settings from server config to a single panner
      */
@@ -168,25 +360,58 @@ class AudioManager {
         if (!serverConfig) return;
 
         for (const [id, p] of this.players) {
-            this.applyPannerSettings(p.panner, serverConfig);
+            for (const path of Object.values(p.paths)) {
+                if (path.panner) this.applyPannerSettings(path.panner, serverConfig);
+            }
 
             // Update position based on new config (2D vs 3D)
             const user = this.voiceChat.users.get(id);
             if (user) {
-                this.updatePannerPosition(p.panner, user, this.voiceChat.position, serverConfig);
+                this.updatePannerPosition(p, this.sourcePosition(id, user, this.voiceChat.position), this.voiceChat.position, serverConfig);
             }
         }
     }
 
+    /**
+     * Make sure a player who is in range has audio nodes before they start talking
+     */
+    prewarm(odapId, userVolume, masterVolume, serverConfig) {
+        if (!this.audioContext || !this.bus) return;
+
+        const p = this.players.get(odapId);
+        if (p) {
+            this.cancelRelease(p);
+        } else {
+            this.createPlayerAudioNodes(odapId, userVolume, masterVolume, serverConfig);
+        }
+    }
+
+    /**
+     * Release a player's nodes after a grace period, so someone pacing at the edge of range keeps them
+     */
+    releaseLater(odapId) {
+        const p = this.players.get(odapId);
+        if (!p || p.releaseTimer) return;
+        p.releaseTimer = setTimeout(() => this.removePlayer(odapId), AudioManager.RELEASE_GRACE_MS);
+    }
+
+    cancelRelease(p) {
+        if (p.releaseTimer) {
+            clearTimeout(p.releaseTimer);
+            p.releaseTimer = null;
+        }
+    }
+
     /**
      * Play received audio from a user
      */
-    playAudio(odapId, data, userVolume, masterVolume, serverConfig) {
+    playAudio(odapId, data, sampleRate, userVolume, masterVolume, serverConfig) {
         let p = this.players.get(odapId);
 
         if (!p) {
             p = this.createPlayerAudioNodes(odapId, userVolume, masterVolume, serverConfig);
-            this.players.set(odapId, p);
+        } else {
+            this.cancelRelease(p);
         }
 
         const int16 = new Int16Array(data);
@@ -195,12 +420,13 @@ class AudioManager {
             float[i] = (int16[i] / (int16[i] < 0 ? 0x8000 : 0x7FFF)) * 1.2;
         }
 
-        const buffer = this.audioContext.createBuffer(1, float.length, this.audioContext.sampleRate);
+        // Frames below the context rate are resampled by the browser
+        const buffer = this.audioContext.createBuffer(1, float.length, sampleRate || this.audioContext.sampleRate);
         buffer.getChannelData(0).set(float);
 
         const source = this.audioContext.createBufferSource();
         source.buffer = buffer;
-        source.connect(p.panner);
+        source.connect(p.input);
 
         const now = this.audioContext.currentTime;
         if (!p.nextTime || p.nextTime < now) p.nextTime = now + 0.08;
@@ -210,34 +436,29 @@ class AudioManager {
     }
 
     /**
-     * Create audio nodes for a player
+     * Create audio nodes for a player: input -> [level-of-detail paths] -> gain -> shared bus
      */
     createPlayerAudioNodes(odapId, userVolume, masterVolume, serverConfig) {
         const p = {
+            input: this.audioContext.createGain(),
             gain: this.audioContext.createGain(),
-            panner: this.audioContext.createPanner(),
-            compressor: this.audioContext.createDynamicsCompressor(),
+            paths: {},
+            lod: null,
+            target: null,
+            releaseTimer: null,
             nextTime: 0
         };
 
-        p.compressor.threshold.value = -24;
-        p.compressor.knee.value = 30;
-        p.compressor.ratio.value = 12;
-
-        p.panner.panningModel = 'HRTF';
-
-        this.applyPannerSettings(p.panner, serverConfig);
+        p.gain.gain.value = (userVolume / 100) * masterVolume;
+        p.gain.connect(this.bus);
 
         const user = this.voiceChat.users.get(odapId);
         if (user) {
-            this.updatePannerPosition(p.panner, user, this.voiceChat.position, serverConfig);
+            this.updatePannerPosition(p, this.sourcePosition(odapId, user, this.voiceChat.position), this.voiceChat.position, serverConfig);
         }
 
-        p.gain.gain.value = (userVolume / 100) * masterVolume;
-
-        p.panner.connect(p.compressor);
-        p.compressor.connect(p.gain);
-        p.gain.connect(this.audioContext.destination);
+        this.players.set(odapId, p);
+        this.updateLod();
 
         return p;
     }
@@ -267,6 +488,9 @@ class AudioManager {
     removePlayer(odapId) {
         const p = this.players.get(odapId);
         if (p) {
+            clearTimeout(p.lodCleanup);
+            this.cancelRelease(p);
+            p.input.disconnect();
             p.gain.disconnect();
             this.players.delete(odapId);
         }
@@ -278,14 +502,21 @@ class AudioManager {
     cleanup() {
         if (this.processor) this.processor.disconnect();
         if (this.micStream) this.micStream.getTracks().forEach(t => t.stop());
-        if (this.audioContext) this.audioContext.close();
         this.players.forEach(p => {
-            p.panner?.disconnect();
-            p.compressor?.disconnect();
-            p.gain?.disconnect();
+            clearTimeout(p.lodCleanup);
+            this.cancelRelease(p);
+            p.input.disconnect();
+            p.gain.disconnect();
         });
         this.players.clear();
+        if (this.audioContext) this.audioContext.close();
+        this.bus = null;
     }
 }
 
+AudioManager.HRTF_SLOTS = 6;            // Speakers rendered with HRTF
+AudioManager.PANNED_RANGE = 0.5;        // Fraction of max distance still rendered with equal-power panning
+AudioManager.LOD_FADE_SECONDS = 0.1;
+AudioManager.RELEASE_GRACE_MS = 10000;  // How long nodes of a player who left range are kept
+
 window.AudioManager = AudioManager;
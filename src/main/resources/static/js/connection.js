@@ -67,6 +67,10 @@ class ConnectionManager {
 
         if (isOnLoginScreen) {
             this.scheduleReconnect();
+        } else if (this.voiceChat.canResume()) {
+            // Keep audio running and reclaim the session with the resume token once reconnected
+            this.voiceChat.onConnectionLost();
+            this.scheduleReconnect();
         } else {
             this.voiceChat.onDisconnected();
         }
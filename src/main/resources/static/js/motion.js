@@ -0,0 +1,101 @@
+/**
+ * Motion Predictor - smooths positions between server snapshots
+ * Velocities are derived from server timestamps, so network jitter doesn't turn into speed changes
+ */
+class MotionPredictor {
+    constructor() {
+        this.tracks = new Map();
+        this.intervalMs = 100;      // Estimated snapshot interval, adapts to the server
+        this.lastServerTime = 0;
+    }
+
+    /**
+     * Record the snapshot time; returns the estimated interval until the next snapshot (ms)
+     */
+    beginSnapshot(serverTime) {
+        if (serverTime && this.lastServerTime && serverTime > this.lastServerTime) {
+            const dt = Math.min(serverTime - this.lastServerTime, 1000);
+            this.intervalMs = this.intervalMs * 0.8 + dt * 0.2;
+        }
+        if (serverTime) this.lastServerTime = serverTime;
+        return this.intervalMs;
+    }
+
+    /**
+     * Record a new position sample for an entity
+     */
+    observe(id, serverTime, pos) {
+        const track = this.tracks.get(id);
+        const sample = { t: serverTime || 0, x: pos.x, y: pos.y, z: pos.z, yaw: pos.yaw || 0 };
+
+        if (!track) {
+            this.tracks.set(id, { last: sample, vx: 0, vy: 0, vz: 0, vyaw: 0, teleported: true });
+            return;
+        }
+
+        // Extra snapshots (e.g. after someone leaves) repeat the positions of the last tick
+        if (sample.t && sample.t === track.last.t) return;
+
+        const prev = track.last;
+        const dt = (sample.t - prev.t) / 1000;
+        const dx = sample.x - prev.x, dy = sample.y - prev.y, dz = sample.z - prev.z;
+
+        // Teleports and gaps are applied instantly instead of being smeared over the next interval
+        track.teleported = dx * dx + dy * dy + dz * dz > MotionPredictor.TELEPORT_DISTANCE ** 2 || !(dt > 0) || dt > 1;
+
+        if (track.teleported) {
+            track.vx = track.vy = track.vz = track.vyaw = 0;
+        } else {
+            track.vx = MotionPredictor.clampSpeed(dx / dt);
+            track.vy = MotionPredictor.clampSpeed(dy / dt);
+            track.vz = MotionPredictor.clampSpeed(dz / dt);
+            track.vyaw = MotionPredictor.wrapDegrees(sample.yaw - prev.yaw) / dt;
+        }
+        track.last = sample;
+    }
+
+    /**
+     * Position extrapolated a short time past the latest sample
+     */
+    predict(id, aheadMs) {
+        const track = this.tracks.get(id);
+        if (!track) return null;
+
+        const s = Math.min(aheadMs, MotionPredictor.MAX_EXTRAPOLATION_MS) / 1000;
+        const last = track.last;
+        return {
+            x: last.x + track.vx * s,
+            y: last.y + track.vy * s,
+            z: last.z + track.vz * s,
+            yaw: last.yaw + track.vyaw * s
+        };
+    }
+
+    wasTeleported(id) {
+        return this.tracks.get(id)?.teleported ?? true;
+    }
+
+    remove(id) {
+        this.tracks.delete(id);
+    }
+
+    clear() {
+        this.tracks.clear();
+        this.lastServerTime = 0;
+    }
+
+    static clampSpeed(v) {
+        return Math.max(-MotionPredictor.MAX_SPEED, Math.min(MotionPredictor.MAX_SPEED, v));
+    }
+
+    static wrapDegrees(d) {
+        d %= 360;
+        if (d > 180) d -= 360;
+        if (d < -180) d += 360;
+        return d;
+    }
+}
+
+MotionPredictor.TELEPORT_DISTANCE = 16;         // blocks
+MotionPredictor.MAX_SPEED = 40;                 // blocks per second
+MotionPredictor.MAX_EXTRAPOLATION_MS = 250;
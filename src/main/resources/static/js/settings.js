@@ -62,7 +62,16 @@ class SettingsManager {
      * Get user volume for a specific user
      */
     getUserVolume(odapId) {
-        return this.settings.userVolumes[odapId] || 100;
+        return this.settings.userVolumes[odapId] ?? 100;
+    }
+
+    /**
+     * Ids of the users whose volume is set to 0
+     */
+    getSilencedUsers() {
+        return Object.entries(this.settings.userVolumes)
+            .filter(([, volume]) => volume === 0)
+            .map(([id]) => parseInt(id));
     }
 
     /**
@@ -4,15 +4,7 @@
 class UIManager {
     constructor(voiceChat) {
         this.voiceChat = voiceChat;
-    }
-
-    /**
-     * Escape HTML to prevent XSS
-     */
-    escapeHtml(str) {
-        const div = document.createElement('div');
-        div.textContent = str;
-        return div.innerHTML;
+        this.userRows = new Map();
     }
 
     /**
@@ -34,11 +26,36 @@ class UIManager {
         text.textContent = connected ? `Connected as ${userName}` : 'Disconnected';
     }
 
+    /**
+     * Show that the connection dropped and a session resume is in progress
+     */
+    setReconnecting() {
+        document.getElementById('statusText').textContent = 'Reconnecting...';
+        document.getElementById('pingDisplay').textContent = '--ms';
+    }
+
     /**
      * Update ping display
      */
     setPing(ms) {
-        document.getElementById('pingDisplay').textContent = ms + 'ms';
+        this.pingMs = ms;
+        this.renderPing();
+    }
+
+    /**
+     * Show the sample rate incoming audio is sent at (reduced while the connection is congested)
+     */
+    setAudioQuality(sampleRate) {
+        this.audioSampleRate = sampleRate;
+        this.renderPing();
+    }
+
+    renderPing() {
+        let text = (this.pingMs ?? '--') + 'ms';
+        if (this.audioSampleRate && this.audioSampleRate < 48000) {
+            text += ' · ' + (this.audioSampleRate / 1000) + 'kHz';
+        }
+        document.getElementById('pingDisplay').textContent = text;
     }
 
     /**
@@ -122,14 +139,19 @@ class UIManager {
 
     /**
      * Render the users list
+     * Rows are keyed by user id and only the parts whose displayed value changed are touched.
      */
-    renderUsers(users, selfId, calculateDistance, getUserVolume) {
+    renderUsers(users, selfId, calculateDistance, getUserVolume, isBlocked) {
         const container = document.getElementById('usersList');
 
         if (!users.size) {
-            container.innerHTML = '<p class="empty-state">No users connected</p>';
+            if (this.userRows.size || !container.querySelector('.empty-state')) {
+                this.userRows.clear();
+                container.innerHTML = '<p class="empty-state">No users connected</p>';
+            }
             return;
         }
+        if (!this.userRows.size) container.innerHTML = '';
 
         const sorted = [...users.values()].sort((a, b) => {
             if (a.id === selfId) return -1;
@@ -137,21 +159,105 @@ class UIManager {
             return a.name.localeCompare(b.name);
         });
 
+        // Drop rows of users that left
+        for (const [id, row] of this.userRows) {
+            if (!users.has(id)) {
+                row.el.remove();
+                this.userRows.delete(id);
+            }
+        }
 
-        container.innerHTML = sorted.map(user => {
+        for (const user of sorted) {
             const isSelf = user.id === selfId;
+            let row = this.userRows.get(user.id);
+            if (!row || row.isSelf !== isSelf) {
+                row?.el.remove();
+                row = this.createUserRow(user, isSelf);
+                this.userRows.set(user.id, row);
+            }
+
+            const distanceBucket = isSelf ? null : Math.round(calculateDistance(user));
+            if (row.name !== user.name || row.distanceBucket !== distanceBucket) {
+                row.name = user.name;
+                row.distanceBucket = distanceBucket;
+                row.nameText.textContent = user.name + (isSelf ? ' ' : '');
+                row.distanceText.textContent = isSelf ? '' : ` (${distanceBucket}m)`;
+            }
+
+            const blocked = !isSelf && isBlocked(user);
+            if (row.blockBtn && row.blocked !== blocked) {
+                row.blocked = blocked;
+                row.el.classList.toggle('blocked', blocked);
+                row.blockBtn.textContent = blocked ? 'Unblock' : 'Block';
+            }
+
+            if (row.speaking !== user.speaking) {
+                row.speaking = user.speaking;
+                row.el.classList.toggle('speaking', !!user.speaking);
+            }
+
+            // Don't fight the user while they drag the slider
             const vol = getUserVolume(user.id);
-            const distance = isSelf ? 0 : calculateDistance(user);
-            const distanceText = isSelf ? '' : ` (${distance.toFixed(1)}m)`;
-
-            return `
-                <div class="user-item ${user.speaking ? 'speaking' : ''} ${isSelf ? 'self' : ''}">
-                    <div class="user-info">
-                        <div class="user-name">${this.escapeHtml(user.name)}${isSelf ? ' <span class="tag">(you)</span>' : ''}${distanceText}</div>
-                    </div>
-                    ${!isSelf ? `<div class="user-volume"><input type="range" min="0" max="200" value="${vol}" oninput="chat.setUserVolume(${user.id}, this.value)"></div>` : ''}
-                </div>`;
-        }).join('');
+            if (row.slider && row.volume !== vol && document.activeElement !== row.slider) {
+                row.volume = vol;
+                row.slider.value = vol;
+            }
+        }
+
+        // Reorder only when the order actually changed
+        const children = container.children;
+        let inOrder = children.length === sorted.length;
+        for (let i = 0; inOrder && i < sorted.length; i++) {
+            inOrder = children[i] === this.userRows.get(sorted[i].id).el;
+        }
+        if (!inOrder) {
+            for (const user of sorted) container.appendChild(this.userRows.get(user.id).el);
+        }
+    }
+
+    createUserRow(user, isSelf) {
+        const id = user.id;
+        const el = document.createElement('div');
+        el.className = 'user-item' + (isSelf ? ' self' : '');
+
+        const info = document.createElement('div');
+        info.className = 'user-info';
+        const name = document.createElement('div');
+        name.className = 'user-name';
+        const nameText = document.createTextNode('');
+        const distanceText = document.createTextNode('');
+        name.appendChild(nameText);
+        if (isSelf) {
+            const tag = document.createElement('span');
+            tag.className = 'tag';
+            tag.textContent = '(you)';
+            name.appendChild(tag);
+        }
+        name.appendChild(distanceText);
+        info.appendChild(name);
+        el.appendChild(info);
+
+        let slider = null;
+        let blockBtn = null;
+        if (!isSelf) {
+            const volume = document.createElement('div');
+            volume.className = 'user-volume';
+            slider = document.createElement('input');
+            slider.type = 'range';
+            slider.min = '0';
+            slider.max = '200';
+            slider.addEventListener('input', () => this.voiceChat.setUserVolume(id, slider.value));
+            volume.appendChild(slider);
+            el.appendChild(volume);
+
+            blockBtn = document.createElement('button');
+            blockBtn.className = 'user-block';
+            blockBtn.title = 'Blocked players are never sent to you, also after reconnecting';
+            blockBtn.addEventListener('click', () => this.voiceChat.toggleBlock(user));
+            el.appendChild(blockBtn);
+        }
+
+        return { el, nameText, distanceText, slider, blockBtn, isSelf, name: null, distanceBucket: undefined, speaking: false, volume: null, blocked: null };
     }
 }
 
@@ -0,0 +1,85 @@
+package pl.msmaciek.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PcmKernelsTest {
+    // Covers empty frames, tails shorter than a vector, a 20ms frame and a browser capture chunk
+    private static final int[] SAMPLE_COUNTS = {0, 1, 3, 7, 15, 17, 63, 960, 1001, 8192};
+    private static final float[] GAINS = {0f, 0.25f, 1f, 1.7f, 3.98f, -1f};
+
+    private final PcmKernels scalar = new ScalarPcmKernels();
+
+    @Test
+    void scalarSumSquaresAndPeak() {
+        byte[] pcm = pcm(3, 4, -5, Short.MIN_VALUE, 0);
+
+        assertEquals(9 + 16 + 25, scalar.sumSquares(pcm, 0, 3));
+        assertEquals(5, scalar.peak(pcm, 0, 3));
+        assertEquals(32768, scalar.peak(pcm, 0, 5));
+        assertEquals(32768, scalar.peak(pcm, 6, 1), "offset is in bytes");
+        assertEquals(0, scalar.sumSquares(pcm, 0, 0));
+    }
+
+    @Test
+    void scalarApplyGainSaturates() {
+        byte[] src = pcm(1000, -1000, 20000, -20000, 7);
+        byte[] dst = new byte[src.length + 2];
+
+        scalar.applyGain(src, 0, dst, 2, 5, 2.5f);
+
+        assertArrayEquals(pcm(0, 2500, -2500, Short.MAX_VALUE, Short.MIN_VALUE, 17), dst);
+    }
+
+    @Test
+    void vectorMatchesScalar() {
+        PcmKernels vector = PcmKernels.create();
+        assumeTrue(vector.describe().startsWith("vector"), "Vector API not available: " + vector.describe());
+
+        Random random = new Random(3);
+        for (int samples : SAMPLE_COUNTS) {
+            for (int offset : new int[]{0, 2, 6}) {
+                byte[] pcm = new byte[offset + samples * 2];
+                random.nextBytes(pcm);
+                String frame = samples + " samples at offset " + offset;
+
+                double expected = scalar.sumSquares(pcm, offset, samples);
+                assertEquals(expected, vector.sumSquares(pcm, offset, samples), expected * 1e-4, frame);
+                assertEquals(scalar.peak(pcm, offset, samples), vector.peak(pcm, offset, samples), frame);
+
+                for (float gain : GAINS) {
+                    byte[] scalarOut = new byte[offset + samples * 2];
+                    byte[] vectorOut = new byte[offset + samples * 2];
+                    scalar.applyGain(pcm, offset, scalarOut, offset, samples, gain);
+                    vector.applyGain(pcm, offset, vectorOut, offset, samples, gain);
+                    assertArrayEquals(scalarOut, vectorOut, frame + ", gain " + gain);
+                }
+            }
+        }
+    }
+
+    @Test
+    void vectorPeakOfMostNegativeSample() {
+        PcmKernels vector = PcmKernels.create();
+        assumeTrue(vector.describe().startsWith("vector"), "Vector API not available: " + vector.describe());
+
+        int[] samples = new int[64];
+        samples[40] = Short.MIN_VALUE;
+        byte[] pcm = pcm(samples);
+
+        assertEquals(32768, vector.peak(pcm, 0, samples.length));
+    }
+
+    private static byte[] pcm(int... samples) {
+        byte[] pcm = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            pcm[i * 2] = (byte) samples[i];
+            pcm[i * 2 + 1] = (byte) (samples[i] >> 8);
+        }
+        return pcm;
+    }
+}
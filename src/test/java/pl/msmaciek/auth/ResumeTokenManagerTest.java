@@ -0,0 +1,123 @@
+package pl.msmaciek.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The manager is a singleton, so every test uses its own session ids.
+ */
+class ResumeTokenManagerTest {
+    private static final long TTL_MS = 60_000;
+
+    private final ResumeTokenManager tokens = ResumeTokenManager.getInstance();
+    private final UUID player = UUID.randomUUID();
+
+    @Test
+    void consumeReturnsIssuedClaims() {
+        String token = tokens.issue(101, player, "Steve|the|builder", TTL_MS);
+
+        ResumeTokenManager.Claims claims = tokens.consume(token);
+
+        assertNotNull(claims);
+        assertEquals(101, claims.getOdapId());
+        assertEquals(player, claims.getPlayerUuid());
+        assertEquals("Steve|the|builder", claims.getPlayerName());
+    }
+
+    @Test
+    void tokensAreSingleUse() {
+        String token = tokens.issue(102, player, "Steve", TTL_MS);
+
+        assertNotNull(tokens.consume(token));
+        assertNull(tokens.consume(token));
+    }
+
+    @Test
+    void verifyDoesNotUseUpToken() {
+        String token = tokens.issue(109, player, "Steve", TTL_MS);
+
+        assertNotNull(tokens.verify(token));
+        assertNotNull(tokens.verify(token));
+        assertNotNull(tokens.consume(token));
+        assertNull(tokens.verify(token));
+    }
+
+    @Test
+    void verifiedClaimsAreConsumedOnce() {
+        String token = tokens.issue(110, player, "Steve", TTL_MS);
+        ResumeTokenManager.Claims first = tokens.verify(token);
+        ResumeTokenManager.Claims second = tokens.verify(token);
+
+        assertTrue(tokens.consume(first));
+        assertFalse(tokens.consume(second));
+    }
+
+    @Test
+    void verifiedClaimsOfReplacedTokenCannotBeConsumed() {
+        ResumeTokenManager.Claims claims = tokens.verify(tokens.issue(111, player, "Steve", TTL_MS));
+        String newer = tokens.issue(111, player, "Steve", TTL_MS);
+
+        assertFalse(tokens.consume(claims));
+        assertNotNull(tokens.consume(newer));
+    }
+
+    @Test
+    void newerTokenReplacesOlder() {
+        String older = tokens.issue(103, player, "Steve", TTL_MS);
+        String newer = tokens.issue(103, player, "Steve", TTL_MS);
+
+        assertNull(tokens.consume(older));
+        assertNotNull(tokens.consume(newer));
+    }
+
+    @Test
+    void tokensOfOtherSessionsAreIndependent() {
+        String first = tokens.issue(104, player, "Steve", TTL_MS);
+        String second = tokens.issue(105, UUID.randomUUID(), "Alex", TTL_MS);
+
+        assertEquals(105, tokens.consume(second).getOdapId());
+        assertEquals(104, tokens.consume(first).getOdapId());
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        String token = tokens.issue(106, player, "Steve", TTL_MS);
+        tokens.revoke(106);
+
+        assertNull(tokens.consume(token));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = tokens.issue(107, player, "Steve", -1);
+
+        assertNull(tokens.consume(token));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = tokens.issue(108, player, "Steve", TTL_MS);
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("Steve", "Admin").getBytes(StandardCharsets.UTF_8));
+        // The last base64 character carries unused bits, so flip the first one of the signature
+        char first = token.charAt(dot + 1);
+
+        assertNull(tokens.consume(forgedPayload + token.substring(dot)));
+        assertNull(tokens.consume(token.substring(0, dot + 1) + (first == 'A' ? 'B' : 'A') + token.substring(dot + 2)));
+        assertNotNull(tokens.consume(token), "failed attempts don't consume the real token");
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        for (String token : new String[]{null, "", ".", "abc", ".abc", "abc.", "a.b.c", "!!!.???"}) {
+            assertNull(tokens.consume(token), String.valueOf(token));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pl.msmaciek.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 0; v < 64; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(64, histogram.getCount());
+        assertEquals(63, histogram.getMax());
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(31, histogram.percentile(50));
+        assertEquals(62, histogram.percentile(98));
+        assertEquals(63, histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        Random random = new Random(7);
+        long[] values = new long[10_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(10_000_000));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[]{1, 10, 50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * p / 100) - 1];
+            long reported = histogram.percentile(p);
+            assertTrue(reported >= exact, "p" + p + " below the exact value");
+            assertTrue(reported <= exact + exact / 32 + 1, "p" + p + ": " + reported + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.percentile(100));
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertEquals(1_000_001, histogram.percentile(50));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals((1L << 26) - 1, histogram.getMax());
+        assertEquals((1L << 26) - 1, histogram.percentile(100));
+    }
+
+    @Test
+    void addMergesCountsAndMax() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) a.record(10);
+        for (int i = 0; i < 10; i++) b.record(5000);
+
+        a.add(b);
+
+        assertEquals(100, a.getCount());
+        assertEquals(5000, a.getMax());
+        assertEquals(10, a.percentile(90));
+        assertEquals(5000, a.percentile(91));
+        assertEquals(10, b.getCount(), "the added histogram is unchanged");
+    }
+}
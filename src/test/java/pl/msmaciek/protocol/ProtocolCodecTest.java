@@ -0,0 +1,128 @@
+package pl.msmaciek.protocol;
+
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtocolCodecTest {
+
+    @Test
+    void appendStringMatchesGsonForEveryAsciiCharacter() throws IOException {
+        for (char c = 0; c < 0x80; c++) {
+            String value = "a" + c + "b";
+            assertEquals(gson(value), append(value), "character 0x" + Integer.toHexString(c));
+        }
+    }
+
+    @Test
+    void appendStringMatchesGsonForLineAndParagraphSeparators() throws IOException {
+        for (String value : new String[]{"\u2028", "\u2029", "x\u2028y\u2029z"}) {
+            assertEquals(gson(value), append(value));
+        }
+    }
+
+    @Test
+    void appendStringMatchesGsonForMixedText() throws IOException {
+        String[] values = {
+                "",
+                "Steve",
+                "<script>alert('x')</script>",
+                "a=b&c=d",
+                "tab\there\nline\r\f\b\u0000\u001f\u007f",
+                "\"quoted\" \\slash\\",
+                "za\u017c\u00f3\u0142\u0107 g\u0119\u015bl\u0105 ja\u017a\u0144",
+                "\ud83d\ude00 emoji"
+        };
+        for (String value : values) {
+            assertEquals(gson(value), append(value), value);
+        }
+    }
+
+    @Test
+    void appendStringWritesNullLiteral() {
+        assertEquals("null", append(null));
+    }
+
+    @Test
+    void decodeReadsAllFields() {
+        ClientMessage message = ProtocolCodec.decode("{\"type\":\"block\",\"token\":\"abc\",\"timestamp\":1700000000123.9,"
+                + "\"seq\":42,\"deafened\":true,\"muted\":[3,1,3],\"id\":7,\"blocked\":true}");
+
+        assertEquals(ClientMessageType.BLOCK, message.getType());
+        assertEquals("abc", message.getToken());
+        assertEquals(1700000000123L, message.getTimestamp());
+        assertEquals(42, message.getSeq());
+        assertTrue(message.isDeafened());
+        assertEquals(Set.of(1, 3), message.getMuted());
+        assertEquals(7, message.getId());
+        assertTrue(message.isBlocked());
+    }
+
+    @Test
+    void decodeDefaultsMissingAndNullFields() {
+        ClientMessage message = ProtocolCodec.decode("{\"type\":\"subscription\",\"muted\":null,\"token\":null}");
+
+        assertEquals(ClientMessageType.SUBSCRIPTION, message.getType());
+        assertNull(message.getToken());
+        assertEquals(Set.of(), message.getMuted());
+        assertFalse(message.isDeafened());
+        assertEquals(0, message.getId());
+    }
+
+    @Test
+    void decodeSkipsUnknownFields() {
+        ClientMessage message = ProtocolCodec.decode(
+                "{\"extra\":{\"nested\":[1,{\"a\":null}]},\"type\":\"ping\",\"other\":\"x\",\"timestamp\":5}");
+
+        assertEquals(ClientMessageType.PING, message.getType());
+        assertEquals(5, message.getTimestamp());
+    }
+
+    @Test
+    void decodeMapsUnknownTypeToUnknown() {
+        assertEquals(ClientMessageType.UNKNOWN, ProtocolCodec.decode("{\"type\":\"nope\"}").getType());
+        assertEquals(ClientMessageType.UNKNOWN, ProtocolCodec.decode("{}").getType());
+    }
+
+    @Test
+    void decodeCapsMutedIds() {
+        StringBuilder sb = new StringBuilder("{\"type\":\"subscription\",\"muted\":[");
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(i);
+        }
+        sb.append("],\"deafened\":true}");
+
+        ClientMessage message = ProtocolCodec.decode(sb.toString());
+
+        assertEquals(1000, message.getMuted().size());
+        assertTrue(message.isDeafened(), "fields after the capped array are still read");
+    }
+
+    @Test
+    void decodeRejectsMalformedMessages() {
+        for (String message : new String[]{"", "[1]", "\"ping\"", "{", "{\"type\":}", "{\"seq\":\"x\"}", "{\"muted\":[\"a\"]}"}) {
+            assertThrows(IllegalArgumentException.class, () -> ProtocolCodec.decode(message), message);
+        }
+    }
+
+    private static String append(String value) {
+        StringBuilder sb = new StringBuilder();
+        ProtocolCodec.appendString(sb, value);
+        return sb.toString();
+    }
+
+    private static String gson(String value) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+        writer.value(value);
+        writer.close();
+        return out.toString();
+    }
+}
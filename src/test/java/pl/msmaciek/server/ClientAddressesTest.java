@@ -0,0 +1,52 @@
+package pl.msmaciek.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressesTest {
+    private static final SocketAddress LOOPBACK = new InetSocketAddress("127.0.0.1", 50000);
+    private static final SocketAddress UNIX = UnixDomainSocketAddress.of("voicechat.sock");
+    private static final SocketAddress REMOTE = new InetSocketAddress("203.0.113.7", 50000);
+
+    @Test
+    void remoteClientsUseTheirOwnAddress() {
+        assertEquals("203.0.113.7", ClientAddresses.resolve(REMOTE, null, false));
+        assertEquals("203.0.113.7", ClientAddresses.resolve(REMOTE, "198.51.100.1", true), "the header of a remote peer is ignored");
+    }
+
+    @Test
+    void localClientsAreNotToldApartWithoutTrustedProxy() {
+        assertNull(ClientAddresses.resolve(LOOPBACK, null, false));
+        assertNull(ClientAddresses.resolve(LOOPBACK, "198.51.100.1", false));
+        assertNull(ClientAddresses.resolve(UNIX, "198.51.100.1", false));
+    }
+
+    @Test
+    void trustedProxyAddressIsTheLastEntry() {
+        assertEquals("198.51.100.1", ClientAddresses.resolve(LOOPBACK, "198.51.100.1", true));
+        assertEquals("198.51.100.1", ClientAddresses.resolve(UNIX, " 198.51.100.1 ", true));
+    }
+
+    @Test
+    void spoofedMultiHopHeaderResolvesToTheProxyAppendedEntry() {
+        // The client sent "10.0.0.1, 10.0.0.2", the proxy appended the address it saw
+        String header = "10.0.0.1, 10.0.0.2, 198.51.100.1";
+
+        assertEquals("198.51.100.1", ClientAddresses.resolve(LOOPBACK, header, true));
+        assertEquals("198.51.100.1", ClientAddresses.resolve(LOOPBACK, "1.2.3.4," + header, true),
+                "rotating the spoofed entries doesn't change the address");
+        assertNull(ClientAddresses.resolve(LOOPBACK, header, false));
+    }
+
+    @Test
+    void missingOrEmptyHeaderIsNotLimited() {
+        assertNull(ClientAddresses.resolve(LOOPBACK, null, true));
+        assertNull(ClientAddresses.resolve(LOOPBACK, "", true));
+        assertNull(ClientAddresses.resolve(LOOPBACK, "10.0.0.1, ", true));
+    }
+}
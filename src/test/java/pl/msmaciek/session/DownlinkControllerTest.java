@@ -0,0 +1,76 @@
+package pl.msmaciek.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownlinkControllerTest {
+    private static final long LATENCY_MICROS = 200_000;
+    private static final int BACKLOG = 4;
+    private static final long RECOVERY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final DownlinkController downlink = new DownlinkController();
+
+    @Test
+    void stalledListenerMovesDownWithoutCompletedWrites() {
+        long now = System.nanoTime();
+        while (downlink.tryAcquire(8)) {
+            // Nothing ever completes
+        }
+
+        assertEquals(AudioTier.HALF, evaluate(now));
+        assertNull(evaluate(now + SECOND / 2), "held for a second after a change");
+        assertEquals(AudioTier.LOW, evaluate(now + 2 * SECOND));
+        assertNull(evaluate(now + 4 * SECOND), "already at the lowest tier");
+    }
+
+    @Test
+    void recoversAfterBeingHealthyForRecoveryPeriod() {
+        long now = System.nanoTime();
+        for (int i = 0; i <= BACKLOG; i++) downlink.tryAcquire(8);
+        assertEquals(AudioTier.HALF, evaluate(now));
+
+        for (int i = 0; i <= BACKLOG; i++) downlink.failed();
+        assertNull(evaluate(now + SECOND));
+        assertNull(evaluate(now + 3 * SECOND));
+        assertEquals(AudioTier.FULL, evaluate(now + 7 * SECOND));
+    }
+
+    @Test
+    void concurrentCompletionsKeepLatencyEstimate() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    downlink.tryAcquire(0);
+                    downlink.complete(0, TimeUnit.MILLISECONDS.toNanos(50));
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, downlink.getInFlight());
+        // The integer EWMA of a constant settles just below it
+        assertTrue(downlink.getSendLatencyMicros() > 49_990, String.valueOf(downlink.getSendLatencyMicros()));
+    }
+
+    private AudioTier evaluate(long now) {
+        return downlink.evaluate(LATENCY_MICROS, BACKLOG, RECOVERY_NANOS, now);
+    }
+}
@@ -0,0 +1,38 @@
+package pl.msmaciek.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkQualityTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LinkQuality link = new LinkQuality();
+
+    @Test
+    void rttIsMeasuredFromRegistrationWhenNeverStamped() {
+        long seq = link.nextPing(0);
+
+        assertEquals(30_000, link.pongReceived(seq, 30 * MS));
+    }
+
+    @Test
+    void queueWaitIsLeftOutOfRtt() {
+        long seq = link.nextPing(0);
+        link.pingSent(seq, 120 * MS);
+
+        assertEquals(20_000, link.pongReceived(seq, 140 * MS));
+    }
+
+    @Test
+    void stampOfUnknownOrAnsweredPingIsIgnored() {
+        long seq = link.nextPing(0);
+        link.pingSent(seq + 1, 10 * MS);
+        assertEquals(20_000, link.pongReceived(seq, 20 * MS));
+
+        link.pingSent(seq, 15 * MS);
+        assertEquals(-1, link.pongReceived(seq, 30 * MS));
+    }
+}
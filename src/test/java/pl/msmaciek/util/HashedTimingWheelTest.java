@@ -0,0 +1,87 @@
+package pl.msmaciek.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void expiresAfterDelayRoundedUpToTicks() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(16, 10, expired::add);
+        wheel.schedule("a", 25);
+
+        advance(wheel, 2);
+        assertEquals(List.of(), expired);
+        advance(wheel, 1);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void zeroDelayExpiresOnNextTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(16, 10, expired::add);
+        wheel.schedule("a", 0);
+
+        advance(wheel, 1);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void itemsFireOnlyOnce() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(4, 10, expired::add);
+        wheel.schedule("a", 10);
+
+        advance(wheel, 20);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void laterRoundsWaitInSharedBucket() {
+        // 4 buckets: a 1-tick and a 5-tick delay land in the same bucket
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(4, 10, expired::add);
+        wheel.schedule("soon", 10);
+        wheel.schedule("later", 50);
+
+        advance(wheel, 1);
+        assertEquals(List.of("soon"), expired);
+        advance(wheel, 3);
+        assertEquals(List.of("soon"), expired);
+        advance(wheel, 1);
+        assertEquals(List.of("soon", "later"), expired);
+    }
+
+    @Test
+    void delayIsRelativeToCurrentTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 10, expired::add);
+        advance(wheel, 5);
+        wheel.schedule("a", 30);
+
+        advance(wheel, 2);
+        assertEquals(List.of(), expired);
+        advance(wheel, 1);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void failingHandlerDoesNotStopOtherExpiries() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 10, item -> {
+            if (item.equals("bad")) throw new IllegalStateException("boom");
+            expired.add(item);
+        });
+        wheel.schedule("bad", 10);
+        wheel.schedule("good", 10);
+
+        advance(wheel, 1);
+        assertEquals(List.of("good"), expired);
+    }
+
+    private static void advance(HashedTimingWheel<?> wheel, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.advance();
+        }
+    }
+}
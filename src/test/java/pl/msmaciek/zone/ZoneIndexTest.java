@@ -0,0 +1,155 @@
+package pl.msmaciek.zone;
+
+import org.junit.jupiter.api.Test;
+import pl.msmaciek.config.VoiceChatConfig;
+import pl.msmaciek.structs.Box;
+import pl.msmaciek.structs.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZoneIndexTest {
+    private static final UUID WORLD_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID WORLD_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    @Test
+    void emptyIndexFindsNothing() {
+        ZoneIndex index = new ZoneIndex(List.of());
+
+        assertTrue(index.isEmpty());
+        assertSame(AcousticZone.NONE, index.lookup(new Position(10, 64, 10)).zone());
+    }
+
+    @Test
+    void findsContainingZone() {
+        AcousticZone hall = zone("hall", 0, null, 0, 0, 0, 20, 10, 20);
+        ZoneIndex index = new ZoneIndex(List.of(hall));
+
+        assertSame(hall, index.lookup(new Position(5, 5, 5)).zone());
+        assertSame(hall, index.lookup(new Position(20, 10, 20)).zone(), "bounds are inclusive");
+        assertSame(AcousticZone.NONE, index.lookup(new Position(21, 5, 5)).zone());
+        assertSame(AcousticZone.NONE, index.lookup(new Position(5, 11, 5)).zone());
+    }
+
+    @Test
+    void higherPriorityWins() {
+        AcousticZone outer = zone("outer", 5, null, 0, 0, 0, 100, 100, 100);
+        AcousticZone inner = zone("inner", 1, null, 10, 10, 10, 20, 20, 20);
+        ZoneIndex index = new ZoneIndex(List.of(inner, outer));
+
+        assertSame(outer, index.lookup(new Position(15, 15, 15)).zone());
+    }
+
+    @Test
+    void smallerZoneWinsOnEqualPriority() {
+        AcousticZone outer = zone("outer", 0, null, 0, 0, 0, 100, 100, 100);
+        AcousticZone inner = zone("inner", 0, null, 10, 10, 10, 20, 20, 20);
+
+        assertSame(inner, new ZoneIndex(List.of(outer, inner)).lookup(new Position(15, 15, 15)).zone());
+        assertSame(inner, new ZoneIndex(List.of(inner, outer)).lookup(new Position(15, 15, 15)).zone());
+        assertSame(outer, new ZoneIndex(List.of(inner, outer)).lookup(new Position(50, 50, 50)).zone());
+    }
+
+    @Test
+    void zonesOnlyApplyToTheirWorld() {
+        AcousticZone cave = zone("cave", 0, WORLD_A, 0, 0, 0, 10, 10, 10);
+        ZoneIndex index = new ZoneIndex(List.of(cave));
+
+        assertSame(cave, index.lookup(new Position(5, 5, 5, 0, WORLD_A)).zone());
+        assertSame(AcousticZone.NONE, index.lookup(new Position(5, 5, 5, 0, WORLD_B)).zone());
+        assertSame(AcousticZone.NONE, index.lookup(new Position(5, 5, 5)).zone());
+    }
+
+    @Test
+    void findsZonesTooLargeForTheGrid() {
+        AcousticZone ocean = zone("ocean", 0, null, -100_000, -100, -100_000, 100_000, 100, 100_000);
+        AcousticZone island = zone("island", 0, null, 0, 0, 0, 50, 50, 50);
+        ZoneIndex index = new ZoneIndex(List.of(ocean, island));
+
+        assertSame(ocean, index.lookup(new Position(-99_000, 0, 99_000)).zone());
+        assertSame(island, index.lookup(new Position(25, 25, 25)).zone());
+    }
+
+    @Test
+    void validBoxContainsPositionAndStaysInsideZone() {
+        AcousticZone hall = zone("hall", 0, null, 0, 0, 0, 20, 10, 20);
+        Position pos = new Position(5, 5, 5);
+
+        ZoneIndex.Lookup lookup = new ZoneIndex(List.of(hall)).lookup(pos);
+
+        assertTrue(lookup.valid().contains(pos));
+        assertTrue(lookup.valid().minX() >= 0 && lookup.valid().maxX() <= 20);
+        assertTrue(lookup.valid().minY() >= 0 && lookup.valid().maxY() <= 10);
+        assertTrue(lookup.valid().minZ() >= 0 && lookup.valid().maxZ() <= 20);
+    }
+
+    @Test
+    void matchesLinearScanAndValidBoxKeepsTheAnswer() {
+        Random random = new Random(42);
+        List<AcousticZone> zones = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            double x = random.nextInt(400) - 200, y = random.nextInt(100), z = random.nextInt(400) - 200;
+            double w = 1 + random.nextInt(80), h = 1 + random.nextInt(40), d = 1 + random.nextInt(80);
+            UUID world = random.nextInt(4) == 0 ? WORLD_B : null;
+            zones.add(zone("z" + i, random.nextInt(3), world, x, y, z, x + w, y + h, z + d));
+        }
+        ZoneIndex index = new ZoneIndex(zones);
+
+        for (int i = 0; i < 2000; i++) {
+            UUID world = random.nextBoolean() ? WORLD_A : WORLD_B;
+            Position pos = new Position(random.nextDouble() * 500 - 250, random.nextDouble() * 150 - 25,
+                    random.nextDouble() * 500 - 250, 0, world);
+            ZoneIndex.Lookup lookup = index.lookup(pos);
+            assertSame(linearScan(zones, pos), lookup.zone(), "at " + describe(pos));
+
+            Box valid = lookup.valid();
+            assertTrue(valid.contains(pos));
+            for (int j = 0; j < 10; j++) {
+                Position near = new Position(
+                        pick(random, valid.minX(), valid.maxX(), pos.getX()),
+                        pick(random, valid.minY(), valid.maxY(), pos.getY()),
+                        pick(random, valid.minZ(), valid.maxZ(), pos.getZ()), 0, world);
+                assertSame(lookup.zone(), linearScan(zones, near), "valid box of " + describe(pos) + " at " + describe(near));
+            }
+        }
+    }
+
+    private static AcousticZone linearScan(List<AcousticZone> zones, Position pos) {
+        AcousticZone best = AcousticZone.NONE;
+        for (AcousticZone zone : zones) {
+            if (zone.contains(pos) && zone.beats(best)) best = zone;
+        }
+        return best;
+    }
+
+    /**
+     * A random coordinate in the valid range, within 60 blocks of the looked up one.
+     */
+    private static double pick(Random random, double min, double max, double around) {
+        double lo = Math.max(min, around - 60), hi = Math.min(max, around + 60);
+        return lo + random.nextDouble() * (hi - lo);
+    }
+
+    private static String describe(Position pos) {
+        return "(" + pos.getX() + ", " + pos.getY() + ", " + pos.getZ() + ") in " + pos.getWorldUuid();
+    }
+
+    private static AcousticZone zone(String name, int priority, UUID world,
+                                     double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        VoiceChatConfig.ZoneConfig config = new VoiceChatConfig.ZoneConfig();
+        config.setName(name);
+        config.setPriority(priority);
+        config.setWorld(world == null ? "" : world.toString());
+        config.setMinX(minX);
+        config.setMinY(minY);
+        config.setMinZ(minZ);
+        config.setMaxX(maxX);
+        config.setMaxY(maxY);
+        config.setMaxZ(maxZ);
+        return AcousticZone.from(config);
+    }
+}